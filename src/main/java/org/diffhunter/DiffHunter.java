@@ -1,13 +1,28 @@
 package org.diffhunter;
 
+import org.diffhunter.cache.MemoryGovernor;
+import org.diffhunter.cache.NormalizedTextCache;
+import org.diffhunter.diff.ContentPolicy;
 import org.diffhunter.diff.DiffCalculator;
+import org.diffhunter.diff.DiffKernels;
 import org.diffhunter.diff.DiffHighlighter;
+import org.diffhunter.diff.DiffSummary;
+import org.diffhunter.diff.ExclusionMask;
 import org.diffhunter.diff.HexDumpConverter;
 import org.diffhunter.handler.HttpCaptureHandler;
+import org.diffhunter.model.BodyPolicy;
 import org.diffhunter.model.DiffSegment;
 import org.diffhunter.model.HttpLogEntry;
+import org.diffhunter.model.RowClassifications;
 import org.diffhunter.model.RowDiffType;
 import org.diffhunter.model.TargetExclusions;
+import org.diffhunter.search.ExclusionMatcher;
+import org.diffhunter.search.GuardedRegex;
+import org.diffhunter.search.MetadataQuery;
+import org.diffhunter.search.PostingList;
+import org.diffhunter.search.RegexTimeoutException;
+import org.diffhunter.search.TrigramIndex;
+import org.diffhunter.search.VisibleRowSet;
 import org.diffhunter.ui.*;
 import org.diffhunter.util.Constants;
 
@@ -21,6 +36,12 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
@@ -33,7 +54,17 @@ public class DiffHunter implements BurpExtension {
     private final UIContext context = new UIContext();
     private PropertyChangeListener themeChangeListener;
     private HttpCaptureHandler httpHandler;
+    private MemoryGovernor memoryGovernor;
     private MatchPanel matchPanel;
+    private TablePanel tablePanel;
+    private String lastFilterKey;
+    private VisibleRowSet lastVisibleRows;
+    private VisibleRowSet appliedVisibleRows;
+    private boolean lateRowsSubmitted;
+    private boolean queuedRowsSubmitted;
+    private final ExecutorService filterExecutor = newExecutor("DiffHunter filter", Constants.FILTER_THREADS);
+    private final ExecutorService rowUpdateExecutor = newExecutor("DiffHunter row updates", 1);
+    private long reportedRegexTimeouts;
     private int originalTooltipDelay;
 
     /** Entry point for the Burp Suite extension. Initializes UI, handlers, and listeners. */
@@ -55,6 +86,14 @@ public class DiffHunter implements BurpExtension {
         themeChangeListener = this::onLookAndFeelChanged;
         UIManager.addPropertyChangeListener(themeChangeListener);
 
+        memoryGovernor = new MemoryGovernor(
+                message -> api.logging().logToOutput(message),
+                message -> SwingUtilities.invokeLater(() -> {
+                    if (context.getStatusLabel() != null) context.getStatusLabel().setText(message);
+                }));
+        registerMemoryShedders();
+        memoryGovernor.start();
+
         api.extension().registerUnloadingHandler(this::cleanupResources);
 
         SwingUtilities.invokeLater(() -> {
@@ -68,6 +107,10 @@ public class DiffHunter implements BurpExtension {
                             return;
                         }
                         processPendingEntries();
+                        classifyQueuedRows();
+                        evaluateLateRows();
+                        updateMemoryUsageLabel();
+                        memoryGovernor.checkRecovery();
                     });
             batchUpdateTimer.start();
             context.setBatchUpdateTimer(batchUpdateTimer);
@@ -80,9 +123,21 @@ public class DiffHunter implements BurpExtension {
         api.logging().logToOutput("Email: " + Constants.EMAIL);
         api.logging().logToOutput("Linktree: " + Constants.LINKTREE);
         api.logging().logToOutput("===========================================");
+        api.logging().logToOutput("[DiffHunter] Diff kernels: " + DiffKernels.get().getName());
         api.logging().logToOutput(Constants.EXTENSION_NAME + " Extension loaded successfully!");
     }
 
+    /**
+     * Registers the caches the memory governor may shed under heap pressure, cheapest to rebuild first.
+     */
+    private void registerMemoryShedders() {
+        NormalizedTextCache textCache = context.getTextCache();
+        memoryGovernor.register("Normalized text cache (half)", 20, () -> textCache.trim(textCache.getUsedBytes() / 2));
+        memoryGovernor.register("Normalized text cache", 30, () -> textCache.trim(0));
+        memoryGovernor.register("Diff summaries", 40, this::releaseDiffSummaries);
+        memoryGovernor.register("Inactive target classifications", 50, context.getRowClassifications()::releaseInactive);
+    }
+
     /**
      * Initializes theme colors and editor font based on Burp Suite settings.
      */
@@ -197,7 +252,7 @@ public class DiffHunter implements BurpExtension {
 
         JSplitPane centerSplit = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
 
-        TablePanel tablePanel = new TablePanel(
+        tablePanel = new TablePanel(
                 context,
                 this::displaySelectedRequest,
                 this::updateHostAndEndpointCombos
@@ -232,78 +287,301 @@ public class DiffHunter implements BurpExtension {
 
     /**
      * Applies the current filter to the request table.
+     * Content predicates are evaluated on a background thread in parallel chunks, and the table
+     * receives the precomputed set of visible rows. A newer filter cancels the one in progress.
+     * The difference type filter is cheap and stays live in the row filter.
      */
     private void applyTableFilter() {
         String filterText = context.getCommittedFilterText();
         boolean caseSensitive = context.getTableFilterCaseSensitive().isSelected();
         boolean useRegex = context.getTableFilterRegex().isSelected();
         boolean negative = context.getTableFilterNegative().isSelected();
+        boolean searchRequests = context.isFilterRequests();
+        boolean searchResponses = context.isFilterResponses();
+        boolean querySyntax = context.isQuerySyntax();
 
-        context.setFiltering(true);
-        try {
-            Pattern pattern = null;
-            String literalFilter = null;
+        final int version = context.getFilterVersion().incrementAndGet();
 
-            if (!filterText.isEmpty()) {
-                if (useRegex) {
-                    int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE;
-                    pattern = Pattern.compile(filterText, flags);
-                } else {
-                    literalFilter = caseSensitive ? filterText : filterText.toLowerCase();
+        if (filterText.isEmpty()) {
+            hideFilterProgress();
+            context.getTableFilterField().setBackground(context.getColorBackground());
+            showVisibleRows(null);
+            return;
+        }
+
+        String filterKey = String.join("\u0000", filterText, String.valueOf(caseSensitive), String.valueOf(useRegex),
+                String.valueOf(negative), String.valueOf(searchRequests), String.valueOf(searchResponses),
+                String.valueOf(querySyntax));
+        if (filterKey.equals(lastFilterKey) && lastVisibleRows != null) {
+            hideFilterProgress();
+            showVisibleRows(lastVisibleRows);
+            return;
+        }
+
+        JProgressBar progress = context.getTableFilterProgress();
+        progress.setValue(0);
+        progress.setString("Filtering...");
+        progress.setVisible(true);
+        progress.getParent().revalidate();
+
+        filterExecutor.execute(() -> {
+            try {
+                AtomicReference<String> regexTimeout = new AtomicReference<>();
+                Predicate<HttpLogEntry> predicate = buildFilterPredicate(filterText, caseSensitive, useRegex,
+                        negative, searchRequests, searchResponses, querySyntax, regexTimeout);
+                VisibleRowSet visibleRows = computeVisibleRows(predicate, version);
+                if (visibleRows == null) return;
+                if (regexTimeout.get() != null) {
+                    api.logging().logToOutput("[DiffHunter] Filter regex stopped: a single match " + regexTimeout.get());
                 }
+
+                SwingUtilities.invokeLater(() -> {
+                    if (context.isExtensionUnloading() || context.getFilterVersion().get() != version) return;
+                    boolean timedOut = regexTimeout.get() != null;
+                    lastFilterKey = timedOut ? null : filterKey;
+                    lastVisibleRows = visibleRows;
+                    hideFilterProgress();
+                    context.getTableFilterField().setBackground(timedOut ? Constants.COLOR_SEARCH_ERROR : context.getColorBackground());
+                    showVisibleRows(visibleRows);
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (context.getFilterVersion().get() != version) return;
+                    hideFilterProgress();
+                    context.getTableFilterField().setBackground(Constants.COLOR_SEARCH_ERROR);
+                });
             }
+        });
+    }
 
-            final Pattern finalPattern = pattern;
-            final String finalLiteralFilter = literalFilter;
-            final boolean finalCaseSensitive = caseSensitive;
+    /**
+     * Builds the content predicate for the table filter, including negative search.
+     * With query syntax enabled, metadata terms are checked first and only the remaining
+     * body text is searched. Body searches are narrowed through the trigram index so only
+     * candidate rows are verified; entries captured after the lookup are verified in full. Regex
+     * matches run under a GuardedRegex budget; once one exceeds it, the reason is stored in
+     * regexTimeout and the regex counts as not matching for every entry.
+     */
+    private Predicate<HttpLogEntry> buildFilterPredicate(String filterText, boolean caseSensitive, boolean useRegex,
+                                                         boolean negative, boolean searchRequests,
+                                                         boolean searchResponses, boolean querySyntax,
+                                                         AtomicReference<String> regexTimeout) {
+        Pattern pattern = null;
+        String literalFilter = null;
+        PostingList candidates = null;
+        TrigramIndex index = context.getTrigramIndex();
+        int indexedThrough = index.getHighestNumber();
+        MetadataQuery query = null;
+
+        if (querySyntax) {
+            query = MetadataQuery.parse(filterText);
+            filterText = query.getBodyText();
+        }
 
-            context.getTableSorter().setRowFilter(new RowFilter<DefaultTableModel, Integer>() {
-                @Override
-                public boolean include(Entry<? extends DefaultTableModel, ? extends Integer> entry) {
-                    Object requestNumObj = entry.getValue(0);
-                    if (requestNumObj == null) return false;
+        if (!filterText.isEmpty()) {
+            if (useRegex) {
+                int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE;
+                pattern = Pattern.compile(filterText, flags);
+                candidates = index.candidatesForRegex(filterText, searchRequests, searchResponses);
+            } else {
+                literalFilter = caseSensitive ? filterText : filterText.toLowerCase();
+                candidates = index.candidates(filterText, searchRequests, searchResponses);
+            }
+        }
 
-                    int requestNum = (Integer) requestNumObj;
-                    HttpLogEntry logEntry = context.getLogEntriesMap().get(requestNum);
-                    if (logEntry == null) return false;
+        final Pattern finalPattern = pattern;
+        final String finalLiteralFilter = literalFilter;
+        final PostingList finalCandidates = candidates;
+        final MetadataQuery finalQuery = query != null && query.hasMetadataTerms() ? query : null;
 
-                    if (!passesDiffTypeFilter(logEntry)) {
-                        return false;
-                    }
+        return logEntry -> {
+            if (finalQuery != null && !finalQuery.test(logEntry)) {
+                return negative;
+            }
 
-                    if (finalPattern != null) {
-                        boolean matches = matchesRegex(logEntry, finalPattern);
-                        return negative != matches;
-                    }
+            if (finalCandidates != null && logEntry.getNumber() <= indexedThrough
+                    && !finalCandidates.contains(logEntry.getNumber())) {
+                return negative;
+            }
 
-                    if (finalLiteralFilter != null) {
-                        boolean matches = matchesLiteral(logEntry, finalLiteralFilter, finalCaseSensitive);
-                        return negative != matches;
+            if (finalPattern != null) {
+                boolean matches = false;
+                if (regexTimeout.get() == null) {
+                    try {
+                        matches = matchesRegex(logEntry, finalPattern, searchRequests, searchResponses);
+                    } catch (RegexTimeoutException e) {
+                        regexTimeout.compareAndSet(null, e.getMessage());
                     }
+                }
+                return negative != matches;
+            }
+
+            if (finalLiteralFilter != null) {
+                boolean matches = matchesLiteral(logEntry, finalLiteralFilter, caseSensitive,
+                        searchRequests, searchResponses);
+                return negative != matches;
+            }
 
-                    return true;
+            return finalQuery == null || !negative;
+        };
+    }
+
+    /**
+     * Evaluates the predicate over a snapshot of all entries in chunks, publishing progress.
+     * The calling thread and up to FILTER_THREADS - 1 helpers on the filter executor claim chunks
+     * until none are left, so the caller only waits for chunks that are being evaluated.
+     * Returns null if a newer filter was applied or the extension is unloading.
+     */
+    private VisibleRowSet computeVisibleRows(Predicate<HttpLogEntry> predicate, int version) {
+        List<HttpLogEntry> snapshot = new ArrayList<>(context.getLogEntries());
+        int total = snapshot.size();
+        int chunkSize = Constants.FILTER_CHUNK_SIZE;
+        int chunkCount = (total + chunkSize - 1) / chunkSize;
+        int[][] chunkMatches = new int[chunkCount][];
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger nextChunk = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(chunkCount);
+
+        Runnable worker = () -> {
+            for (int chunk = nextChunk.getAndIncrement(); chunk < chunkCount; chunk = nextChunk.getAndIncrement()) {
+                try {
+                    evaluateChunk(snapshot, chunk, predicate, version, chunkMatches, processed);
+                } finally {
+                    finished.countDown();
                 }
+            }
+        };
+        for (int i = 1; i < Math.min(Constants.FILTER_THREADS, chunkCount); i++) {
+            filterExecutor.execute(worker);
+        }
+        worker.run();
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        if (isFilterCancelled(version)) return null;
+
+        PostingList matches = new PostingList();
+        for (int[] chunk : chunkMatches) {
+            if (chunk == null) return null;
+            for (int number : chunk) {
+                matches.add(number);
+            }
+        }
+        int lastEvaluated = total == 0 ? 0 : snapshot.get(total - 1).getNumber();
+        return new VisibleRowSet(matches, lastEvaluated, predicate);
+    }
+
+    /**
+     * Evaluates one chunk of the snapshot into chunkMatches and reports progress. Leaves the chunk
+     * null if the filter was cancelled.
+     */
+    private void evaluateChunk(List<HttpLogEntry> snapshot, int chunk, Predicate<HttpLogEntry> predicate, int version,
+                               int[][] chunkMatches, AtomicInteger processed) {
+        int total = snapshot.size();
+        int from = chunk * Constants.FILTER_CHUNK_SIZE;
+        int to = Math.min(total, from + Constants.FILTER_CHUNK_SIZE);
+        int[] matches = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (isFilterCancelled(version)) return;
+            HttpLogEntry entry = snapshot.get(i);
+            if (predicate.test(entry)) {
+                matches[count++] = entry.getNumber();
+            }
+        }
+        chunkMatches[chunk] = Arrays.copyOf(matches, count);
+
+        int done = processed.addAndGet(to - from);
+        SwingUtilities.invokeLater(() -> {
+            if (context.getFilterVersion().get() != version) return;
+            int percent = (int) (done * 100L / total);
+            JProgressBar progress = context.getTableFilterProgress();
+            if (percent > progress.getValue()) {
+                progress.setValue(percent);
+                progress.setString(percent + "%");
+            }
+        });
+    }
+
+    /**
+     * Returns a fixed pool of daemon threads with the given name, for background work that must not
+     * run on Burp's shared pools or start a thread per call.
+     */
+    private static ExecutorService newExecutor(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Installs the row set in the table and remembers it, so late entries it queues get evaluated.
+     */
+    private void showVisibleRows(VisibleRowSet visibleRows) {
+        appliedVisibleRows = visibleRows;
+        tablePanel.applyVisibleRows(visibleRows, this::passesDiffTypeFilter);
+    }
+
+    /**
+     * Evaluates the entries the installed row set queued since they were captured after its
+     * filter ran. The filter runs on the row update executor, one evaluation at a time; if any
+     * entry passes, the row set is applied again on the Event Dispatch Thread, if it is still the
+     * installed one.
+     */
+    private void evaluateLateRows() {
+        VisibleRowSet visibleRows = appliedVisibleRows;
+        if (lateRowsSubmitted || visibleRows == null || !visibleRows.hasPendingLate()) return;
+
+        lateRowsSubmitted = true;
+        rowUpdateExecutor.execute(() -> {
+            boolean anyMatched = false;
+            try {
+                anyMatched = visibleRows.evaluateLate();
+            } catch (Exception e) {
+                api.logging().logToError("[DiffHunter] Error filtering new entries: " + e.getMessage());
+            }
+            boolean reapply = anyMatched;
+            SwingUtilities.invokeLater(() -> {
+                lateRowsSubmitted = false;
+                if (!reapply || context.isExtensionUnloading() || appliedVisibleRows != visibleRows) return;
+                tablePanel.applyVisibleRows(visibleRows, this::passesDiffTypeFilter);
             });
+        });
+    }
 
-            context.getTableFilterField().setBackground(context.getColorBackground());
-        } catch (Exception e) {
-            context.getTableFilterField().setBackground(Constants.COLOR_SEARCH_ERROR);
-        } finally {
-            context.setFiltering(false);
+    /** Returns true if the filter evaluation with the given version should stop. */
+    private boolean isFilterCancelled(int version) {
+        return context.isExtensionUnloading() || context.getFilterVersion().get() != version;
+    }
+
+    /** Hides the table filter progress bar. */
+    private void hideFilterProgress() {
+        JProgressBar progress = context.getTableFilterProgress();
+        if (progress != null && progress.isVisible()) {
+            progress.setVisible(false);
+            progress.getParent().revalidate();
         }
     }
 
     /**
      * Checks if a log entry matches a regex pattern.
+     *
+     * @throws RegexTimeoutException if a match exceeds its budget
      */
-    private boolean matchesRegex(HttpLogEntry logEntry, Pattern pattern) {
-        if (context.isFilterRequests() && context.isFilterResponses()) {
-            return pattern.matcher(logEntry.getRequestStr()).find() ||
-                   pattern.matcher(logEntry.getResponseStr()).find();
-        } else if (context.isFilterRequests()) {
-            return pattern.matcher(logEntry.getRequestStr()).find();
-        } else if (context.isFilterResponses()) {
-            return pattern.matcher(logEntry.getResponseStr()).find();
+    private boolean matchesRegex(HttpLogEntry logEntry, Pattern pattern,
+                                 boolean searchRequests, boolean searchResponses) {
+        if (searchRequests && searchResponses) {
+            return GuardedRegex.find(pattern, logEntry.getRequestStr()) ||
+                   GuardedRegex.find(pattern, logEntry.getResponseStr());
+        } else if (searchRequests) {
+            return GuardedRegex.find(pattern, logEntry.getRequestStr());
+        } else if (searchResponses) {
+            return GuardedRegex.find(pattern, logEntry.getResponseStr());
         }
         return true;
     }
@@ -311,21 +589,34 @@ public class DiffHunter implements BurpExtension {
     /**
      * Checks if a log entry contains a literal string using String.contains().
      */
-    private boolean matchesLiteral(HttpLogEntry logEntry, String filter, boolean caseSensitive) {
-        if (context.isFilterRequests() && context.isFilterResponses()) {
+    private boolean matchesLiteral(HttpLogEntry logEntry, String filter, boolean caseSensitive,
+                                   boolean searchRequests, boolean searchResponses) {
+        if (searchRequests && searchResponses) {
             return containsLiteral(logEntry.getRequestStr(), filter, caseSensitive) ||
                    containsLiteral(logEntry.getResponseStr(), filter, caseSensitive);
-        } else if (context.isFilterRequests()) {
+        } else if (searchRequests) {
             return containsLiteral(logEntry.getRequestStr(), filter, caseSensitive);
-        } else if (context.isFilterResponses()) {
+        } else if (searchResponses) {
             return containsLiteral(logEntry.getResponseStr(), filter, caseSensitive);
         }
         return true;
     }
 
-    /** Checks if text contains the filter string, with optional case sensitivity. */
+    /**
+     * Checks if text contains the filter string, with optional case sensitivity.
+     * Case-insensitive matching compares regions in place instead of lowercasing the whole text.
+     */
     private boolean containsLiteral(String text, String filter, boolean caseSensitive) {
-        return caseSensitive ? text.contains(filter) : text.toLowerCase().contains(filter);
+        if (caseSensitive) {
+            return text.contains(filter);
+        }
+        int last = text.length() - filter.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, filter, 0, filter.length())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -425,6 +716,18 @@ public class DiffHunter implements BurpExtension {
         }
     }
 
+    /**
+     * Refreshes the exclusions panel if a regex exceeded its budget since the last check,
+     * so rules disabled by a background diff show their reason.
+     */
+    private void refreshAfterRegexTimeouts() {
+        long timeouts = GuardedRegex.getTimeoutCount();
+        if (timeouts != reportedRegexTimeouts) {
+            reportedRegexTimeouts = timeouts;
+            refreshExclusionsPanel();
+        }
+    }
+
     /**
      * Updates the host and endpoint combo boxes when targets change.
      */
@@ -534,17 +837,18 @@ public class DiffHunter implements BurpExtension {
             rootComponent.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
         }
 
-        String targetRequestText = getRequestText(context.getCurrentTargetEntry());
-        String targetResponseText = getResponseText(context.getCurrentTargetEntry());
-
-        DiffCalculator calculator = context.getDiffCalculator();
+        HttpLogEntry targetEntry = context.getCurrentTargetEntry();
+        HttpLogEntry selectedEntry = context.getCurrentSelectedEntry();
+        String targetRequestText = getRequestText(targetEntry);
+        String targetResponseText = getResponseText(targetEntry);
+        TargetExclusions exclusions = context.getCurrentTargetExclusions();
 
         List<DiffSegment> reqDiffsForTables = new ArrayList<>();
         List<DiffSegment> respDiffsForTables = new ArrayList<>();
 
         Thread requestThread = new Thread(() -> {
             try {
-                reqDiffsForTables.addAll(calculator.findDifferences(targetRequestText, selectedRequestText, false));
+                reqDiffsForTables.addAll(findRequestDifferences(targetEntry, selectedEntry, targetRequestText, selectedRequestText, false, exclusions));
             } catch (Exception e) {
                 api.logging().logToError("[DiffHunter] Error calculating request diffs: " + e.getMessage());
             }
@@ -552,7 +856,7 @@ public class DiffHunter implements BurpExtension {
 
         Thread responseThread = new Thread(() -> {
             try {
-                respDiffsForTables.addAll(calculator.findDifferences(targetResponseText, selectedResponseText, false));
+                respDiffsForTables.addAll(findResponseDifferences(targetEntry, selectedEntry, targetResponseText, selectedResponseText, false, exclusions));
             } catch (Exception e) {
                 api.logging().logToError("[DiffHunter] Error calculating response diffs: " + e.getMessage());
             }
@@ -573,6 +877,8 @@ public class DiffHunter implements BurpExtension {
         applyHighlightingToEditorsWithTexts(selectedRequestText, selectedResponseText,
                 targetRequestText, targetResponseText);
 
+        refreshAfterRegexTimeouts();
+
         if (rootComponent != null) {
             rootComponent.setCursor(Cursor.getDefaultCursor());
         }
@@ -580,7 +886,8 @@ public class DiffHunter implements BurpExtension {
 
     /**
      * Populates the diff tables with separated Selected and Target differences.
-     * Filters out diffs that match enabled exclusion rules.
+     * Text diffs are computed on masked texts, so excluded values never show up here; in Hexdump
+     * mode, which cannot be masked, diffs that match enabled exclusion rules are filtered out.
      */
     private void populateDiffTables(List<DiffSegment> reqDiffs, List<DiffSegment> respDiffs) {
         int reqSelectedIdx = 0;
@@ -588,7 +895,7 @@ public class DiffHunter implements BurpExtension {
         int respSelectedIdx = 0;
         int respTargetIdx = 0;
 
-        TargetExclusions exclusions = context.getCurrentTargetExclusions();
+        TargetExclusions exclusions = context.isHexMode() ? context.getCurrentTargetExclusions() : null;
 
         for (DiffSegment diff : reqDiffs) {
             if (exclusions != null && exclusions.matchesRequestExclusion(diff.getContent())) {
@@ -667,18 +974,23 @@ public class DiffHunter implements BurpExtension {
      * Applies highlighting to editors with the provided texts.
      * In Line Diff mode, uses stored line-level diffs with selection map.
      * In Character Diff mode, calculates character-level diffs for more detailed highlighting.
+     * Hexdump mode always uses the stored diffs, which are already byte-level.
      */
     private void applyHighlightingToEditorsWithTexts(String selectedRequestText, String selectedResponseText,
                                                       String targetRequestText, String targetResponseText) {
         DiffHighlighter highlighter = context.getDiffHighlighter();
 
         boolean isDark = context.isDarkTheme();
-        boolean charLevelDiff = context.isCharacterLevelDiff();
+        boolean charLevelDiff = context.isCharacterLevelDiff() && !context.isHexMode();
 
         if (charLevelDiff) {
-            DiffCalculator calculator = context.getDiffCalculator();
-            List<DiffSegment> reqDiffs = calculator.findDifferences(targetRequestText, selectedRequestText, true);
-            List<DiffSegment> respDiffs = calculator.findDifferences(targetResponseText, selectedResponseText, true);
+            HttpLogEntry targetEntry = context.getCurrentTargetEntry();
+            HttpLogEntry selectedEntry = context.getCurrentSelectedEntry();
+            TargetExclusions exclusions = context.getCurrentTargetExclusions();
+            List<DiffSegment> reqDiffs = findRequestDifferences(targetEntry, selectedEntry,
+                    targetRequestText, selectedRequestText, true, exclusions);
+            List<DiffSegment> respDiffs = findResponseDifferences(targetEntry, selectedEntry,
+                    targetResponseText, selectedResponseText, true, exclusions);
 
             Map<Integer, Integer> reqSelectedIndexMap = buildParentIndexMap(context.getRequestSelectedDiffs());
             Map<Integer, Integer> reqTargetIndexMap = buildParentIndexMap(context.getRequestTargetDiffs());
@@ -854,30 +1166,95 @@ public class DiffHunter implements BurpExtension {
 
     /**
      * Returns the request text for an entry.
-     * Line endings are already normalized at capture time.
+     * Line endings are already normalized at capture time; Hexdump mode shows the raw bytes.
      */
     private String getRequestText(HttpLogEntry entry) {
         if (entry == null) return "";
         if (context.isHexMode()) {
-            return HexDumpConverter.toHexDump(entry.getRequestStr());
+            return HexDumpConverter.toHexDump(entry.getRequestBytes());
         }
         return entry.getRequestStr();
     }
 
     /**
      * Returns the response text for an entry.
-     * Line endings are already normalized at capture time.
+     * Line endings are already normalized at capture time; Hexdump mode shows the raw bytes.
      */
     private String getResponseText(HttpLogEntry entry) {
         if (entry == null) return "";
         if (context.isHexMode()) {
-            return HexDumpConverter.toHexDump(entry.getResponseStr());
+            return HexDumpConverter.toHexDump(entry.getResponseBytes());
         }
         return entry.getResponseStr();
     }
 
+    /**
+     * Returns the request diffs between two entries, given their display texts.
+     * Hexdump mode diffs the raw bytes instead of the hexdump text; otherwise both texts are masked
+     * with the request exclusions and the header block and the body are diffed separately, split
+     * at each entry's cached body offset.
+     */
+    private List<DiffSegment> findRequestDifferences(HttpLogEntry target, HttpLogEntry entry,
+                                                     String targetText, String entryText, boolean characterLevelDiff,
+                                                     TargetExclusions exclusions) {
+        if (context.isHexMode()) {
+            return context.getByteDiffCalculator().findDifferences(target.getRequestBytes(), entry.getRequestBytes());
+        }
+        ExclusionMatcher matcher = exclusions == null ? ExclusionMatcher.EMPTY : exclusions.getRequestMatcher();
+        ExclusionMask targetMask = ExclusionMask.mask(targetText, matcher);
+        ExclusionMask entryMask = ExclusionMask.mask(entryText, matcher);
+        List<DiffSegment> diffs = context.getStructuredDiff().findDifferences(
+                targetMask.getText(), targetMask.toMaskedBodyOffset(target.getRequestBodyOffset()),
+                entryMask.getText(), entryMask.toMaskedBodyOffset(entry.getRequestBodyOffset()), characterLevelDiff,
+                context.isJsonStructureDiff(), context.isMarkupTokenDiff(), context.isParameterDiff());
+        return ExclusionMask.unmask(diffs, targetMask, entryMask);
+    }
+
+    /**
+     * Returns the response diffs between two entries, given their display texts.
+     * Hexdump mode diffs the raw bytes instead of the hexdump text; otherwise both texts are masked
+     * with the response exclusions and the header block and the body are diffed separately, split
+     * at each entry's cached body offset.
+     * Bodies with a binary policy are compared by hash, except that Hexdump mode byte-diffs
+     * BYTE_DIFF bodies on demand; skipped bodies are not compared.
+     */
+    private List<DiffSegment> findResponseDifferences(HttpLogEntry target, HttpLogEntry entry,
+                                                      String targetText, String entryText, boolean characterLevelDiff,
+                                                      TargetExclusions exclusions) {
+        BodyPolicy policy = ContentPolicy.combine(target.getResponsePolicy(), entry.getResponsePolicy());
+        boolean bodiesDiffer = policy != BodyPolicy.SKIP && !target.hasSameResponseBody(entry);
+
+        if (context.isHexMode()) {
+            byte[] targetBytes = target.getResponseBytes();
+            byte[] entryBytes = entry.getResponseBytes();
+            if (policy == BodyPolicy.TEXT_DIFF || policy == BodyPolicy.BYTE_DIFF) {
+                return context.getByteDiffCalculator().findDifferences(targetBytes, entryBytes);
+            }
+            return context.getByteDiffCalculator().findDifferences(targetBytes, target.getResponseHeadLength(),
+                    entryBytes, entry.getResponseHeadLength(), bodiesDiffer);
+        }
+
+        ExclusionMatcher matcher = exclusions == null ? ExclusionMatcher.EMPTY : exclusions.getResponseMatcher();
+        ExclusionMask targetMask = ExclusionMask.mask(targetText, matcher);
+        ExclusionMask entryMask = ExclusionMask.mask(entryText, matcher);
+        int targetBody = targetMask.toMaskedBodyOffset(target.getResponseBodyOffset());
+        int entryBody = entryMask.toMaskedBodyOffset(entry.getResponseBodyOffset());
+        List<DiffSegment> diffs;
+        if (policy != BodyPolicy.TEXT_DIFF) {
+            diffs = context.getStructuredDiff().findHeadDifferences(targetMask.getText(), targetBody,
+                    entryMask.getText(), entryBody, characterLevelDiff, bodiesDiffer);
+        } else {
+            diffs = context.getStructuredDiff().findDifferences(targetMask.getText(), targetBody,
+                    entryMask.getText(), entryBody, characterLevelDiff,
+                    context.isJsonStructureDiff(), context.isMarkupTokenDiff(), false);
+        }
+        return ExclusionMask.unmask(diffs, targetMask, entryMask);
+    }
+
     /**
      * Recalculates all diffs and table markings in a background thread.
+     * Table markings are reused if the target already has a complete snapshot for the current
+     * exclusion set and diff modes, such as after a display-only mode change.
      */
     private void recalculateAllInBackground() {
         if (context.isExtensionUnloading()) return;
@@ -891,6 +1268,16 @@ public class DiffHunter implements BurpExtension {
         final HttpLogEntry target = context.getCurrentTargetEntry();
         final TargetExclusions exclusions = context.getCurrentTargetExclusions();
 
+        RowClassifications.Snapshot existing = context.getRowClassifications()
+                .find(target.getNumber(), classificationKey(exclusions));
+        if (existing != null && existing.isComplete()) {
+            SwingUtilities.invokeLater(() -> {
+                calculateAndDisplayDiffs();
+                activateSnapshot(existing, currentVersion);
+            });
+            return;
+        }
+
         SwingUtilities.invokeLater(() -> context.getStatusLabel().setText("Highlighting differences..."));
 
         new Thread(() -> {
@@ -898,25 +1285,10 @@ public class DiffHunter implements BurpExtension {
                 if (context.isExtensionUnloading()) return;
                 SwingUtilities.invokeLater(this::calculateAndDisplayDiffs);
 
-                Map<HttpLogEntry, RowDiffType> results = new HashMap<>();
-                DiffCalculator calculator = context.getDiffCalculator();
-
-                for (HttpLogEntry entry : context.getLogEntries()) {
-                    if (context.isExtensionUnloading() || context.getHighlightingVersion().get() != currentVersion) return;
-                    results.put(entry, getDiffTypeWithExclusions(calculator, target, entry, exclusions));
-                }
+                RowClassifications.Snapshot snapshot = classifyAll(target, exclusions, currentVersion);
+                if (snapshot == null) return;
 
-                if (context.isExtensionUnloading() || context.getHighlightingVersion().get() != currentVersion) return;
-
-                SwingUtilities.invokeLater(() -> {
-                    if (!context.isExtensionUnloading() && context.getHighlightingVersion().get() == currentVersion) {
-                        for (Map.Entry<HttpLogEntry, RowDiffType> e : results.entrySet()) {
-                            e.getKey().setRowDiffType(e.getValue());
-                        }
-                        context.getStatusLabel().setText("");
-                        context.getRequestTable().repaint();
-                    }
-                });
+                SwingUtilities.invokeLater(() -> activateSnapshot(snapshot, currentVersion));
             } catch (Exception e) {
                 api.logging().logToError("[DiffHunter] Error in background highlighting: " + e.getMessage());
                 SwingUtilities.invokeLater(() -> context.getStatusLabel().setText(""));
@@ -926,6 +1298,8 @@ public class DiffHunter implements BurpExtension {
 
     /**
      * Marks table rows as different based on comparison with target entry.
+     * If the target has a complete snapshot for the current settings it is activated at once;
+     * otherwise the log is classified in the background.
      */
     private void markTableDifferences() {
         if (context.isExtensionUnloading()) return;
@@ -938,30 +1312,22 @@ public class DiffHunter implements BurpExtension {
         final HttpLogEntry target = context.getCurrentTargetEntry();
         final TargetExclusions exclusions = context.getCurrentTargetExclusions();
 
+        RowClassifications.Snapshot existing = context.getRowClassifications()
+                .find(target.getNumber(), classificationKey(exclusions));
+        if (existing != null && existing.isComplete()) {
+            activateSnapshot(existing, currentVersion);
+            return;
+        }
+
         SwingUtilities.invokeLater(() -> context.getStatusLabel().setText("Highlighting differences..."));
 
         new Thread(() -> {
             try {
                 if (context.isExtensionUnloading()) return;
-                Map<HttpLogEntry, RowDiffType> results = new HashMap<>();
-                DiffCalculator calculator = context.getDiffCalculator();
-
-                for (HttpLogEntry entry : context.getLogEntries()) {
-                    if (context.isExtensionUnloading() || context.getHighlightingVersion().get() != currentVersion) return;
-                    results.put(entry, getDiffTypeWithExclusions(calculator, target, entry, exclusions));
-                }
-
-                if (context.isExtensionUnloading() || context.getHighlightingVersion().get() != currentVersion) return;
+                RowClassifications.Snapshot snapshot = classifyAll(target, exclusions, currentVersion);
+                if (snapshot == null) return;
 
-                SwingUtilities.invokeLater(() -> {
-                    if (!context.isExtensionUnloading() && context.getHighlightingVersion().get() == currentVersion) {
-                        for (Map.Entry<HttpLogEntry, RowDiffType> e : results.entrySet()) {
-                            e.getKey().setRowDiffType(e.getValue());
-                        }
-                        context.getStatusLabel().setText("");
-                        context.getRequestTable().repaint();
-                    }
-                });
+                SwingUtilities.invokeLater(() -> activateSnapshot(snapshot, currentVersion));
             } catch (Exception e) {
                 api.logging().logToError("[DiffHunter] Error in background table marking: " + e.getMessage());
                 SwingUtilities.invokeLater(() -> context.getStatusLabel().setText(""));
@@ -969,9 +1335,57 @@ public class DiffHunter implements BurpExtension {
         }).start();
     }
 
+    /**
+     * Classifies every entry against the target into a new snapshot for the current settings and
+     * marks it complete. Returns null if a newer highlighting started or the extension is unloading.
+     */
+    private RowClassifications.Snapshot classifyAll(HttpLogEntry target, TargetExclusions exclusions, int version) {
+        RowClassifications.Snapshot snapshot = context.getRowClassifications()
+                .create(target.getNumber(), classificationKey(exclusions));
+        DiffCalculator calculator = context.getDiffCalculator();
+
+        for (HttpLogEntry entry : context.getLogEntries()) {
+            if (context.isExtensionUnloading() || context.getHighlightingVersion().get() != version) return null;
+            snapshot.set(entry.getNumber(), getDiffTypeWithExclusions(calculator, target, entry, exclusions));
+        }
+
+        if (context.isExtensionUnloading() || context.getHighlightingVersion().get() != version) return null;
+        snapshot.markComplete();
+        return snapshot;
+    }
+
+    /**
+     * Colors the table from the snapshot, unless a newer highlighting started. Runs on the EDT.
+     */
+    private void activateSnapshot(RowClassifications.Snapshot snapshot, int version) {
+        if (context.isExtensionUnloading() || context.getHighlightingVersion().get() != version) return;
+        context.getRowClassifications().activate(snapshot);
+        lastFilterKey = null;
+        context.getStatusLabel().setText("");
+        context.getRequestTable().repaint();
+        refreshAfterRegexTimeouts();
+        classifyQueuedRows();
+    }
+
+    /**
+     * Returns the settings key row classifications are valid under: the version of the target's
+     * exclusion set and the diff modes that change what counts as a difference.
+     */
+    private long classificationKey(TargetExclusions exclusions) {
+        long modes = (context.isHexMode() ? 8 : 0) | (context.isJsonStructureDiff() ? 4 : 0)
+                | (context.isMarkupTokenDiff() ? 2 : 0) | (context.isParameterDiff() ? 1 : 0);
+        return (exclusions == null ? 0 : exclusions.getVersion()) << 4 | modes;
+    }
+
     /**
      * Calculates the diff type between target and entry, considering exclusions.
-     * If all diffs are excluded, returns NONE.
+     * Excluded values are masked before diffing, so messages that differ only in them return NONE.
+     * With a structure-aware body engine enabled, messages whose bodies differ only in formatting,
+     * key order or attribute order also count as equal.
+     * In plain text mode the entry's diff summaries are checked against the rules instead, so after
+     * a rule change only the changed lines are masked again and nothing is re-diffed.
+     * Without rules, the raw text comparison only decides equality: text that differs is classified
+     * from the header-aware diff, as shown in the diff panel, so reordered headers are not marked.
      */
     private RowDiffType getDiffTypeWithExclusions(DiffCalculator calculator, HttpLogEntry target,
                                                    HttpLogEntry entry, TargetExclusions exclusions) {
@@ -979,33 +1393,51 @@ public class DiffHunter implements BurpExtension {
             return RowDiffType.NONE;
         }
 
-        if (exclusions == null || (!exclusions.hasEnabledRequestExclusions() && !exclusions.hasEnabledResponseExclusions())) {
-            return calculator.getDiffType(target, entry, true, true);
+        boolean noExclusions = exclusions == null
+                || (!exclusions.hasEnabledRequestExclusions() && !exclusions.hasEnabledResponseExclusions());
+        boolean hexMode = context.isHexMode();
+        if (noExclusions && !context.isStructuredDiff()) {
+            RowDiffType rawType = calculator.getDiffType(target, entry, true, true);
+            if (rawType == RowDiffType.NONE || hexMode) return rawType;
         }
 
         boolean requestDiffers = false;
         boolean responseDiffers = false;
-
-        String targetRequest = getRequestText(target);
-        String entryRequest = getRequestText(entry);
-        if (!targetRequest.equals(entryRequest)) {
-            List<DiffSegment> reqDiffs = calculator.findDifferences(targetRequest, entryRequest, false);
-            for (DiffSegment diff : reqDiffs) {
-                if (!exclusions.matchesRequestExclusion(diff.getContent())) {
-                    requestDiffers = true;
-                    break;
+        boolean filterSegments = hexMode && !noExclusions;
+
+        if (!hexMode && !context.isStructuredDiff()) {
+            ExclusionMatcher requestMatcher = exclusions == null ? ExclusionMatcher.EMPTY : exclusions.getRequestMatcher();
+            ExclusionMatcher responseMatcher = exclusions == null ? ExclusionMatcher.EMPTY : exclusions.getResponseMatcher();
+            requestDiffers = getRequestSummary(target, entry).differs(getRequestText(target),
+                    () -> getRequestText(entry), requestMatcher);
+            responseDiffers = getResponseSummary(target, entry).differs(getResponseText(target),
+                    () -> getResponseText(entry), responseMatcher);
+        } else {
+            if (!target.hasSameRequest(entry)) {
+                String targetRequest = hexMode ? null : getRequestText(target);
+                String entryRequest = hexMode ? null : getRequestText(entry);
+                if (hexMode || !targetRequest.equals(entryRequest)) {
+                    List<DiffSegment> reqDiffs = findRequestDifferences(target, entry, targetRequest, entryRequest, false, exclusions);
+                    for (DiffSegment diff : reqDiffs) {
+                        if (!filterSegments || !exclusions.matchesRequestExclusion(diff.getContent())) {
+                            requestDiffers = true;
+                            break;
+                        }
+                    }
                 }
             }
-        }
 
-        String targetResponse = getResponseText(target);
-        String entryResponse = getResponseText(entry);
-        if (!targetResponse.equals(entryResponse)) {
-            List<DiffSegment> respDiffs = calculator.findDifferences(targetResponse, entryResponse, false);
-            for (DiffSegment diff : respDiffs) {
-                if (!exclusions.matchesResponseExclusion(diff.getContent())) {
-                    responseDiffers = true;
-                    break;
+            if (!target.hasSameResponse(entry)) {
+                String targetResponse = hexMode ? null : getResponseText(target);
+                String entryResponse = hexMode ? null : getResponseText(entry);
+                if (hexMode || !targetResponse.equals(entryResponse)) {
+                    List<DiffSegment> respDiffs = findResponseDifferences(target, entry, targetResponse, entryResponse, false, exclusions);
+                    for (DiffSegment diff : respDiffs) {
+                        if (!filterSegments || !exclusions.matchesResponseExclusion(diff.getContent())) {
+                            responseDiffers = true;
+                            break;
+                        }
+                    }
                 }
             }
         }
@@ -1020,14 +1452,79 @@ public class DiffHunter implements BurpExtension {
         return RowDiffType.NONE;
     }
 
+    /**
+     * Returns the entry's request diff summary against the target, building it if the entry has none
+     * for this target. Only summaries against the current target are stored, so that classifying
+     * against another target does not replace them.
+     */
+    private DiffSummary getRequestSummary(HttpLogEntry target, HttpLogEntry entry) {
+        DiffSummary summary = entry.getRequestSummary();
+        if (summary != null && summary.getTargetNumber() == target.getNumber()) return summary;
+
+        if (target.hasSameRequest(entry)) {
+            summary = DiffSummary.equal(target.getNumber());
+        } else {
+            String targetRequest = getRequestText(target);
+            String entryRequest = getRequestText(entry);
+            List<DiffSegment> diffs = targetRequest.equals(entryRequest) ? List.of()
+                    : findRequestDifferences(target, entry, targetRequest, entryRequest, false, null);
+            summary = DiffSummary.build(target.getNumber(), diffs, targetRequest, target.getRequestBodyOffset(),
+                    entryRequest, entry.getRequestBodyOffset());
+        }
+        if (target == context.getCurrentTargetEntry()) entry.setRequestSummary(summary);
+        return summary;
+    }
+
+    /**
+     * Returns the entry's response diff summary against the target, building it if the entry has
+     * none for this target, and storing it only for the current target. Changed bodies with a binary
+     * policy differ under any rules.
+     */
+    private DiffSummary getResponseSummary(HttpLogEntry target, HttpLogEntry entry) {
+        DiffSummary summary = entry.getResponseSummary();
+        if (summary != null && summary.getTargetNumber() == target.getNumber()) return summary;
+
+        BodyPolicy policy = ContentPolicy.combine(target.getResponsePolicy(), entry.getResponsePolicy());
+        if (target.hasSameResponse(entry)) {
+            summary = DiffSummary.equal(target.getNumber());
+        } else if (policy != BodyPolicy.TEXT_DIFF && policy != BodyPolicy.SKIP && !target.hasSameResponseBody(entry)) {
+            summary = DiffSummary.different(target.getNumber());
+        } else {
+            String targetResponse = getResponseText(target);
+            String entryResponse = getResponseText(entry);
+            List<DiffSegment> diffs = targetResponse.equals(entryResponse) ? List.of()
+                    : findResponseDifferences(target, entry, targetResponse, entryResponse, false, null);
+            summary = DiffSummary.build(target.getNumber(), diffs, targetResponse, target.getResponseBodyOffset(),
+                    entryResponse, entry.getResponseBodyOffset());
+        }
+        if (target == context.getCurrentTargetEntry()) entry.setResponseSummary(summary);
+        return summary;
+    }
+
+    /**
+     * Drops the diff summaries of all entries and returns the estimated number of bytes released.
+     * They are rebuilt with a diff the next time an entry is classified.
+     */
+    private long releaseDiffSummaries() {
+        long released = 0;
+        for (HttpLogEntry entry : new ArrayList<>(context.getLogEntries())) {
+            DiffSummary request = entry.getRequestSummary();
+            DiffSummary response = entry.getResponseSummary();
+            if (request != null) released += request.getEstimatedBytes();
+            if (response != null) released += response.getEstimatedBytes();
+            entry.setRequestSummary(null);
+            entry.setResponseSummary(null);
+        }
+        return released;
+    }
+
     /**
      * Clears all difference marks from table rows.
      */
     private void clearAllDifferenceMarks() {
-        for (HttpLogEntry entry : context.getLogEntries()) {
-            entry.setRowDiffType(RowDiffType.NONE);
-        }
+        context.getRowClassifications().activate(null);
         SwingUtilities.invokeLater(() -> {
+            lastFilterKey = null;
             context.getStatusLabel().setText("");
             context.getRequestTable().repaint();
         });
@@ -1035,8 +1532,17 @@ public class DiffHunter implements BurpExtension {
 
     /**
      * Processes pending HTTP entries and adds them to the table.
+     * In log size limit mode the limit is enforced on every call, so a lowered limit applies
+     * without waiting for the next capture.
      */
     private void processPendingEntries() {
+        if (context.isMemoryBudgetMode()) {
+            try {
+                enforceMemoryBudget();
+            } catch (Exception e) {
+                api.logging().logToError("[DiffHunter] Error enforcing log size limit: " + e.getMessage());
+            }
+        }
         if (context.getPendingEntries().isEmpty()) return;
 
         List<HttpLogEntry> toProcess;
@@ -1045,16 +1551,19 @@ public class DiffHunter implements BurpExtension {
             context.getPendingEntries().clear();
         }
 
-        int excess = context.getLogEntries().size() + toProcess.size() - context.getMaxLogEntries();
-        if (excess > 0) {
-            try {
-                removeOldestEntries(excess);
-            } catch (Exception e) {
-                api.logging().logToError("[DiffHunter] Error removing old entries: " + e.getMessage());
+        if (!context.isMemoryBudgetMode()) {
+            int excess = context.getLogEntries().size() + toProcess.size() - context.getMaxLogEntries();
+            if (excess > 0) {
+                try {
+                    removeOldestEntries(excess);
+                } catch (Exception e) {
+                    api.logging().logToError("[DiffHunter] Error removing old entries: " + e.getMessage());
+                }
             }
         }
 
         for (HttpLogEntry entry : toProcess) {
+            if (!context.getLogEntriesMap().containsKey(entry.getNumber())) continue;
             try {
                 addEntryToTable(entry);
             } catch (Exception e) {
@@ -1063,6 +1572,24 @@ public class DiffHunter implements BurpExtension {
         }
     }
 
+    /**
+     * Shows the estimated log size and its heap part in the status panel, against the budget in
+     * log size limit mode.
+     */
+    private void updateMemoryUsageLabel() {
+        JLabel label = context.getMemoryUsageLabel();
+        if (label == null) return;
+
+        double heapMb = context.getHeapUsageBytes() / 1048576.0;
+        double usedMb = context.getBlobStore().getSegmentStore().getLiveBytes() / 1048576.0 + heapMb;
+        String text = context.isMemoryBudgetMode()
+                ? String.format("Log: %.1f / %d MB (heap %.1f MB)", usedMb, context.getMemoryBudgetMb(), heapMb)
+                : String.format("Log: %.1f MB (heap %.1f MB)", usedMb, heapMb);
+        if (!text.equals(label.getText())) {
+            label.setText(text);
+        }
+    }
+
     /**
      * Removes the oldest non-marked entries to stay within the log limit.
      */
@@ -1070,47 +1597,186 @@ public class DiffHunter implements BurpExtension {
         List<HttpLogEntry> toRemove = new ArrayList<>();
         for (HttpLogEntry entry : context.getLogEntries()) {
             if (toRemove.size() >= count) break;
-
-            if (entry.isMarked()) {
-                continue;
+            if (isEvictable(entry)) {
+                toRemove.add(entry);
             }
+        }
+        removeEntries(toRemove);
+    }
 
-            HttpLogEntry selected = context.getCurrentSelectedEntry();
-            if (selected != null && entry.getNumber() == selected.getNumber()) {
-                continue;
+    /**
+     * Returns true if the entry may be evicted: it is neither a marked target nor the current selection.
+     */
+    private boolean isEvictable(HttpLogEntry entry) {
+        if (entry.isMarked()) {
+            return false;
+        }
+        HttpLogEntry selected = context.getCurrentSelectedEntry();
+        return selected == null || entry.getNumber() != selected.getNumber();
+    }
+
+    /**
+     * Evicts entries according to the eviction policy until the log fits in the log size limit.
+     * Shared and delta-encoded blobs may free less than an entry's weight, so usage is re-measured
+     * after each round.
+     */
+    private void enforceMemoryBudget() {
+        long budget = context.getMemoryBudgetMb() * 1024L * 1024L;
+        for (int round = 0; round < 4; round++) {
+            long overshoot = context.getLogSizeBytes() - budget;
+            if (overshoot <= 0) return;
+
+            List<HttpLogEntry> toRemove = switch (context.getEvictionPolicy()) {
+                case OLDEST -> selectOldestByWeight(overshoot);
+                case LARGEST -> selectLargestByWeight(overshoot);
+                case PER_HOST -> selectByHostQuota(overshoot);
+            };
+            if (toRemove.isEmpty()) return;
+            removeEntries(toRemove);
+        }
+    }
+
+    /**
+     * Selects the oldest evictable entries whose combined weight covers the overshoot.
+     */
+    private List<HttpLogEntry> selectOldestByWeight(long overshoot) {
+        List<HttpLogEntry> selected = new ArrayList<>();
+        long freed = 0;
+        for (HttpLogEntry entry : context.getLogEntries()) {
+            if (freed >= overshoot) break;
+            if (!isEvictable(entry)) continue;
+            selected.add(entry);
+            freed += context.getEntryWeight(entry);
+        }
+        return selected;
+    }
+
+    /**
+     * Selects the largest evictable entries whose combined weight covers the overshoot.
+     */
+    private List<HttpLogEntry> selectLargestByWeight(long overshoot) {
+        List<HttpLogEntry> candidates = new ArrayList<>();
+        for (HttpLogEntry entry : context.getLogEntries()) {
+            if (isEvictable(entry)) candidates.add(entry);
+        }
+        candidates.sort(Comparator.comparingLong((HttpLogEntry e) -> context.getEntryWeight(e)).reversed());
+
+        List<HttpLogEntry> selected = new ArrayList<>();
+        long freed = 0;
+        for (HttpLogEntry entry : candidates) {
+            if (freed >= overshoot) break;
+            selected.add(entry);
+            freed += context.getEntryWeight(entry);
+        }
+        return selected;
+    }
+
+    /**
+     * Selects entries so that every host gets an equal share of the budget:
+     * repeatedly evicts the oldest evictable entry of the host using the most memory.
+     */
+    private List<HttpLogEntry> selectByHostQuota(long overshoot) {
+        Map<String, Deque<HttpLogEntry>> evictableByHost = new HashMap<>();
+        Map<String, Long> weightByHost = new HashMap<>();
+        for (HttpLogEntry entry : context.getLogEntries()) {
+            weightByHost.merge(entry.getHost(), context.getEntryWeight(entry), Long::sum);
+            if (isEvictable(entry)) {
+                evictableByHost.computeIfAbsent(entry.getHost(), h -> new ArrayDeque<>()).add(entry);
             }
+        }
 
-            toRemove.add(entry);
+        PriorityQueue<String> hosts = new PriorityQueue<>(
+                Comparator.comparingLong((String h) -> weightByHost.get(h)).reversed());
+        hosts.addAll(evictableByHost.keySet());
+
+        List<HttpLogEntry> selected = new ArrayList<>();
+        long freed = 0;
+        while (freed < overshoot && !hosts.isEmpty()) {
+            String host = hosts.poll();
+            Deque<HttpLogEntry> entries = evictableByHost.get(host);
+            HttpLogEntry entry = entries.poll();
+            long weight = context.getEntryWeight(entry);
+            selected.add(entry);
+            freed += weight;
+            weightByHost.merge(host, -weight, Long::sum);
+            if (!entries.isEmpty()) {
+                hosts.add(host);
+            }
         }
+        return selected;
+    }
 
-        for (HttpLogEntry entry : toRemove) {
-            try {
-                synchronized (context.getWriteLock()) {
-                    context.getLogEntries().remove(entry);
+    /**
+     * Removes the given entries from the log, the indexes, the store and the table.
+     * The log lists are rewritten once and the table rows are found through a map from entry
+     * number to row, then deleted in contiguous runs from the bottom up.
+     */
+    private void removeEntries(List<HttpLogEntry> toRemove) {
+        if (toRemove.isEmpty()) return;
+        Set<HttpLogEntry> removed = new HashSet<>(toRemove);
+        try {
+            synchronized (context.getWriteLock()) {
+                context.getLogEntries().removeAll(removed);
+                context.getPendingEntries().removeAll(removed);
+                for (HttpLogEntry entry : toRemove) {
                     context.getLogEntriesMap().remove(entry.getNumber());
-                    context.getPendingEntries().remove(entry);
                 }
+            }
+        } catch (Exception e) {
+            api.logging().logToError("[DiffHunter] Error removing entries: " + e.getMessage());
+        }
 
-                for (int row = 0; row < context.getTableModel().getRowCount(); row++) {
-                    if (entry.getNumber() == (Integer) context.getTableModel().getValueAt(row, 0)) {
-                        context.getTableModel().removeRow(row);
-                        break;
-                    }
-                }
+        for (HttpLogEntry entry : toRemove) {
+            try {
+                context.getTrigramIndex().remove(entry.getNumber(), entry.getIndexedTrigrams());
+                context.getTextCache().invalidate(entry.getNumber());
+                entry.release();
             } catch (Exception e) {
                 api.logging().logToError("[DiffHunter] Error removing entry: " + e.getMessage());
             }
         }
+
+        removeTableRows(toRemove);
+    }
+
+    /**
+     * Removes the rows of the given entries from the table model, firing one delete event per
+     * contiguous run of rows.
+     */
+    private void removeTableRows(List<HttpLogEntry> entries) {
+        DefaultTableModel model = context.getTableModel();
+        Map<Integer, Integer> rowByNumber = new HashMap<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            rowByNumber.put((Integer) model.getValueAt(row, 0), row);
+        }
+
+        int[] rows = new int[entries.size()];
+        int count = 0;
+        for (HttpLogEntry entry : entries) {
+            Integer row = rowByNumber.get(entry.getNumber());
+            if (row != null) rows[count++] = row;
+        }
+        Arrays.sort(rows, 0, count);
+
+        Vector<?> data = model.getDataVector();
+        int last = count - 1;
+        while (last >= 0) {
+            int first = last;
+            while (first > 0 && rows[first - 1] == rows[first] - 1) first--;
+            data.subList(rows[first], rows[last] + 1).clear();
+            model.fireTableRowsDeleted(rows[first], rows[last]);
+            last = first - 1;
+        }
     }
 
     /**
-     * Adds an HTTP log entry to the table with difference marking.
+     * Adds an HTTP log entry to the table and queues it on every target's snapshot.
+     * The entry is not diffed here: classifyQueuedRows classifies it against the current target in
+     * the background, and other targets classify it when they are selected.
      */
     private void addEntryToTable(HttpLogEntry entry) {
-        if (context.getCurrentTargetEntry() != null) {
-            TargetExclusions exclusions = context.getCurrentTargetExclusions();
-            entry.setRowDiffType(getDiffTypeWithExclusions(
-                    context.getDiffCalculator(), context.getCurrentTargetEntry(), entry, exclusions));
+        for (RowClassifications.Snapshot snapshot : context.getRowClassifications().getSnapshots()) {
+            snapshot.queue(entry.getNumber());
         }
 
         Object[] row = {
@@ -1130,19 +1796,96 @@ public class DiffHunter implements BurpExtension {
         context.getTableModel().addRow(row);
     }
 
+    /**
+     * Classifies the entries queued on the active snapshot since it was created. The work runs on
+     * the row update executor, one classification at a time. The rows are then repainted, and
+     * filtered again if a diff type is hidden, on the Event Dispatch Thread if the snapshot is still
+     * active. If the current target changes, the entries not classified yet are queued again.
+     */
+    private void classifyQueuedRows() {
+        RowClassifications.Snapshot snapshot = context.getRowClassifications().getActive();
+        HttpLogEntry target = context.getCurrentTargetEntry();
+        if (queuedRowsSubmitted || snapshot == null || target == null
+                || snapshot.getTargetNumber() != target.getNumber() || !snapshot.hasQueued()) {
+            return;
+        }
+        TargetExclusions exclusions = context.getCurrentTargetExclusions();
+        if (classificationKey(exclusions) != snapshot.getKey()) return;
+
+        queuedRowsSubmitted = true;
+        rowUpdateExecutor.execute(() -> {
+            boolean classified = false;
+            try {
+                classified = classifyQueued(snapshot, target, exclusions);
+            } catch (Exception e) {
+                api.logging().logToError("[DiffHunter] Error classifying new entries: " + e.getMessage());
+            }
+            boolean refresh = classified;
+            SwingUtilities.invokeLater(() -> {
+                queuedRowsSubmitted = false;
+                if (!refresh || context.isExtensionUnloading()
+                        || context.getRowClassifications().getActive() != snapshot) {
+                    return;
+                }
+                if (context.isShowNoDiff() && context.isShowRequestDiff() && context.isShowResponseDiff()
+                        && context.isShowBothDiff()) {
+                    context.getRequestTable().repaint();
+                } else {
+                    showVisibleRows(appliedVisibleRows);
+                }
+                refreshAfterRegexTimeouts();
+            });
+        });
+    }
+
+    /**
+     * Takes the entries queued on the snapshot and classifies them against the target. Returns
+     * false if nothing was queued or the work stopped early; entries left when the current target
+     * changes are queued again.
+     */
+    private boolean classifyQueued(RowClassifications.Snapshot snapshot, HttpLogEntry target,
+                                   TargetExclusions exclusions) {
+        int[] numbers = snapshot.takeQueued();
+        if (numbers == null) return false;
+        DiffCalculator calculator = context.getDiffCalculator();
+        for (int i = 0; i < numbers.length; i++) {
+            if (context.isExtensionUnloading()) return false;
+            if (context.getCurrentTargetEntry() != target) {
+                for (int j = i; j < numbers.length; j++) {
+                    snapshot.queue(numbers[j]);
+                }
+                return false;
+            }
+            HttpLogEntry entry = context.getLogEntriesMap().get(numbers[i]);
+            if (entry == null) continue;
+            snapshot.set(numbers[i], getDiffTypeWithExclusions(calculator, target, entry, exclusions));
+        }
+        return true;
+    }
+
     /**
      * Clears all log entries and resets the UI state.
      */
     private void clearLog() {
         synchronized (context.getWriteLock()) {
+            for (HttpLogEntry entry : context.getLogEntries()) {
+                entry.releaseSummaries();
+            }
             context.getLogEntries().clear();
             context.getLogEntriesMap().clear();
             context.getPendingEntries().clear();
             context.resetRequestCounter();
+            context.getTextCache().clear();
+            context.getBlobStore().clear();
         }
+        context.getTrigramIndex().clear();
+        context.getFilterVersion().incrementAndGet();
+        lastFilterKey = null;
+        lastVisibleRows = null;
 
         context.getTargetEntries().clear();
         context.getTargetExclusionsMap().clear();
+        context.getRowClassifications().clear();
         clearAllDiffTables();
         context.setCurrentTargetEntry(null);
         context.setCurrentSelectedEntry(null);
@@ -1168,6 +1911,11 @@ public class DiffHunter implements BurpExtension {
         ToolTipManager.sharedInstance().setInitialDelay(originalTooltipDelay);
         context.setExtensionUnloading(true);
         context.getHighlightingVersion().incrementAndGet();
+        context.getFilterVersion().incrementAndGet();
+
+        if (memoryGovernor != null) {
+            memoryGovernor.stop();
+        }
 
         if (context.getBatchUpdateTimer() != null) {
             context.getBatchUpdateTimer().stop();
@@ -1176,6 +1924,8 @@ public class DiffHunter implements BurpExtension {
         if (httpHandler != null) {
             httpHandler.cleanup();
         }
+        filterExecutor.shutdownNow();
+        rowUpdateExecutor.shutdownNow();
 
         UIManager.removePropertyChangeListener(themeChangeListener);
         context.getContextMenus().clear();
@@ -1185,7 +1935,13 @@ public class DiffHunter implements BurpExtension {
             context.getLogEntriesMap().clear();
             context.getPendingEntries().clear();
         }
+        context.getTrigramIndex().clear();
+        api.logging().logToOutput("[DiffHunter] Text cache: " + context.getTextCache().getStatsSummary());
+        context.getTextCache().clear();
+        context.getBlobStore().clear();
+        context.getBlobStore().getSegmentStore().close();
         context.getTargetEntries().clear();
+        context.getRowClassifications().clear();
         context.getRequestSelectedDiffs().clear();
         context.getRequestTargetDiffs().clear();
         context.getResponseSelectedDiffs().clear();
@@ -0,0 +1,204 @@
+package org.diffhunter.cache;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Sheds extension caches when the JVM's old generation is under pressure.
+ * Usage and collection-usage thresholds are registered on the tenured heap pool. Each usage
+ * notification sheds the next registered cache in priority order; a collection-usage notification
+ * (the pool is still full after a GC) sheds everything at once. Burp shares the JVM, so releasing
+ * caches early keeps Burp itself from GC-thrashing.
+ */
+public class MemoryGovernor {
+
+    private static final double USAGE_THRESHOLD = 0.80;
+    private static final double COLLECTION_THRESHOLD = 0.70;
+    private static final double RECOVERY_RATIO = 0.90;
+
+    /**
+     * A cache that can release memory on demand.
+     */
+    private static final class Shedder {
+        final String name;
+        final int priority;
+        final LongSupplier shed;
+
+        Shedder(String name, int priority, LongSupplier shed) {
+            this.name = name;
+            this.priority = priority;
+            this.shed = shed;
+        }
+    }
+
+    private final List<Shedder> shedders = new ArrayList<>();
+    private final Consumer<String> logger;
+    private final Consumer<String> statusReporter;
+    private final NotificationListener listener = this::handleNotification;
+    private MemoryPoolMXBean oldGenPool;
+    private boolean ownsUsageThreshold;
+    private boolean ownsCollectionThreshold;
+    private int nextShedder;
+    private volatile boolean underPressure;
+    private long releasedSinceLastRecovery;
+
+    /**
+     * Creates a governor that logs releases with the logger and reports pressure and recovery with the status reporter.
+     */
+    public MemoryGovernor(Consumer<String> logger, Consumer<String> statusReporter) {
+        this.logger = logger;
+        this.statusReporter = statusReporter;
+    }
+
+    /**
+     * Registers a cache to shed under memory pressure. Lower priorities are shed first.
+     * The supplier releases memory and returns the estimated number of bytes released.
+     */
+    public synchronized void register(String name, int priority, LongSupplier shed) {
+        shedders.add(new Shedder(name, priority, shed));
+        shedders.sort(Comparator.comparingInt(s -> s.priority));
+    }
+
+    /**
+     * Installs thresholds on the old generation pool and starts listening for notifications.
+     * Thresholds already set by someone else in the shared JVM are left unchanged and reused.
+     */
+    public synchronized void start() {
+        oldGenPool = findOldGenPool();
+        if (oldGenPool == null) {
+            logger.accept("[DiffHunter] Memory governor disabled: no old generation pool with thresholds found");
+            return;
+        }
+
+        long max = oldGenPool.getUsage().getMax();
+        if (max <= 0) {
+            max = Runtime.getRuntime().maxMemory();
+        }
+        if (oldGenPool.isUsageThresholdSupported() && oldGenPool.getUsageThreshold() == 0) {
+            oldGenPool.setUsageThreshold((long) (max * USAGE_THRESHOLD));
+            ownsUsageThreshold = true;
+        }
+        if (oldGenPool.isCollectionUsageThresholdSupported() && oldGenPool.getCollectionUsageThreshold() == 0) {
+            oldGenPool.setCollectionUsageThreshold((long) (max * COLLECTION_THRESHOLD));
+            ownsCollectionThreshold = true;
+        }
+
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(listener, null, null);
+    }
+
+    /**
+     * Removes the listener and the thresholds installed by start().
+     */
+    public synchronized void stop() {
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(listener);
+        } catch (Exception ignored) {
+        }
+        if (oldGenPool != null) {
+            if (ownsUsageThreshold) oldGenPool.setUsageThreshold(0);
+            if (ownsCollectionThreshold) oldGenPool.setCollectionUsageThreshold(0);
+        }
+        shedders.clear();
+        oldGenPool = null;
+    }
+
+    /**
+     * Reports recovery once the old generation is back under its threshold after a collection.
+     * Called periodically from the UI timer; cheap when there is no pressure.
+     */
+    public void checkRecovery() {
+        if (!underPressure) return;
+
+        long released;
+        synchronized (this) {
+            if (oldGenPool == null || !underPressure) return;
+            long threshold = oldGenPool.isCollectionUsageThresholdSupported()
+                    ? oldGenPool.getCollectionUsageThreshold()
+                    : oldGenPool.getUsageThreshold();
+            if (oldGenPool.getCollectionUsage() == null
+                    || oldGenPool.getCollectionUsage().getUsed() > threshold * RECOVERY_RATIO) {
+                return;
+            }
+            underPressure = false;
+            nextShedder = 0;
+            released = releasedSinceLastRecovery;
+            releasedSinceLastRecovery = 0;
+        }
+
+        String message = String.format("Memory recovered (%.1f MB released)", released / 1048576.0);
+        logger.accept("[DiffHunter] " + message);
+        statusReporter.accept(message);
+    }
+
+    /** Returns true if a threshold was crossed and memory has not recovered yet. */
+    public boolean isUnderPressure() { return underPressure; }
+
+    /**
+     * Handles a JMX memory notification on the notification thread.
+     */
+    private void handleNotification(Notification notification, Object handback) {
+        String type = notification.getType();
+        if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)) {
+            shed(false);
+        } else if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+            shed(true);
+        }
+    }
+
+    /**
+     * Sheds the next cache in priority order, or all remaining caches if shedAll is set.
+     */
+    private void shed(boolean shedAll) {
+        List<String> report = new ArrayList<>();
+        long releasedNow = 0;
+
+        synchronized (this) {
+            underPressure = true;
+            do {
+                if (nextShedder >= shedders.size()) break;
+                Shedder shedder = shedders.get(nextShedder++);
+                try {
+                    long released = shedder.shed.getAsLong();
+                    releasedNow += released;
+                    report.add(String.format("%s (%.1f MB)", shedder.name, released / 1048576.0));
+                } catch (Exception e) {
+                    logger.accept("[DiffHunter] Error shedding " + shedder.name + ": " + e.getMessage());
+                }
+            } while (shedAll);
+            releasedSinceLastRecovery += releasedNow;
+        }
+
+        if (report.isEmpty()) return;
+        logger.accept("[DiffHunter] Memory pressure" + (shedAll ? " after GC" : "") + ", released: "
+                + String.join(", ", report));
+        statusReporter.accept(String.format("Memory pressure: released %.1f MB", releasedNow / 1048576.0));
+    }
+
+    /**
+     * Returns the heap pool that supports usage thresholds and is collected last (the tenured generation).
+     */
+    private static MemoryPoolMXBean findOldGenPool() {
+        MemoryPoolMXBean fallback = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()) continue;
+            String name = pool.getName().toLowerCase();
+            if (name.contains("old") || name.contains("tenured")) {
+                return pool;
+            }
+            if (fallback == null || pool.getUsage().getMax() > fallback.getUsage().getMax()) {
+                fallback = pool;
+            }
+        }
+        return fallback;
+    }
+}
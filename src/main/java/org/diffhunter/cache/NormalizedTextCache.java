@@ -0,0 +1,201 @@
+package org.diffhunter.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shared cache of normalized request and response text, keyed by entry number and side.
+ * The cache is bounded by the estimated memory of the cached strings rather than by count,
+ * and evicts the least recently used text first. Entries that are pinned (the current target
+ * and selection) are never evicted, since they are compared against every other entry.
+ */
+public class NormalizedTextCache {
+
+    /** Side of an HTTP log entry whose text is cached. */
+    public enum Side { REQUEST, RESPONSE }
+
+    /** Pin slot for the current target entry. */
+    public static final int PIN_TARGET = 0;
+    /** Pin slot for the currently selected entry. */
+    public static final int PIN_SELECTION = 1;
+
+    private static final long STRING_OVERHEAD_BYTES = 56;
+
+    private final LinkedHashMap<Long, String> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final int[] pinnedNumbers = {-1, -1};
+    private volatile long maxBytes;
+    private long usedBytes;
+    private volatile int generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache holding at most the given estimated number of bytes.
+     */
+    public NormalizedTextCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached text for the entry side, loading it with the given supplier on a miss.
+     * The loader runs outside the cache lock so concurrent misses do not block each other.
+     * Entries created before the last clear (whose numbers may have been reused) are never cached.
+     */
+    public String get(int entryGeneration, int number, Side side, Supplier<String> loader) {
+        if (entryGeneration != generation) {
+            return loader.get();
+        }
+
+        long key = key(number, side);
+        synchronized (this) {
+            String cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        String text = loader.get();
+        if (text == null) return null;
+
+        long weight = weigh(text);
+        synchronized (this) {
+            if (entryGeneration != generation || (weight > maxBytes && !isPinned(number))) {
+                return text;
+            }
+            String previous = entries.put(key, text);
+            if (previous != null) {
+                usedBytes -= weigh(previous);
+            }
+            usedBytes += weight;
+            evictIfNeeded();
+        }
+        return text;
+    }
+
+    /**
+     * Pins an entry in the given slot (PIN_TARGET or PIN_SELECTION), or unpins the slot with -1.
+     * A pinned entry's text is kept even when the cache is over budget.
+     */
+    public synchronized void pin(int slot, int number) {
+        pinnedNumbers[slot] = number;
+        evictIfNeeded();
+    }
+
+    /**
+     * Removes both sides of an entry from the cache.
+     */
+    public synchronized void invalidate(int number) {
+        for (Side side : Side.values()) {
+            String removed = entries.remove(key(number, side));
+            if (removed != null) {
+                usedBytes -= weigh(removed);
+            }
+        }
+    }
+
+    /**
+     * Removes all cached text and pins and starts a new generation, since entry numbers restart.
+     * Metrics are kept.
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        usedBytes = 0;
+        pinnedNumbers[PIN_TARGET] = -1;
+        pinnedNumbers[PIN_SELECTION] = -1;
+    }
+
+    /**
+     * Evicts least recently used, unpinned texts until at most targetBytes are used.
+     * Returns the estimated number of bytes released. The budget is not changed.
+     */
+    public synchronized long trim(long targetBytes) {
+        long before = usedBytes;
+        long budget = maxBytes;
+        maxBytes = Math.max(0, targetBytes);
+        evictIfNeeded();
+        maxBytes = budget;
+        return before - usedBytes;
+    }
+
+    /**
+     * Changes the memory budget and evicts entries if the cache is now over budget.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evictIfNeeded();
+    }
+
+    /** Returns the current generation, which new entries must pass to get(). */
+    public int getGeneration() { return generation; }
+
+    /** Returns the memory budget in bytes. */
+    public long getMaxBytes() { return maxBytes; }
+
+    /** Returns the estimated memory used by cached text in bytes. */
+    public synchronized long getUsedBytes() { return usedBytes; }
+
+    /** Returns the number of cached texts. */
+    public synchronized int size() { return entries.size(); }
+
+    /** Returns the number of cache hits. */
+    public long getHits() { return hits.get(); }
+
+    /** Returns the number of cache misses. */
+    public long getMisses() { return misses.get(); }
+
+    /** Returns the number of texts evicted to stay within budget. */
+    public long getEvictions() { return evictions.get(); }
+
+    /** Returns the fraction of lookups served from the cache, or 0 if there were none. */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Returns a one-line summary of the cache metrics.
+     */
+    public String getStatsSummary() {
+        return String.format("%d texts, %.1f/%.1f MB, hit rate %.1f%% (%d hits, %d misses, %d evictions)",
+                size(), getUsedBytes() / 1048576.0, maxBytes / 1048576.0, getHitRate() * 100,
+                hits.get(), misses.get(), evictions.get());
+    }
+
+    /**
+     * Evicts least recently used, unpinned texts until the cache is within budget.
+     */
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, String>> iterator = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Long, String> eldest = iterator.next();
+            if (isPinned((int) (eldest.getKey() >> 1))) continue;
+            usedBytes -= weigh(eldest.getValue());
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** Returns true if the entry number is pinned in any slot. */
+    private boolean isPinned(int number) {
+        return number == pinnedNumbers[PIN_TARGET] || number == pinnedNumbers[PIN_SELECTION];
+    }
+
+    /** Packs an entry number and side into a cache key. */
+    private static long key(int number, Side side) {
+        return ((long) number << 1) | side.ordinal();
+    }
+
+    /** Estimates the retained size of a string, assuming two bytes per character. */
+    private static long weigh(String text) {
+        return STRING_OVERHEAD_BYTES + 2L * text.length();
+    }
+}
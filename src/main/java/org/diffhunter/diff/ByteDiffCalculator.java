@@ -0,0 +1,212 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffSegment;
+import org.diffhunter.model.DiffType;
+import org.diffhunter.util.Constants;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Patch;
+
+import burp.api.montoya.MontoyaApi;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Calculates differences between two raw byte arrays for Hexdump mode.
+ * Myers runs over the bytes themselves rather than over hexdump lines, so an inserted byte is
+ * reported as a single insertion instead of shifting and changing every following 16-byte row.
+ * Changed byte ranges are projected onto the hexdump text produced by HexDumpConverter and
+ * split per row, each segment highlighting the hex and ASCII columns of its bytes.
+ * Myers costs O(N·D), so once the common prefix and suffix are trimmed, ranges larger than
+ * BYTE_DIFF_MAX_BYTES together are reported as one segment per side instead of being diffed.
+ * Prefix and suffix trimming run on the DiffKernels backend selected for the JVM.
+ */
+public class ByteDiffCalculator {
+
+    private static final DiffKernels KERNELS = DiffKernels.get();
+
+    private MontoyaApi api;
+
+    /**
+     * Sets the Montoya API reference for error logging.
+     */
+    public void setApi(MontoyaApi api) {
+        this.api = api;
+    }
+
+    /**
+     * Finds differences between the original and modified bytes.
+     * Offsets refer to HexDumpConverter.toHexDump of each array; line numbers are hexdump rows.
+     */
+    public List<DiffSegment> findDifferences(byte[] original, byte[] modified) {
+        return findDifferences(original, original.length, modified, modified.length, false);
+    }
+
+    /**
+     * Finds differences between the first originalEnd and modifiedEnd bytes only, for messages whose
+     * bodies are compared by hash. If bodiesDiffer, each body from the given end onwards is reported
+     * as a single modified segment covering its rows.
+     */
+    public List<DiffSegment> findDifferences(byte[] original, int originalEnd, byte[] modified, int modifiedEnd,
+                                             boolean bodiesDiffer) {
+        List<DiffSegment> diffs = new ArrayList<>();
+        int[] rowIndices = {0, 0};
+
+        try {
+            int maxPrefix = Math.min(originalEnd, modifiedEnd);
+            int prefix = KERNELS.mismatch(original, 0, modified, 0, maxPrefix);
+            if (prefix < 0) {
+                prefix = maxPrefix;
+            }
+            int suffix = KERNELS.commonSuffix(original, originalEnd, modified, modifiedEnd, maxPrefix - prefix);
+            int originalChangeEnd = originalEnd - suffix;
+            int modifiedChangeEnd = modifiedEnd - suffix;
+
+            if ((long) originalChangeEnd - prefix + modifiedChangeEnd - prefix > Constants.BYTE_DIFF_MAX_BYTES) {
+                addChange(prefix, originalChangeEnd, prefix, modifiedChangeEnd, diffs, rowIndices);
+                if (bodiesDiffer) {
+                    addBody(original, originalEnd, true, diffs, rowIndices);
+                    addBody(modified, modifiedEnd, false, diffs, rowIndices);
+                }
+                return diffs;
+            }
+
+            Patch<Byte> patch = DiffUtils.diff(
+                    new ByteList(original, prefix, originalChangeEnd),
+                    new ByteList(modified, prefix, modifiedChangeEnd));
+
+            for (AbstractDelta<Byte> delta : patch.getDeltas()) {
+                int sourceStart = prefix + delta.getSource().getPosition();
+                int sourceEnd = sourceStart + delta.getSource().size();
+                int targetStart = prefix + delta.getTarget().getPosition();
+                int targetEnd = targetStart + delta.getTarget().size();
+
+                switch (delta.getType()) {
+                    case DELETE -> addRows(original, sourceStart, sourceEnd, true, DiffType.DELETED, diffs, rowIndices);
+                    case INSERT -> addRows(modified, targetStart, targetEnd, false, DiffType.ADDED, diffs, rowIndices);
+                    case CHANGE -> {
+                        addRows(original, sourceStart, sourceEnd, true, DiffType.MODIFIED, diffs, rowIndices);
+                        addRows(modified, targetStart, targetEnd, false, DiffType.MODIFIED, diffs, rowIndices);
+                    }
+                    default -> {}
+                }
+            }
+
+            if (bodiesDiffer) {
+                addBody(original, originalEnd, true, diffs, rowIndices);
+                addBody(modified, modifiedEnd, false, diffs, rowIndices);
+            }
+        } catch (Exception e) {
+            if (api != null) {
+                api.logging().logToError("[DiffHunter] Error calculating byte diff: " + e.getMessage());
+            }
+            diffs.clear();
+        }
+
+        return diffs;
+    }
+
+    /**
+     * Adds original[originalFrom, originalTo) and modified[modifiedFrom, modifiedTo) as one change,
+     * a single segment per side: a deletion or insertion if the other range is empty, a modification
+     * otherwise.
+     */
+    private void addChange(int originalFrom, int originalTo, int modifiedFrom, int modifiedTo,
+                           List<DiffSegment> diffs, int[] rowIndices) {
+        DiffType type = modifiedFrom == modifiedTo ? DiffType.DELETED
+                : originalFrom == originalTo ? DiffType.ADDED
+                : DiffType.MODIFIED;
+        addRange(originalFrom, originalTo, true, type, diffs, rowIndices);
+        addRange(modifiedFrom, modifiedTo, false, type, diffs, rowIndices);
+    }
+
+    /**
+     * Adds one segment spanning the hexdump rows of the byte range [from, to), unless it is empty.
+     */
+    private void addRange(int from, int to, boolean isOriginal, DiffType type, List<DiffSegment> diffs,
+                          int[] rowIndices) {
+        if (from >= to) return;
+        int side = isOriginal ? 0 : 1;
+        diffs.add(new DiffSegment(HexDumpConverter.hexOffset(from), HexDumpConverter.asciiOffset(to - 1) + 1,
+                "[" + (to - from) + " changed bytes]", isOriginal, type,
+                rowIndices[side]++, from / HexDumpConverter.BYTES_PER_ROW + 1));
+    }
+
+    /**
+     * Adds one segment per hexdump row covered by the byte range [from, to).
+     */
+    private void addRows(byte[] data, int from, int to, boolean isOriginal, DiffType type,
+                         List<DiffSegment> diffs, int[] rowIndices) {
+        int side = isOriginal ? 0 : 1;
+        int rowStart = from;
+        while (rowStart < to) {
+            int rowEnd = Math.min(to, (rowStart / HexDumpConverter.BYTES_PER_ROW + 1) * HexDumpConverter.BYTES_PER_ROW);
+
+            int hexStart = HexDumpConverter.hexOffset(rowStart);
+            int hexEnd = HexDumpConverter.hexOffset(rowEnd - 1) + 2;
+            int asciiStart = HexDumpConverter.asciiOffset(rowStart);
+            int asciiEnd = HexDumpConverter.asciiOffset(rowEnd - 1) + 1;
+
+            diffs.add(new DiffSegment(hexStart, asciiEnd, describe(data, rowStart, rowEnd), isOriginal, type,
+                    rowIndices[side]++, rowStart / HexDumpConverter.BYTES_PER_ROW + 1,
+                    new int[]{hexStart, hexEnd, asciiStart, asciiEnd}));
+            rowStart = rowEnd;
+        }
+    }
+
+    /**
+     * Adds one segment spanning the hexdump rows of data[from, length), unless the range is empty.
+     */
+    private void addBody(byte[] data, int from, boolean isOriginal, List<DiffSegment> diffs, int[] rowIndices) {
+        if (from >= data.length) return;
+        int side = isOriginal ? 0 : 1;
+        diffs.add(new DiffSegment(HexDumpConverter.hexOffset(from), HexDumpConverter.dumpLength(data.length) - 1,
+                "[binary body: " + (data.length - from) + " bytes]", isOriginal, DiffType.MODIFIED,
+                rowIndices[side]++, from / HexDumpConverter.BYTES_PER_ROW + 1));
+    }
+
+    /**
+     * Formats bytes the way a hexdump row shows them: hex pairs followed by their ASCII rendering.
+     */
+    private static String describe(byte[] data, int from, int to) {
+        StringBuilder hex = new StringBuilder((to - from) * 3);
+        StringBuilder ascii = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            int b = data[i] & 0xFF;
+            if (i > from) hex.append(' ');
+            hex.append(HexDumpConverter.HEX_DIGITS[b >>> 4]).append(HexDumpConverter.HEX_DIGITS[b & 0xF]);
+            ascii.append(HexDumpConverter.ASCII[b]);
+        }
+        return hex.append("  ").append(ascii).toString();
+    }
+
+    /**
+     * Read-only list view over a range of a byte array, so Myers can run without copying the data.
+     * Boxing goes through the Byte cache and does not allocate.
+     */
+    private static final class ByteList extends AbstractList<Byte> implements RandomAccess {
+        private final byte[] data;
+        private final int from;
+        private final int to;
+
+        ByteList(byte[] data, int from, int to) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Byte get(int index) {
+            return data[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
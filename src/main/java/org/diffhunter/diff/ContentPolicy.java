@@ -0,0 +1,169 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.BodyPolicy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chooses how a response body is compared from its Content-Type and its leading magic bytes.
+ * Images, fonts, archives, PDFs and media are compared by hash instead of being diffed as text,
+ * which would cost CPU and produce meaningless highlights. The policy is decided once at capture.
+ */
+public final class ContentPolicy {
+
+    private static final int SNIFF_LENGTH = 512;
+
+    private static final Map<String, BodyPolicy> TABLE = new HashMap<>();
+
+    static {
+        TABLE.put("text/*", BodyPolicy.TEXT_DIFF);
+        TABLE.put("application/json", BodyPolicy.TEXT_DIFF);
+        TABLE.put("application/xml", BodyPolicy.TEXT_DIFF);
+        TABLE.put("application/javascript", BodyPolicy.TEXT_DIFF);
+        TABLE.put("application/x-www-form-urlencoded", BodyPolicy.TEXT_DIFF);
+        TABLE.put("image/svg+xml", BodyPolicy.TEXT_DIFF);
+
+        TABLE.put("application/octet-stream", BodyPolicy.BYTE_DIFF);
+        TABLE.put("application/protobuf", BodyPolicy.BYTE_DIFF);
+        TABLE.put("application/x-protobuf", BodyPolicy.BYTE_DIFF);
+        TABLE.put("application/grpc", BodyPolicy.BYTE_DIFF);
+        TABLE.put("application/grpc-web", BodyPolicy.BYTE_DIFF);
+        TABLE.put("application/msgpack", BodyPolicy.BYTE_DIFF);
+        TABLE.put("application/cbor", BodyPolicy.BYTE_DIFF);
+
+        TABLE.put("image/*", BodyPolicy.HASH_ONLY);
+        TABLE.put("font/*", BodyPolicy.HASH_ONLY);
+        TABLE.put("application/font-woff", BodyPolicy.HASH_ONLY);
+        TABLE.put("application/vnd.ms-fontobject", BodyPolicy.HASH_ONLY);
+        TABLE.put("application/pdf", BodyPolicy.HASH_ONLY);
+        TABLE.put("application/zip", BodyPolicy.HASH_ONLY);
+        TABLE.put("application/gzip", BodyPolicy.HASH_ONLY);
+        TABLE.put("application/wasm", BodyPolicy.HASH_ONLY);
+
+        TABLE.put("audio/*", BodyPolicy.SKIP);
+        TABLE.put("video/*", BodyPolicy.SKIP);
+    }
+
+    /** Private constructor to prevent instantiation. */
+    private ContentPolicy() {}
+
+    /**
+     * Returns the policy for a raw message whose body starts at bodyStart.
+     * A binary signature in the body decides when the type is missing or unknown, and overrides a
+     * declared text type if the body also contains NUL bytes; unknown bodies with NUL bytes are
+     * compared by hash.
+     */
+    public static BodyPolicy classify(byte[] message, int bodyStart) {
+        if (bodyStart >= message.length) {
+            return BodyPolicy.TEXT_DIFF;
+        }
+
+        BodyPolicy declared = forMimeType(getContentType(message, bodyStart));
+        if (declared != null && declared != BodyPolicy.TEXT_DIFF) {
+            return declared;
+        }
+        BodyPolicy sniffed = sniff(message, bodyStart);
+        boolean binary = containsNul(message, bodyStart);
+        if (declared == BodyPolicy.TEXT_DIFF) {
+            return sniffed != null && binary ? sniffed : declared;
+        }
+        if (sniffed != null) {
+            return sniffed;
+        }
+        return binary ? BodyPolicy.HASH_ONLY : BodyPolicy.TEXT_DIFF;
+    }
+
+    /**
+     * Returns the policy to use when comparing bodies with the given policies.
+     * Bodies of different kinds are compared by hash.
+     */
+    public static BodyPolicy combine(BodyPolicy a, BodyPolicy b) {
+        return a == b ? a : BodyPolicy.HASH_ONLY;
+    }
+
+    /**
+     * Returns the table entry for a MIME type, trying the exact type, then any +json or +xml suffix,
+     * then the top-level wildcard. Returns null for unknown or missing types.
+     */
+    static BodyPolicy forMimeType(String contentType) {
+        if (contentType == null) return null;
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase();
+
+        BodyPolicy policy = TABLE.get(mimeType);
+        if (policy != null) return policy;
+        if (mimeType.endsWith("+json") || mimeType.endsWith("+xml")) return BodyPolicy.TEXT_DIFF;
+        int slash = mimeType.indexOf('/');
+        return slash < 0 ? null : TABLE.get(mimeType.substring(0, slash) + "/*");
+    }
+
+    /**
+     * Returns the policy for a known binary file signature at the start of the body, or null.
+     */
+    static BodyPolicy sniff(byte[] data, int from) {
+        if (startsWith(data, from, 0x89, 'P', 'N', 'G')
+                || startsWith(data, from, 0xFF, 0xD8, 0xFF)
+                || startsWith(data, from, 'G', 'I', 'F', '8')
+                || (startsWith(data, from, 'R', 'I', 'F', 'F') && startsWith(data, from + 8, 'W', 'E', 'B', 'P'))
+                || startsWith(data, from, 0, 0, 1, 0)
+                || startsWith(data, from + 4, 'f', 't', 'y', 'p', 'a', 'v', 'i', 'f')) {
+            return BodyPolicy.HASH_ONLY;
+        }
+        if (startsWith(data, from, 'w', 'O', 'F', 'F')
+                || startsWith(data, from, 'w', 'O', 'F', '2')
+                || startsWith(data, from, 'O', 'T', 'T', 'O')
+                || startsWith(data, from, 0, 1, 0, 0, 0)) {
+            return BodyPolicy.HASH_ONLY;
+        }
+        if (startsWith(data, from, '%', 'P', 'D', 'F')
+                || startsWith(data, from, 'P', 'K', 3, 4)
+                || startsWith(data, from, 0x1F, 0x8B)
+                || startsWith(data, from, 0, 'a', 's', 'm')) {
+            return BodyPolicy.HASH_ONLY;
+        }
+        if (startsWith(data, from + 4, 'f', 't', 'y', 'p')
+                || startsWith(data, from, 0x1A, 0x45, 0xDF, 0xA3)
+                || startsWith(data, from, 'I', 'D', '3')
+                || startsWith(data, from, 'O', 'g', 'g', 'S')) {
+            return BodyPolicy.SKIP;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the Content-Type header value from the head [0, bodyStart), or null if there is none.
+     */
+    private static String getContentType(byte[] message, int bodyStart) {
+        int lineStart = 0;
+        while (lineStart < bodyStart) {
+            int lineEnd = lineStart;
+            while (lineEnd < bodyStart && message[lineEnd] != '\n') lineEnd++;
+            if (lineEnd - lineStart > 13 && new String(message, lineStart, 13, StandardCharsets.ISO_8859_1)
+                    .equalsIgnoreCase("content-type:")) {
+                return new String(message, lineStart + 13, lineEnd - lineStart - 13, StandardCharsets.ISO_8859_1).trim();
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    /** Returns true if the data at the offset starts with the given byte values. */
+    private static boolean startsWith(byte[] data, int from, int... signature) {
+        if (from + signature.length > data.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if ((data[from + i] & 0xFF) != signature[i]) return false;
+        }
+        return true;
+    }
+
+    /** Returns true if the first SNIFF_LENGTH bytes of the body contain a NUL byte. */
+    private static boolean containsNul(byte[] data, int from) {
+        int to = Math.min(data.length, from + SNIFF_LENGTH);
+        for (int i = from; i < to; i++) {
+            if (data[i] == 0) return true;
+        }
+        return false;
+    }
+}
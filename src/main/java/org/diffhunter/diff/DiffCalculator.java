@@ -1,5 +1,6 @@
 package org.diffhunter.diff;
 
+import org.diffhunter.model.BodyPolicy;
 import org.diffhunter.model.DiffSegment;
 import org.diffhunter.model.DiffType;
 import org.diffhunter.model.HttpLogEntry;
@@ -11,17 +12,24 @@ import com.github.difflib.patch.Patch;
 
 import burp.api.montoya.MontoyaApi;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * Calculates differences between two texts using line and character level comparison.
+ * The similarity inner loops run on the DiffKernels backend selected for the JVM.
  */
 public class DiffCalculator {
 
     private static final double SIMILARITY_THRESHOLD = 0.74;
     private static final double COMMON_SUBSTRING_THRESHOLD = 0.5;
+    private static final int POSITIONAL_PROBE_SAMPLES = 64;
+    private static final double POSITIONAL_PROBE_MIN_MATCH = 0.75;
+    private static final int LONG_LINE_THRESHOLD = 2000;
+    private static final int LONG_LINE_MAX_PIECE = 256;
+    private static final DiffKernels KERNELS = DiffKernels.get();
     private MontoyaApi api;
 
     /**
@@ -41,52 +49,45 @@ public class DiffCalculator {
     /**
      * Finds differences between original and modified text.
      * Tracks parent line indices for character-level diffs to enable O(1) visibility lookup.
+     * Equal-length texts whose lines stay aligned are diffed positionally in one pass instead of with Myers.
+     * Lines longer than LONG_LINE_THRESHOLD (typically minified JSON or JavaScript) are split into
+     * virtual lines at structural delimiters, so a one-line body does not go through a quadratic
+     * character diff as a whole; segments still carry offsets into the original text.
      */
     public List<DiffSegment> findDifferences(String original, String modified, boolean characterLevelDiff) {
         List<DiffSegment> diffs = new ArrayList<>();
         int[] lineIndices = {0, 0};
 
         try {
-            List<String> originalLines = Arrays.asList(original.split("\n", -1));
-            List<String> modifiedLines = Arrays.asList(modified.split("\n", -1));
+            if (findPositionalDifferences(original, modified, characterLevelDiff, diffs)) {
+                return diffs;
+            }
+
+            Lines originalLines = Lines.split(original);
+            Lines modifiedLines = Lines.split(modified);
 
             Patch<String> patch = DiffUtils.diff(originalLines, modifiedLines);
 
             for (AbstractDelta<String> delta : patch.getDeltas()) {
-                int sourcePosition = delta.getSource().getPosition();
-                int targetPosition = delta.getTarget().getPosition();
-
-                int originalCharOffset = calculateCharOffset(originalLines, sourcePosition);
-                int modifiedCharOffset = calculateCharOffset(modifiedLines, targetPosition);
+                Lines source = originalLines.span(delta.getSource().getPosition(), delta.getSource().size());
+                Lines target = modifiedLines.span(delta.getTarget().getPosition(), delta.getTarget().size());
 
                 switch (delta.getType()) {
                     case DELETE -> {
-                        int lineNum = sourcePosition + 1;
-                        for (String line : delta.getSource().getLines()) {
-                            int lineLen = line.length();
-                            diffs.add(new DiffSegment(originalCharOffset, originalCharOffset + lineLen,
-                                    line, true, DiffType.DELETED, lineIndices[0], lineNum));
-                            lineIndices[0]++;
-                            lineNum++;
-                            originalCharOffset += lineLen + 1;
+                        for (int i = 0; i < source.size(); i++) {
+                            addLine(source, i, true, DiffType.DELETED, diffs, lineIndices[0]++);
                         }
                     }
                     case INSERT -> {
-                        int lineNum = targetPosition + 1;
-                        for (String line : delta.getTarget().getLines()) {
-                            int lineLen = line.length();
-                            diffs.add(new DiffSegment(modifiedCharOffset, modifiedCharOffset + lineLen,
-                                    line, false, DiffType.ADDED, lineIndices[1], lineNum));
-                            lineIndices[1]++;
-                            lineNum++;
-                            modifiedCharOffset += lineLen + 1;
+                        for (int i = 0; i < target.size(); i++) {
+                            addLine(target, i, false, DiffType.ADDED, diffs, lineIndices[1]++);
                         }
                     }
                     case CHANGE -> {
                         if (characterLevelDiff) {
-                            processChangedLines(delta, originalCharOffset, modifiedCharOffset, diffs, lineIndices, sourcePosition, targetPosition);
+                            processChangedLines(source, target, diffs, lineIndices);
                         } else {
-                            processChangedLinesOnly(delta, originalCharOffset, modifiedCharOffset, diffs, lineIndices, sourcePosition, targetPosition);
+                            processChangedLinesOnly(source, target, diffs, lineIndices);
                         }
                     }
                     default -> {}
@@ -103,63 +104,98 @@ public class DiffCalculator {
     }
 
     /**
-     * Processes lines that have been modified, finding character-level differences.
-     * Assigns parent line indices to character-level diffs for O(1) visibility lookup.
+     * Diffs equal-length texts by position, for responses that differ only by in-place edits
+     * such as same-length tokens, timestamps or reflected payloads.
+     * A sampled probe first checks that the texts are mostly equal at the same positions; the scan
+     * then compares line by line and gives up as soon as a newline is not at the same offset in both,
+     * or a changed line is long enough to need splitting.
+     * Returns false, leaving diffs untouched, when the texts are not aligned and Myers is needed.
      */
-    private void processChangedLines(AbstractDelta<String> delta, int originalCharOffset,
-                                     int modifiedCharOffset, List<DiffSegment> diffs, int[] lineIndices,
-                                     int sourcePosition, int targetPosition) {
-        List<String> sourceLines = delta.getSource().getLines();
-        List<String> targetLines = delta.getTarget().getLines();
+    private boolean findPositionalDifferences(String original, String modified, boolean characterLevelDiff,
+                                              List<DiffSegment> diffs) {
+        int length = original.length();
+        if (length != modified.length() || !probeAligned(original, modified)) {
+            return false;
+        }
+
+        List<DiffSegment> found = new ArrayList<>();
+        int[] lineIndices = {0, 0};
+        int lineStart = 0;
+        int linePosition = 0;
+        boolean lineDiffers = false;
+
+        for (int i = 0; i <= length; i++) {
+            char o = i < length ? original.charAt(i) : '\n';
+            char m = i < length ? modified.charAt(i) : '\n';
+            if (o == '\n' || m == '\n') {
+                if (o != m) return false;
+                if (lineDiffers) {
+                    if (i - lineStart > LONG_LINE_THRESHOLD) return false;
+                    Lines source = Lines.single(original.substring(lineStart, i), lineStart, linePosition + 1);
+                    Lines target = Lines.single(modified.substring(lineStart, i), lineStart, linePosition + 1);
+                    if (characterLevelDiff) {
+                        processChangedLines(source, target, found, lineIndices);
+                    } else {
+                        processChangedLinesOnly(source, target, found, lineIndices);
+                    }
+                }
+                lineStart = i + 1;
+                linePosition++;
+                lineDiffers = false;
+            } else if (o != m) {
+                lineDiffers = true;
+            }
+        }
 
-        int srcOffset = originalCharOffset;
-        int tgtOffset = modifiedCharOffset;
-        int srcLineNum = sourcePosition + 1;
-        int tgtLineNum = targetPosition + 1;
+        diffs.addAll(found);
+        return true;
+    }
+
+    /**
+     * Returns true if most of the evenly spaced sample positions hold the same character in both texts.
+     */
+    private boolean probeAligned(String original, String modified) {
+        int length = original.length();
+        if (length == 0) return true;
+
+        int samples = Math.min(POSITIONAL_PROBE_SAMPLES, length);
+        int matches = 0;
+        for (int i = 0; i < samples; i++) {
+            int pos = (int) ((long) i * length / samples);
+            if (original.charAt(pos) == modified.charAt(pos)) {
+                matches++;
+            }
+        }
+        return matches >= samples * POSITIONAL_PROBE_MIN_MATCH;
+    }
 
-        int maxLines = Math.max(sourceLines.size(), targetLines.size());
-        int srcIdx = 0;
-        int tgtIdx = 0;
+    /**
+     * Processes lines that have been modified, finding character-level differences.
+     * Assigns parent line indices to character-level diffs for O(1) visibility lookup.
+     */
+    private void processChangedLines(Lines source, Lines target, List<DiffSegment> diffs, int[] lineIndices) {
+        int maxLines = Math.max(source.size(), target.size());
 
         for (int i = 0; i < maxLines; i++) {
-            String srcLine = srcIdx < sourceLines.size() ? sourceLines.get(srcIdx) : null;
-            String tgtLine = tgtIdx < targetLines.size() ? targetLines.get(tgtIdx) : null;
+            String srcLine = i < source.size() ? source.get(i) : null;
+            String tgtLine = i < target.size() ? target.get(i) : null;
 
             if (srcLine != null && tgtLine != null) {
                 if (shouldTreatAsModified(srcLine, tgtLine)) {
                     int originalParentIdx = lineIndices[0];
                     int modifiedParentIdx = lineIndices[1];
-                    findCharacterDifferences(srcLine, tgtLine, srcOffset, tgtOffset, diffs, originalParentIdx, modifiedParentIdx, srcLineNum, tgtLineNum);
-                    lineIndices[0]++;
-                    lineIndices[1]++;
+                    findCharacterDifferences(srcLine, tgtLine, source.offsets[i], target.offsets[i], diffs,
+                            originalParentIdx, modifiedParentIdx, source.numbers[i], target.numbers[i]);
                 } else {
-                    diffs.add(new DiffSegment(srcOffset, srcOffset + srcLine.length(),
-                            srcLine, true, DiffType.DELETED, lineIndices[0], srcLineNum));
-                    diffs.add(new DiffSegment(tgtOffset, tgtOffset + tgtLine.length(),
-                            tgtLine, false, DiffType.ADDED, lineIndices[1], tgtLineNum));
-                    lineIndices[0]++;
-                    lineIndices[1]++;
+                    addLine(source, i, true, DiffType.DELETED, diffs, lineIndices[0]);
+                    addLine(target, i, false, DiffType.ADDED, diffs, lineIndices[1]);
                 }
-                srcOffset += srcLine.length() + 1;
-                tgtOffset += tgtLine.length() + 1;
-                srcLineNum++;
-                tgtLineNum++;
-                srcIdx++;
-                tgtIdx++;
-            } else if (srcLine != null) {
-                diffs.add(new DiffSegment(srcOffset, srcOffset + srcLine.length(),
-                        srcLine, true, DiffType.DELETED, lineIndices[0], srcLineNum));
                 lineIndices[0]++;
-                srcOffset += srcLine.length() + 1;
-                srcLineNum++;
-                srcIdx++;
-            } else if (tgtLine != null) {
-                diffs.add(new DiffSegment(tgtOffset, tgtOffset + tgtLine.length(),
-                        tgtLine, false, DiffType.ADDED, lineIndices[1], tgtLineNum));
                 lineIndices[1]++;
-                tgtOffset += tgtLine.length() + 1;
-                tgtLineNum++;
-                tgtIdx++;
+            } else if (srcLine != null) {
+                addLine(source, i, true, DiffType.DELETED, diffs, lineIndices[0]++);
+            } else if (tgtLine != null) {
+                addLine(target, i, false, DiffType.ADDED, diffs, lineIndices[1]++);
             }
         }
     }
@@ -168,63 +204,41 @@ public class DiffCalculator {
      * Processes changed lines marking entire lines as modified without character-level diff.
      * Uses Ratcliff/Obershelp similarity to determine if lines should be MODIFIED or DELETED+ADDED.
      */
-    private void processChangedLinesOnly(AbstractDelta<String> delta, int originalCharOffset,
-                                         int modifiedCharOffset, List<DiffSegment> diffs, int[] lineIndices,
-                                         int sourcePosition, int targetPosition) {
-        List<String> sourceLines = delta.getSource().getLines();
-        List<String> targetLines = delta.getTarget().getLines();
-
-        int srcOffset = originalCharOffset;
-        int tgtOffset = modifiedCharOffset;
-        int srcLineNum = sourcePosition + 1;
-        int tgtLineNum = targetPosition + 1;
-
-        int maxLines = Math.max(sourceLines.size(), targetLines.size());
-        int srcIdx = 0;
-        int tgtIdx = 0;
+    private void processChangedLinesOnly(Lines source, Lines target, List<DiffSegment> diffs, int[] lineIndices) {
+        int maxLines = Math.max(source.size(), target.size());
 
         for (int i = 0; i < maxLines; i++) {
-            String srcLine = srcIdx < sourceLines.size() ? sourceLines.get(srcIdx) : null;
-            String tgtLine = tgtIdx < targetLines.size() ? targetLines.get(tgtIdx) : null;
+            String srcLine = i < source.size() ? source.get(i) : null;
+            String tgtLine = i < target.size() ? target.get(i) : null;
 
             if (srcLine != null && tgtLine != null) {
                 if (shouldTreatAsModified(srcLine, tgtLine)) {
-                    diffs.add(new DiffSegment(srcOffset, srcOffset + srcLine.length(),
-                            srcLine, true, DiffType.MODIFIED, lineIndices[0], srcLineNum));
-                    diffs.add(new DiffSegment(tgtOffset, tgtOffset + tgtLine.length(),
-                            tgtLine, false, DiffType.MODIFIED, lineIndices[1], tgtLineNum));
+                    addLine(source, i, true, DiffType.MODIFIED, diffs, lineIndices[0]);
+                    addLine(target, i, false, DiffType.MODIFIED, diffs, lineIndices[1]);
                 } else {
-                    diffs.add(new DiffSegment(srcOffset, srcOffset + srcLine.length(),
-                            srcLine, true, DiffType.DELETED, lineIndices[0], srcLineNum));
-                    diffs.add(new DiffSegment(tgtOffset, tgtOffset + tgtLine.length(),
-                            tgtLine, false, DiffType.ADDED, lineIndices[1], tgtLineNum));
+                    addLine(source, i, true, DiffType.DELETED, diffs, lineIndices[0]);
+                    addLine(target, i, false, DiffType.ADDED, diffs, lineIndices[1]);
                 }
                 lineIndices[0]++;
                 lineIndices[1]++;
-                srcOffset += srcLine.length() + 1;
-                tgtOffset += tgtLine.length() + 1;
-                srcLineNum++;
-                tgtLineNum++;
-                srcIdx++;
-                tgtIdx++;
             } else if (srcLine != null) {
-                diffs.add(new DiffSegment(srcOffset, srcOffset + srcLine.length(),
-                        srcLine, true, DiffType.DELETED, lineIndices[0], srcLineNum));
-                lineIndices[0]++;
-                srcOffset += srcLine.length() + 1;
-                srcLineNum++;
-                srcIdx++;
+                addLine(source, i, true, DiffType.DELETED, diffs, lineIndices[0]++);
             } else if (tgtLine != null) {
-                diffs.add(new DiffSegment(tgtOffset, tgtOffset + tgtLine.length(),
-                        tgtLine, false, DiffType.ADDED, lineIndices[1], tgtLineNum));
-                lineIndices[1]++;
-                tgtOffset += tgtLine.length() + 1;
-                tgtLineNum++;
-                tgtIdx++;
+                addLine(target, i, false, DiffType.ADDED, diffs, lineIndices[1]++);
             }
         }
     }
 
+    /**
+     * Adds a whole-line segment for line i of the lines.
+     */
+    private static void addLine(Lines lines, int i, boolean isOriginal, DiffType type,
+                                List<DiffSegment> diffs, int parentLineIndex) {
+        String line = lines.get(i);
+        diffs.add(new DiffSegment(lines.offsets[i], lines.offsets[i] + line.length(),
+                line, isOriginal, type, parentLineIndex, lines.numbers[i]));
+    }
+
     /**
      * Finds character-level differences between two lines.
      * Assigns parent line indices for O(1) visibility lookup.
@@ -273,17 +287,6 @@ public class DiffCalculator {
         }
     }
 
-    /**
-     * Calculates the character offset for a given line position.
-     */
-    private int calculateCharOffset(List<String> lines, int linePosition) {
-        int offset = 0;
-        for (int i = 0; i < linePosition && i < lines.size(); i++) {
-            offset += lines.get(i).length() + 1;
-        }
-        return offset;
-    }
-
     /**
      * Checks if an entry differs from the target entry.
      */
@@ -301,6 +304,10 @@ public class DiffCalculator {
 
     /**
      * Gets the type of difference between target and entry.
+     * Byte-identical messages are recognized from their head blobs and body digests without reading them.
+     * Responses with a binary body policy are compared by body digest and never decoded.
+     * Text is compared exactly, so a side reported as differing may still have no diff once headers
+     * are matched by name; callers that color rows classify such sides with the header-aware diff.
      */
     public RowDiffType getDiffType(HttpLogEntry target, HttpLogEntry entry,
                                     boolean checkRequests, boolean checkResponses) {
@@ -315,7 +322,7 @@ public class DiffCalculator {
         boolean requestDiffers = false;
         boolean responseDiffers = false;
 
-        if (checkRequests) {
+        if (checkRequests && !target.hasSameRequest(entry)) {
             if (target.getRequestStr().length() != entry.getRequestStr().length()) {
                 requestDiffers = true;
             } else {
@@ -323,8 +330,12 @@ public class DiffCalculator {
             }
         }
 
-        if (checkResponses) {
-            if (target.getResponseStr().length() != entry.getResponseStr().length()) {
+        if (checkResponses && !target.hasSameResponse(entry)) {
+            BodyPolicy policy = ContentPolicy.combine(target.getResponsePolicy(), entry.getResponsePolicy());
+            if (policy != BodyPolicy.TEXT_DIFF) {
+                responseDiffers = !target.hasSameResponseHead(entry)
+                        || (policy != BodyPolicy.SKIP && !target.hasSameResponseBody(entry));
+            } else if (target.getResponseStr().length() != entry.getResponseStr().length()) {
                 responseDiffers = true;
             } else {
                 responseDiffers = !target.getResponseStr().equals(entry.getResponseStr());
@@ -355,16 +366,43 @@ public class DiffCalculator {
             return true;
         }
 
-        double similarity = calculateSimilarity(s1, s2);
-        if (similarity >= SIMILARITY_THRESHOLD) {
+        int matchBound = countCommonCharacters(s1, s2);
+        int minLength = Math.min(s1.length(), s2.length());
+        char[] c1 = s1.toCharArray();
+        char[] c2 = s2.toCharArray();
+
+        if (2.0 * matchBound / (s1.length() + s2.length()) >= SIMILARITY_THRESHOLD
+                && calculateSimilarity(c1, c2) >= SIMILARITY_THRESHOLD) {
             return true;
         }
+        if (matchBound < minLength * COMMON_SUBSTRING_THRESHOLD) {
+            return false;
+        }
 
-        int[] lcs = findLongestCommonSubstring(s1, 0, s1.length(), s2, 0, s2.length());
-        int longestCommon = lcs[0];
-        int minLength = Math.min(s1.length(), s2.length());
+        int[] lcs = KERNELS.longestCommonSubstring(c1, 0, c1.length, c2, 0, c2.length);
+        return lcs[0] >= minLength * COMMON_SUBSTRING_THRESHOLD;
+    }
 
-        return longestCommon >= minLength * COMMON_SUBSTRING_THRESHOLD;
+    /**
+     * Returns an upper bound on the characters two strings can have in common, in any order
+     * (the quick ratio of difflib). Neither the Ratcliff/Obershelp match count nor the longest
+     * common substring can exceed it, so it rejects dissimilar lines without running either.
+     * Characters are counted in 256 buckets; merging buckets can only raise the bound.
+     */
+    private static int countCommonCharacters(String s1, String s2) {
+        int[] counts = new int[256];
+        for (int i = 0; i < s1.length(); i++) {
+            counts[s1.charAt(i) & 0xFF]++;
+        }
+        int common = 0;
+        for (int i = 0; i < s2.length(); i++) {
+            int bucket = s2.charAt(i) & 0xFF;
+            if (counts[bucket] > 0) {
+                counts[bucket]--;
+                common++;
+            }
+        }
+        return common;
     }
 
     /**
@@ -372,21 +410,18 @@ public class DiffCalculator {
      * This is the same algorithm used by Python's difflib.SequenceMatcher.
      * Optimized with early exit when similarity cannot reach the threshold.
      */
-    private double calculateSimilarity(String s1, String s2) {
-        if (s1 == null || s2 == null) {
-            return 0.0;
-        }
-        if (s1.equals(s2)) {
+    private double calculateSimilarity(char[] s1, char[] s2) {
+        if (s1.length == s2.length && KERNELS.mismatch(s1, 0, s2, 0, s1.length) < 0) {
             return 1.0;
         }
-        if (s1.isEmpty() || s2.isEmpty()) {
+        if (s1.length == 0 || s2.length == 0) {
             return 0.0;
         }
 
-        int totalLength = s1.length() + s2.length();
+        int totalLength = s1.length + s2.length;
         int minMatchesNeeded = (int) Math.ceil(SIMILARITY_THRESHOLD * totalLength / 2.0);
 
-        int matches = countMatchingCharacters(s1, 0, s1.length(), s2, 0, s2.length(), minMatchesNeeded, 0);
+        int matches = countMatchingCharacters(s1, 0, s1.length, s2, 0, s2.length, minMatchesNeeded, 0);
 
         if (matches < 0) {
             return 0.0;
@@ -400,8 +435,8 @@ public class DiffCalculator {
      * Uses indices instead of creating substrings to avoid object allocation.
      * Supports early exit when it's impossible to reach the required matches.
      */
-    private int countMatchingCharacters(String s1, int start1, int end1,
-                                        String s2, int start2, int end2,
+    private int countMatchingCharacters(char[] s1, int start1, int end1,
+                                        char[] s2, int start2, int end2,
                                         int minMatchesNeeded, int currentMatches) {
         int len1 = end1 - start1;
         int len2 = end2 - start2;
@@ -415,7 +450,7 @@ public class DiffCalculator {
             return -1;
         }
 
-        int[] lcs = findLongestCommonSubstring(s1, start1, end1, s2, start2, end2);
+        int[] lcs = KERNELS.longestCommonSubstring(s1, start1, end1, s2, start2, end2);
         int length = lcs[0];
 
         if (length == 0) {
@@ -452,60 +487,91 @@ public class DiffCalculator {
     }
 
     /**
-     * Finds the longest common substring between two string regions.
-     * Uses O(min(n,m)) space with two arrays instead of O(n*m) matrix.
-     * Returns array of [length, startIndex1, startIndex2].
+     * Lines of a text with the document offset and 1-based line number of each line.
+     * Long lines are split into several virtual lines that share their physical line number.
      */
-    private int[] findLongestCommonSubstring(String s1, int start1, int end1,
-                                             String s2, int start2, int end2) {
-        int len1 = end1 - start1;
-        int len2 = end2 - start2;
+    private static final class Lines extends AbstractList<String> {
+        private final List<String> text;
+        int[] offsets;
+        int[] numbers;
+
+        private Lines(List<String> text, int[] offsets, int[] numbers) {
+            this.text = text;
+            this.offsets = offsets;
+            this.numbers = numbers;
+        }
 
-        boolean swapped = len1 > len2;
-        String shorter, longer;
-        int shorterStart, shorterEnd, longerStart, longerEnd;
+        /**
+         * Splits a text at newlines like split("\n", -1), then splits long lines into pieces
+         * ending at one of ,{}[];> or after LONG_LINE_MAX_PIECE characters.
+         */
+        static Lines split(String text) {
+            Lines lines = new Lines(new ArrayList<>(), new int[16], new int[16]);
+            int lineStart = 0;
+            int number = 1;
+
+            while (true) {
+                int end = text.indexOf('\n', lineStart);
+                if (end < 0) end = text.length();
+
+                int pieceStart = lineStart;
+                if (end - lineStart > LONG_LINE_THRESHOLD) {
+                    for (int i = lineStart; i < end - 1; i++) {
+                        if (isDelimiter(text.charAt(i)) || i + 1 - pieceStart >= LONG_LINE_MAX_PIECE) {
+                            lines.append(text.substring(pieceStart, i + 1), pieceStart, number);
+                            pieceStart = i + 1;
+                        }
+                    }
+                }
+                lines.append(text.substring(pieceStart, end), pieceStart, number);
 
-        if (swapped) {
-            shorter = s2; shorterStart = start2; shorterEnd = end2;
-            longer = s1; longerStart = start1; longerEnd = end1;
-        } else {
-            shorter = s1; shorterStart = start1; shorterEnd = end1;
-            longer = s2; longerStart = start2; longerEnd = end2;
+                if (end == text.length()) break;
+                lineStart = end + 1;
+                number++;
+            }
+            return lines;
         }
 
-        int shorterLen = shorterEnd - shorterStart;
-        int longerLen = longerEnd - longerStart;
-
-        int[] dpPrev = new int[shorterLen + 1];
-        int[] dpCurr = new int[shorterLen + 1];
+        /** Appends a line while splitting. */
+        private void append(String line, int offset, int number) {
+            int index = text.size();
+            if (index == offsets.length) {
+                offsets = Arrays.copyOf(offsets, index * 2);
+                numbers = Arrays.copyOf(numbers, index * 2);
+            }
+            offsets[index] = offset;
+            numbers[index] = number;
+            text.add(line);
+        }
 
-        int maxLength = 0;
-        int maxEndShorter = 0;
-        int maxEndLonger = 0;
+        /** Returns a single line at the given offset and line number. */
+        static Lines single(String line, int offset, int number) {
+            return new Lines(List.of(line), new int[]{offset}, new int[]{number});
+        }
 
-        for (int i = 1; i <= longerLen; i++) {
-            java.util.Arrays.fill(dpCurr, 0);
+        /** Returns the lines [from, from + count). */
+        Lines span(int from, int count) {
+            return new Lines(text.subList(from, from + count),
+                    Arrays.copyOfRange(offsets, from, from + count),
+                    Arrays.copyOfRange(numbers, from, from + count));
+        }
 
-            for (int j = 1; j <= shorterLen; j++) {
-                if (longer.charAt(longerStart + i - 1) == shorter.charAt(shorterStart + j - 1)) {
-                    dpCurr[j] = dpPrev[j - 1] + 1;
-                    if (dpCurr[j] > maxLength) {
-                        maxLength = dpCurr[j];
-                        maxEndLonger = i;
-                        maxEndShorter = j;
-                    }
-                }
-            }
+        /** Returns true if a long line may be split after the character. */
+        private static boolean isDelimiter(char c) {
+            return switch (c) {
+                case ',', '{', '}', '[', ']', ';', '>' -> true;
+                default -> false;
+            };
+        }
 
-            int[] temp = dpPrev;
-            dpPrev = dpCurr;
-            dpCurr = temp;
+        @Override
+        public String get(int index) {
+            return text.get(index);
         }
 
-        if (swapped) {
-            return new int[]{maxLength, longerStart + maxEndLonger - maxLength, shorterStart + maxEndShorter - maxLength};
-        } else {
-            return new int[]{maxLength, shorterStart + maxEndShorter - maxLength, longerStart + maxEndLonger - maxLength};
+        @Override
+        public int size() {
+            return text.size();
         }
     }
 }
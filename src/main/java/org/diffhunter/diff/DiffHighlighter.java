@@ -82,14 +82,12 @@ public class DiffHighlighter {
                 if (show != null && show) {
                     DiffSegment diff = diffs.get(i);
                     if (diff.isOriginal() == showOriginalDiffs) {
-                        int start = diff.getStartOffset();
-                        int end = diff.getEndOffset();
-
-                        if (start >= 0 && end <= text.length() && start < end) {
-                            try {
-                                highlighter.addHighlight(start, end, getPainter(diff.getType(), isDarkTheme));
-                            } catch (BadLocationException e) {
-                                if (api != null) api.logging().logToError("[DiffHunter] Error adding highlight: " + e.getMessage());
+                        int[] ranges = diff.getHighlightRanges();
+                        if (ranges == null) {
+                            addHighlight(highlighter, text, diff.getStartOffset(), diff.getEndOffset(), diff.getType(), isDarkTheme);
+                        } else {
+                            for (int r = 0; r + 1 < ranges.length; r += 2) {
+                                addHighlight(highlighter, text, ranges[r], ranges[r + 1], diff.getType(), isDarkTheme);
                             }
                         }
                     }
@@ -103,6 +101,19 @@ public class DiffHighlighter {
         forceRender(pane);
     }
 
+    /**
+     * Highlights a range of the text if it is within bounds.
+     */
+    private void addHighlight(Highlighter highlighter, String text, int start, int end, DiffType type, boolean isDarkTheme) {
+        if (start >= 0 && end <= text.length() && start < end) {
+            try {
+                highlighter.addHighlight(start, end, getPainter(type, isDarkTheme));
+            } catch (BadLocationException e) {
+                if (api != null) api.logging().logToError("[DiffHunter] Error adding highlight: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Forces immediate layout calculation and rendering of a JTextPane.
      * This prevents deferred rendering when the pane becomes visible later.
@@ -0,0 +1,71 @@
+package org.diffhunter.diff;
+
+/**
+ * The inner loops of the diff calculators: mismatch and common suffix scans and the longest
+ * common substring DP. A scalar backend always works; a SIMD backend built on the incubating
+ * Vector API is used when Burp's JVM was started with --add-modules jdk.incubator.vector.
+ * The SIMD backend is loaded reflectively, so its classes are never touched without the module.
+ * Both backends return identical results.
+ */
+public interface DiffKernels {
+
+    /**
+     * Returns the backend selected for this JVM.
+     */
+    static DiffKernels get() {
+        return Selected.INSTANCE;
+    }
+
+    /** Returns a short description of the backend for the extension output. */
+    String getName();
+
+    /**
+     * Returns the index of the first differing character of a[aFrom, aFrom + length) and
+     * b[bFrom, bFrom + length), relative to the range start, or -1 if the ranges are equal.
+     */
+    int mismatch(char[] a, int aFrom, char[] b, int bFrom, int length);
+
+    /**
+     * Returns the index of the first differing byte of a[aFrom, aFrom + length) and
+     * b[bFrom, bFrom + length), relative to the range start, or -1 if the ranges are equal.
+     */
+    int mismatch(byte[] a, int aFrom, byte[] b, int bFrom, int length);
+
+    /**
+     * Returns the length of the common suffix of a[0, aLength) and b[0, bLength), up to max bytes.
+     */
+    int commonSuffix(byte[] a, int aLength, byte[] b, int bLength, int max);
+
+    /**
+     * Finds the longest common substring of two character array regions, the first one in
+     * row-major order of the DP over the longer region. Returns [length, start1, start2].
+     */
+    int[] longestCommonSubstring(char[] s1, int start1, int end1, char[] s2, int start2, int end2);
+
+    /**
+     * Holds the backend chosen on first use.
+     */
+    final class Selected {
+        private static final String VECTOR_MODULE = "jdk.incubator.vector";
+        private static final String VECTOR_KERNELS = "org.diffhunter.diff.VectorKernels";
+
+        static final DiffKernels INSTANCE = select();
+
+        private Selected() {}
+
+        /**
+         * Returns the Vector API backend if the incubator module is in the boot layer and the
+         * hardware has SIMD registers it can use, otherwise the scalar backend.
+         */
+        private static DiffKernels select() {
+            if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+                try {
+                    return (DiffKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                    // Fall through to the scalar backend.
+                }
+            }
+            return new ScalarKernels();
+        }
+    }
+}
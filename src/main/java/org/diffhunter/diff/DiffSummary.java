@@ -0,0 +1,227 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffSegment;
+import org.diffhunter.search.ExclusionMatcher;
+import org.diffhunter.util.Constants;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The changed lines of one side of an entry, compared with a target without exclusions, kept so
+ * that an exclusion rule change can reclassify the entry without diffing it again.
+ * Changed header lines are compared as a multiset, as HeaderDiff matches headers by name; changed
+ * body lines are paired within their hunk, as the line diff aligned them. A hunk that adds or removes
+ * lines, or a different number of changed header lines, differs under any rules. Otherwise the side
+ * differs if the masked lines of a pair differ, which is what masking both texts gives for rules
+ * that do not span lines.
+ */
+public final class DiffSummary {
+
+    private static final int[] NO_LINES = new int[0];
+
+    private final int targetNumber;
+    private final boolean alwaysDiffers;
+    private final int headPairs;
+    private final int[] originalLines;
+    private final int[] modifiedLines;
+    private final String[] modifiedText;
+
+    private DiffSummary(int targetNumber, boolean alwaysDiffers, int headPairs,
+                       int[] originalLines, int[] modifiedLines, String[] modifiedText) {
+        this.targetNumber = targetNumber;
+        this.alwaysDiffers = alwaysDiffers;
+        this.headPairs = headPairs;
+        this.originalLines = originalLines;
+        this.modifiedLines = modifiedLines;
+        this.modifiedText = modifiedText;
+    }
+
+    /**
+     * Returns a summary for a side whose texts are equal.
+     */
+    public static DiffSummary equal(int targetNumber) {
+        return new DiffSummary(targetNumber, false, 0, NO_LINES, NO_LINES, null);
+    }
+
+    /**
+     * Returns a summary for a side that differs under any rules, such as a changed binary body.
+     */
+    public static DiffSummary different(int targetNumber) {
+        return new DiffSummary(targetNumber, true, 0, NO_LINES, NO_LINES, null);
+    }
+
+    /**
+     * Builds the summary from line-level diffs of the unmasked texts, whose bodies start at the given
+     * offsets (-1 if a text has no blank line). The changed lines of the modified text are kept as
+     * text when they fit in DIFF_SUMMARY_MAX_CHARS, so it does not have to be loaded again.
+     */
+    public static DiffSummary build(int targetNumber, List<DiffSegment> diffs, String original, int originalBody,
+                                    String modified, int modifiedBody) {
+        if (diffs.isEmpty()) return equal(targetNumber);
+
+        int[] originalStarts = StructuredDiff.lineStarts(original);
+        int[] modifiedStarts = StructuredDiff.lineStarts(modified);
+        int originalBodyLine = originalBody < 0 ? Integer.MAX_VALUE : StructuredDiff.lineNumber(originalStarts, originalBody);
+        int modifiedBodyLine = modifiedBody < 0 ? Integer.MAX_VALUE : StructuredDiff.lineNumber(modifiedStarts, modifiedBody);
+
+        boolean[] originalChanged = new boolean[originalStarts.length + 1];
+        boolean[] modifiedChanged = new boolean[modifiedStarts.length + 1];
+        for (DiffSegment diff : diffs) {
+            int[] starts = diff.isOriginal() ? originalStarts : modifiedStarts;
+            boolean[] changed = diff.isOriginal() ? originalChanged : modifiedChanged;
+            int first = StructuredDiff.lineNumber(starts, diff.getStartOffset());
+            int last = StructuredDiff.lineNumber(starts, Math.max(diff.getStartOffset(), diff.getEndOffset() - 1));
+            for (int line = first; line <= last; line++) {
+                changed[line] = true;
+            }
+        }
+
+        int[] originalPairs = new int[16];
+        int[] modifiedPairs = new int[16];
+        int count = 0;
+
+        int originalHead = Math.min(originalBodyLine, originalStarts.length + 1);
+        int modifiedHead = Math.min(modifiedBodyLine, modifiedStarts.length + 1);
+        int[] originalHeadLines = changedLines(originalChanged, 1, originalHead);
+        int[] modifiedHeadLines = changedLines(modifiedChanged, 1, modifiedHead);
+        if (originalHeadLines.length != modifiedHeadLines.length) return different(targetNumber);
+        for (int k = 0; k < originalHeadLines.length; k++) {
+            if (count == originalPairs.length) {
+                originalPairs = Arrays.copyOf(originalPairs, count * 2);
+                modifiedPairs = Arrays.copyOf(modifiedPairs, count * 2);
+            }
+            originalPairs[count] = originalHeadLines[k];
+            modifiedPairs[count++] = modifiedHeadLines[k];
+        }
+        int headPairs = count;
+
+        int o = originalHead;
+        int m = modifiedHead;
+        int originalEnd = originalStarts.length + 1;
+        int modifiedEnd = modifiedStarts.length + 1;
+        while (true) {
+            while (o < originalEnd && m < modifiedEnd && !originalChanged[o] && !modifiedChanged[m]) {
+                o++;
+                m++;
+            }
+            if (o >= originalEnd && m >= modifiedEnd) break;
+            int originalRun = 0;
+            while (o + originalRun < originalEnd && originalChanged[o + originalRun]) originalRun++;
+            int modifiedRun = 0;
+            while (m + modifiedRun < modifiedEnd && modifiedChanged[m + modifiedRun]) modifiedRun++;
+            if (originalRun != modifiedRun) return different(targetNumber);
+            if (originalRun == 0) {
+                o++;
+                m++;
+                continue;
+            }
+            for (int k = 0; k < originalRun; k++) {
+                if (count == originalPairs.length) {
+                    originalPairs = Arrays.copyOf(originalPairs, count * 2);
+                    modifiedPairs = Arrays.copyOf(modifiedPairs, count * 2);
+                }
+                originalPairs[count] = o + k;
+                modifiedPairs[count++] = m + k;
+            }
+            o += originalRun;
+            m += modifiedRun;
+        }
+        if (count == 0) return equal(targetNumber);
+
+        int[] originalRanges = lineRanges(original, originalStarts, originalPairs, count);
+        int[] modifiedRanges = lineRanges(modified, modifiedStarts, modifiedPairs, count);
+        return new DiffSummary(targetNumber, false, headPairs, originalRanges, modifiedRanges,
+                keptText(modified, modifiedRanges));
+    }
+
+    /** Returns the number of the target entry this summary was computed against. */
+    public int getTargetNumber() { return targetNumber; }
+
+    /**
+     * Returns true if the side still differs once the matcher's rules are masked in both texts.
+     * The modified text is only loaded if its changed lines were not kept.
+     */
+    public boolean differs(String original, Supplier<String> modified, ExclusionMatcher matcher) {
+        if (alwaysDiffers) return true;
+        if (originalLines.length == 0) return false;
+        if (matcher.isEmpty()) return true;
+
+        String[] modifiedLineText = modifiedText != null ? modifiedText : lineText(modified.get(), modifiedLines);
+        String[] originalLineText = lineText(original, originalLines);
+
+        if (headPairs > 0) {
+            String[] originalHead = new String[headPairs];
+            String[] modifiedHead = new String[headPairs];
+            for (int i = 0; i < headPairs; i++) {
+                originalHead[i] = ExclusionMask.mask(originalLineText[i], matcher).getText();
+                modifiedHead[i] = ExclusionMask.mask(modifiedLineText[i], matcher).getText();
+            }
+            Arrays.sort(originalHead);
+            Arrays.sort(modifiedHead);
+            if (!Arrays.equals(originalHead, modifiedHead)) return true;
+        }
+        for (int i = headPairs; i < originalLineText.length; i++) {
+            if (!ExclusionMask.mask(originalLineText[i], matcher).getText()
+                    .equals(ExclusionMask.mask(modifiedLineText[i], matcher).getText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the estimated heap size of the summary in bytes. */
+    public long getEstimatedBytes() {
+        long bytes = 48 + 4L * (originalLines.length + modifiedLines.length);
+        if (modifiedText != null) {
+            for (String line : modifiedText) {
+                bytes += 40 + line.length();
+            }
+        }
+        return bytes;
+    }
+
+    /** Returns the changed line numbers in [from, to). */
+    private static int[] changedLines(boolean[] changed, int from, int to) {
+        int[] lines = new int[8];
+        int count = 0;
+        for (int line = from; line < to && line < changed.length; line++) {
+            if (!changed[line]) continue;
+            if (count == lines.length) lines = Arrays.copyOf(lines, count * 2);
+            lines[count++] = line;
+        }
+        return Arrays.copyOf(lines, count);
+    }
+
+    /** Returns start/end offset pairs of the given 1-based lines, without their line breaks. */
+    private static int[] lineRanges(String text, int[] lineStarts, int[] lines, int count) {
+        int[] ranges = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            int line = lines[i];
+            int start = line <= lineStarts.length ? lineStarts[line - 1] : text.length();
+            int end = line < lineStarts.length ? lineStarts[line] - 1 : text.length();
+            ranges[2 * i] = start;
+            ranges[2 * i + 1] = end;
+        }
+        return ranges;
+    }
+
+    /** Returns the text of each range. */
+    private static String[] lineText(String text, int[] ranges) {
+        String[] lines = new String[ranges.length / 2];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = text.substring(ranges[2 * i], ranges[2 * i + 1]);
+        }
+        return lines;
+    }
+
+    /** Returns the text of each range if they fit in DIFF_SUMMARY_MAX_CHARS together, or null. */
+    private static String[] keptText(String text, int[] ranges) {
+        long chars = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            chars += ranges[i + 1] - ranges[i];
+        }
+        return chars <= Constants.DIFF_SUMMARY_MAX_CHARS ? lineText(text, ranges) : null;
+    }
+}
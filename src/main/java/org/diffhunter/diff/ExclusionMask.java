@@ -0,0 +1,141 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffSegment;
+import org.diffhunter.search.ExclusionMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A message text with every exclusion match replaced by a single placeholder character.
+ * Both sides of a diff are masked before diffing, so excluded values such as CSRF tokens or
+ * timestamps compare equal and never produce deltas, and the lines around them still align.
+ * The mask keeps the match ranges, so offsets in the masked text map back to the original.
+ */
+public final class ExclusionMask {
+
+    /** The character every excluded match is replaced with. */
+    public static final char PLACEHOLDER = '\uE000';
+
+    private final String original;
+    private final String text;
+    private final int[] maskedStarts;
+    private final int[] originalStarts;
+    private final int[] originalEnds;
+
+    private ExclusionMask(String original, String text, int[] maskedStarts, int[] originalStarts, int[] originalEnds) {
+        this.original = original;
+        this.text = text;
+        this.maskedStarts = maskedStarts;
+        this.originalStarts = originalStarts;
+        this.originalEnds = originalEnds;
+    }
+
+    /**
+     * Masks the matches of the matcher's rules in the text. Overlapping matches are merged.
+     */
+    public static ExclusionMask mask(String text, ExclusionMatcher matcher) {
+        long[] ranges = matcher.isEmpty() ? new long[0] : matcher.findAll(text);
+        int count = ranges.length;
+        if (count == 0) {
+            return new ExclusionMask(text, text, new int[0], new int[0], new int[0]);
+        }
+
+        Arrays.sort(ranges);
+        int[] maskedStarts = new int[count];
+        int[] originalStarts = new int[count];
+        int[] originalEnds = new int[count];
+        int merged = 0;
+        for (int i = 0; i < count; i++) {
+            int start = (int) (ranges[i] >>> 32);
+            int end = (int) ranges[i];
+            if (merged > 0 && start <= originalEnds[merged - 1]) {
+                originalEnds[merged - 1] = Math.max(originalEnds[merged - 1], end);
+            } else {
+                originalStarts[merged] = start;
+                originalEnds[merged] = end;
+                merged++;
+            }
+        }
+
+        StringBuilder masked = new StringBuilder(text.length());
+        int last = 0;
+        for (int i = 0; i < merged; i++) {
+            masked.append(text, last, originalStarts[i]);
+            maskedStarts[i] = masked.length();
+            masked.append(PLACEHOLDER);
+            last = originalEnds[i];
+        }
+        masked.append(text, last, text.length());
+
+        return new ExclusionMask(text, masked.toString(), Arrays.copyOf(maskedStarts, merged),
+                Arrays.copyOf(originalStarts, merged), Arrays.copyOf(originalEnds, merged));
+    }
+
+    /** Returns the masked text. */
+    public String getText() { return text; }
+
+    /** Returns true if nothing was masked. */
+    public boolean isEmpty() { return maskedStarts.length == 0; }
+
+    /**
+     * Maps an offset in the masked text to the original text. The placeholder's start maps to
+     * the start of its match and its end to the end of the match.
+     */
+    public int toOriginal(int maskedOffset) {
+        int index = Arrays.binarySearch(maskedStarts, maskedOffset);
+        if (index >= 0) return originalStarts[index];
+        index = -index - 2;
+        if (index < 0) return maskedOffset;
+        return originalEnds[index] + maskedOffset - maskedStarts[index] - 1;
+    }
+
+    /**
+     * Maps a body offset of the original text to the masked text, or returns -1 for -1.
+     * If a match swallowed the blank line, the first blank line left in the masked text is used.
+     */
+    public int toMaskedBodyOffset(int originalBody) {
+        if (originalBody < 0 || isEmpty()) return originalBody;
+        int index = Arrays.binarySearch(originalStarts, originalBody);
+        index = index >= 0 ? index - 1 : -index - 2;
+        int masked = index < 0
+                ? originalBody
+                : maskedStarts[index] + 1 + Math.max(0, originalBody - originalEnds[index]);
+        if (masked >= 2 && text.startsWith("\n\n", masked - 2)) return masked;
+        int blank = text.indexOf("\n\n");
+        return blank < 0 ? -1 : blank + 2;
+    }
+
+    /**
+     * Maps segments computed on two masked texts back to their original texts.
+     * Offsets are mapped, line numbers recomputed, and content that contains a placeholder is
+     * replaced by the original text it stands for. Parent line indices are kept.
+     */
+    public static List<DiffSegment> unmask(List<DiffSegment> diffs, ExclusionMask original, ExclusionMask modified) {
+        if (original.isEmpty() && modified.isEmpty()) return diffs;
+
+        int[] originalLines = null;
+        int[] modifiedLines = null;
+        List<DiffSegment> unmasked = new ArrayList<>(diffs.size());
+        for (DiffSegment diff : diffs) {
+            ExclusionMask mask = diff.isOriginal() ? original : modified;
+            if (mask.isEmpty()) {
+                unmasked.add(diff);
+                continue;
+            }
+            if (diff.isOriginal() && originalLines == null) originalLines = StructuredDiff.lineStarts(original.original);
+            if (!diff.isOriginal() && modifiedLines == null) modifiedLines = StructuredDiff.lineStarts(modified.original);
+
+            int start = mask.toOriginal(diff.getStartOffset());
+            int end = Math.max(start, mask.toOriginal(diff.getEndOffset()));
+            String content = diff.getContent().indexOf(PLACEHOLDER) < 0
+                    ? diff.getContent()
+                    : mask.original.substring(start, end);
+            int[] lineStarts = diff.isOriginal() ? originalLines : modifiedLines;
+            unmasked.add(new DiffSegment(start, end, content, diff.isOriginal(), diff.getType(),
+                    diff.getParentLineIndex(), StructuredDiff.lineNumber(lineStarts, start)));
+        }
+        return unmasked;
+    }
+}
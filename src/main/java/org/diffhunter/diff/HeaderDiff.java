@@ -0,0 +1,210 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffSegment;
+import org.diffhunter.model.DiffType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diffs HTTP header blocks as multimaps keyed by lower-case header name, in O(h).
+ * Header order is ignored: a reordered Set-Cookie or an inserted Date header does not shift
+ * the alignment of the others. Within a name, identical values are matched first, remaining values
+ * are paired in order as modified, and the rest are deleted or added.
+ * The request or status line is diffed as a line by the text calculator, or, for request lines
+ * that differ only in the query string, by parameter with ParameterDiff.
+ */
+final class HeaderDiff {
+
+    /** Private constructor to prevent instantiation. */
+    private HeaderDiff() {}
+
+    /**
+     * Diffs the header blocks [0, originalEnd) and [0, modifiedEnd) of two messages.
+     * The parent line index of each segment is its 0-based line in the block, which is the same
+     * in line and character mode. Segments of a long start line split into virtual lines all get
+     * index 0; query parameter segments are numbered below zero instead, so each one is listed on its
+     * own without colliding with a header line.
+     */
+    static List<DiffSegment> diff(DiffCalculator calculator, String original, int originalEnd,
+                                  String modified, int modifiedEnd, boolean characterLevelDiff, boolean parameters) {
+        List<Header> originalHeaders = parse(original, originalEnd);
+        List<Header> modifiedHeaders = parse(modified, modifiedEnd);
+        List<DiffSegment> diffs = new ArrayList<>();
+
+        Header originalStart = originalHeaders.get(0);
+        Header modifiedStart = modifiedHeaders.get(0);
+        if (originalStart.end != modifiedStart.end || !original.regionMatches(0, modified, 0, originalStart.end)) {
+            List<StructuredDiff.Change> query = parameters
+                    ? ParameterDiff.diffQuery(original, originalStart.end, modified, modifiedStart.end)
+                    : null;
+            if (query != null) {
+                StructuredDiff.addChanges(original, modified, query, Integer.MIN_VALUE, Integer.MIN_VALUE, diffs);
+            } else {
+                for (DiffSegment diff : calculator.findDifferences(original.substring(0, originalStart.end),
+                        modified.substring(0, modifiedStart.end), characterLevelDiff)) {
+                    diffs.add(new DiffSegment(diff.getStartOffset(), diff.getEndOffset(), diff.getContent(),
+                            diff.isOriginal(), diff.getType(), 0, diff.getLineNumber()));
+                }
+            }
+        }
+
+        Map<String, List<Header>> modifiedByName = new LinkedHashMap<>();
+        for (int i = 1; i < modifiedHeaders.size(); i++) {
+            Header header = modifiedHeaders.get(i);
+            modifiedByName.computeIfAbsent(header.name, k -> new ArrayList<>()).add(header);
+        }
+        Map<String, List<Header>> originalByName = new LinkedHashMap<>();
+        for (int i = 1; i < originalHeaders.size(); i++) {
+            Header header = originalHeaders.get(i);
+            originalByName.computeIfAbsent(header.name, k -> new ArrayList<>()).add(header);
+        }
+
+        List<DiffSegment> headerDiffs = new ArrayList<>();
+        for (Map.Entry<String, List<Header>> group : originalByName.entrySet()) {
+            List<Header> others = modifiedByName.remove(group.getKey());
+            diffGroup(original, group.getValue(), modified, others == null ? List.of() : others,
+                    characterLevelDiff, headerDiffs);
+        }
+        for (List<Header> added : modifiedByName.values()) {
+            for (Header header : added) {
+                headerDiffs.add(wholeLine(modified, header, false, DiffType.ADDED));
+            }
+        }
+
+        headerDiffs.sort(Comparator.comparingInt(DiffSegment::getLineNumber));
+        diffs.addAll(headerDiffs);
+        return diffs;
+    }
+
+    /**
+     * Diffs the values of one header name.
+     */
+    private static void diffGroup(String original, List<Header> originals, String modified, List<Header> others,
+                                  boolean characterLevelDiff, List<DiffSegment> out) {
+        Map<String, ArrayDeque<Header>> byValue = new HashMap<>();
+        for (Header header : others) {
+            byValue.computeIfAbsent(header.value(modified), k -> new ArrayDeque<>()).add(header);
+        }
+
+        List<Header> unmatched = new ArrayList<>();
+        for (Header header : originals) {
+            ArrayDeque<Header> same = byValue.get(header.value(original));
+            if (same != null && !same.isEmpty()) {
+                same.poll().matched = true;
+            } else {
+                unmatched.add(header);
+            }
+        }
+        List<Header> unmatchedOthers = new ArrayList<>();
+        for (Header header : others) {
+            if (!header.matched) unmatchedOthers.add(header);
+        }
+
+        int paired = Math.min(unmatched.size(), unmatchedOthers.size());
+        for (int i = 0; i < paired; i++) {
+            Header a = unmatched.get(i);
+            Header b = unmatchedOthers.get(i);
+            if (characterLevelDiff) {
+                addChangedRange(original, a, modified, b, out);
+            } else {
+                out.add(wholeLine(original, a, true, DiffType.MODIFIED));
+                out.add(wholeLine(modified, b, false, DiffType.MODIFIED));
+            }
+        }
+        for (int i = paired; i < unmatched.size(); i++) {
+            out.add(wholeLine(original, unmatched.get(i), true, DiffType.DELETED));
+        }
+        for (int i = paired; i < unmatchedOthers.size(); i++) {
+            out.add(wholeLine(modified, unmatchedOthers.get(i), false, DiffType.ADDED));
+        }
+    }
+
+    /**
+     * Adds the part of two paired header lines between their common prefix and suffix.
+     */
+    private static void addChangedRange(String original, Header a, String modified, Header b, List<DiffSegment> out) {
+        int lengthA = a.end - a.start;
+        int lengthB = b.end - b.start;
+        int prefix = 0;
+        while (prefix < lengthA && prefix < lengthB
+                && original.charAt(a.start + prefix) == modified.charAt(b.start + prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < lengthA - prefix && suffix < lengthB - prefix
+                && original.charAt(a.end - 1 - suffix) == modified.charAt(b.end - 1 - suffix)) {
+            suffix++;
+        }
+
+        if (a.start + prefix < a.end - suffix) {
+            out.add(new DiffSegment(a.start + prefix, a.end - suffix, original.substring(a.start + prefix, a.end - suffix),
+                    true, DiffType.MODIFIED, a.line, a.line + 1));
+        }
+        if (b.start + prefix < b.end - suffix) {
+            out.add(new DiffSegment(b.start + prefix, b.end - suffix, modified.substring(b.start + prefix, b.end - suffix),
+                    false, DiffType.MODIFIED, b.line, b.line + 1));
+        }
+    }
+
+    /** Returns a segment covering a whole header line. */
+    private static DiffSegment wholeLine(String text, Header header, boolean isOriginal, DiffType type) {
+        return new DiffSegment(header.start, header.end, text.substring(header.start, header.end),
+                isOriginal, type, header.line, header.line + 1);
+    }
+
+    /**
+     * Splits the block [0, end) into lines. The first entry is the request or status line.
+     */
+    private static List<Header> parse(String text, int end) {
+        List<Header> headers = new ArrayList<>();
+        int lineStart = 0;
+        int line = 0;
+        while (true) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > end) lineEnd = end;
+
+            int colon = lineStart;
+            while (colon < lineEnd && text.charAt(colon) != ':') colon++;
+            String name = colon == lineEnd
+                    ? text.substring(lineStart, lineEnd)
+                    : text.substring(lineStart, colon).trim().toLowerCase();
+            headers.add(new Header(name, lineStart, lineEnd, colon == lineEnd ? lineEnd : colon + 1, line));
+
+            if (lineEnd >= end) break;
+            lineStart = lineEnd + 1;
+            line++;
+        }
+        return headers;
+    }
+
+    /**
+     * A header line: its lower-case name, source range, value offset and 0-based line.
+     */
+    private static final class Header {
+        final String name;
+        final int start;
+        final int end;
+        final int valueStart;
+        final int line;
+        boolean matched;
+
+        Header(String name, int start, int end, int valueStart, int line) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.valueStart = valueStart;
+            this.line = line;
+        }
+
+        /** Returns the value with surrounding whitespace removed. */
+        String value(String text) {
+            return text.substring(valueStart, end).trim();
+        }
+    }
+}
@@ -1,38 +1,122 @@
 package org.diffhunter.diff;
 
-import java.nio.charset.StandardCharsets;
-
 /**
- * Converts strings to hexdump format.
+ * Converts raw bytes to hexdump format.
+ * Each row holds 16 bytes: an 8-digit offset, two spaces, 16 "XX " hex columns, two spaces,
+ * the ASCII column and a newline, so every full row is ROW_WIDTH characters long.
+ * Rows are rendered from nibble and ASCII lookup tables into a presized char array,
+ * and any range of rows can be rendered on its own.
  */
 public final class HexDumpConverter {
 
+    /** Number of bytes per hexdump row. */
+    public static final int BYTES_PER_ROW = 16;
+
+    /** Number of characters in a full hexdump row, including the newline. */
+    static final int ROW_WIDTH = 77;
+
+    private static final int HEX_COLUMN = 10;
+    private static final int ASCII_COLUMN = 60;
+
+    /** Upper-case hex digit for each nibble value. */
+    static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** Printable ASCII rendering of each unsigned byte value, '.' for non-printable bytes. */
+    static final char[] ASCII = new char[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            ASCII[b] = b >= 32 && b <= 126 ? (char) b : '.';
+        }
+    }
+
     /** Private constructor to prevent instantiation. */
     private HexDumpConverter() {}
 
     /**
-     * Converts a string to hexdump format.
+     * Converts raw bytes to hexdump format.
      */
-    public static String toHexDump(String input) {
-        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
-        StringBuilder sb = new StringBuilder();
-
-        for (int i = 0; i < bytes.length; i += 16) {
-            sb.append(String.format("%08X  ", i));
-
-            StringBuilder ascii = new StringBuilder();
-            for (int j = 0; j < 16; j++) {
-                if (i + j < bytes.length) {
-                    byte b = bytes[i + j];
-                    sb.append(String.format("%02X ", b));
-                    ascii.append(b >= 32 && b <= 126 ? (char) b : '.');
+    public static String toHexDump(byte[] bytes) {
+        return toHexDump(bytes, 0, getRowCount(bytes.length));
+    }
+
+    /**
+     * Renders rows [fromRow, fromRow + rowCount) of the hexdump of the bytes, clamped to the available rows.
+     * The result is identical to the same rows of the full dump, so large bodies can be rendered on demand.
+     */
+    public static String toHexDump(byte[] bytes, int fromRow, int rowCount) {
+        int totalRows = getRowCount(bytes.length);
+        int first = Math.max(0, Math.min(fromRow, totalRows));
+        int last = first + Math.max(0, Math.min(totalRows - first, rowCount));
+        if (first == last) return "";
+
+        int start = first * BYTES_PER_ROW;
+        int end = Math.min(bytes.length, last * BYTES_PER_ROW);
+        char[] out = new char[dumpLength(end - start)];
+        int pos = 0;
+
+        for (int i = start; i < end; i += BYTES_PER_ROW) {
+            int rowEnd = Math.min(end, i + BYTES_PER_ROW);
+
+            for (int shift = 28; shift >= 0; shift -= 4) {
+                out[pos++] = HEX_DIGITS[(i >>> shift) & 0xF];
+            }
+            out[pos++] = ' ';
+            out[pos++] = ' ';
+
+            for (int j = i; j < i + BYTES_PER_ROW; j++) {
+                if (j < rowEnd) {
+                    int b = bytes[j] & 0xFF;
+                    out[pos++] = HEX_DIGITS[b >>> 4];
+                    out[pos++] = HEX_DIGITS[b & 0xF];
                 } else {
-                    sb.append("   ");
+                    out[pos++] = ' ';
+                    out[pos++] = ' ';
                 }
+                out[pos++] = ' ';
             }
+            out[pos++] = ' ';
+            out[pos++] = ' ';
 
-            sb.append("  ").append(ascii).append("\n");
+            for (int j = i; j < rowEnd; j++) {
+                out[pos++] = ASCII[bytes[j] & 0xFF];
+            }
+            out[pos++] = '\n';
+        }
+        return new String(out, 0, pos);
+    }
+
+    /**
+     * Returns the number of hexdump rows for a body of the given length.
+     */
+    public static int getRowCount(int byteLength) {
+        return (byteLength + BYTES_PER_ROW - 1) / BYTES_PER_ROW;
+    }
+
+    /**
+     * Returns the hexdump text length for a body of the given length.
+     * Full rows are ROW_WIDTH characters; a partial last row has only its own ASCII characters.
+     */
+    static int dumpLength(int byteLength) {
+        int remainder = byteLength % BYTES_PER_ROW;
+        int length = (byteLength / BYTES_PER_ROW) * ROW_WIDTH;
+        if (remainder > 0) {
+            length += ASCII_COLUMN + remainder + 1;
         }
-        return sb.toString();
+        return length;
+    }
+
+    /**
+     * Returns the offset in the hexdump text of the first hex digit of the byte at the given index.
+     */
+    static int hexOffset(int byteIndex) {
+        return (byteIndex / BYTES_PER_ROW) * ROW_WIDTH + HEX_COLUMN + (byteIndex % BYTES_PER_ROW) * 3;
+    }
+
+    /**
+     * Returns the offset in the hexdump text of the ASCII character of the byte at the given index.
+     */
+    static int asciiOffset(int byteIndex) {
+        return (byteIndex / BYTES_PER_ROW) * ROW_WIDTH + ASCII_COLUMN + byteIndex % BYTES_PER_ROW;
     }
 }
@@ -0,0 +1,284 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structure-aware diff for JSON bodies.
+ * Both bodies are tokenized in a single pass into a light tree that keeps only source offsets and
+ * a 64-bit structural hash per value. Objects are aligned by key, so reordered keys are not a
+ * difference, and arrays are aligned with Myers over element hashes. Identical subtrees are skipped
+ * by hash, so the work and the output are proportional to the actual changes, not to formatting.
+ */
+final class JsonDiffEngine {
+
+    private static final int MAX_DEPTH = 512;
+    private static final long OBJECT_SEED = 0x5bd1e9955bd1e995L;
+    private static final long ARRAY_SEED = 0x27d4eb2f165667c5L;
+
+    private static final int VALUE = 0;
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+
+    /** Private constructor to prevent instantiation. */
+    private JsonDiffEngine() {}
+
+    /**
+     * Diffs the JSON bodies starting at the given offsets and running to the end of each text.
+     * Returns null if either body is not a single well-formed JSON value.
+     */
+    static List<StructuredDiff.Change> diff(String original, int originalFrom, String modified, int modifiedFrom) {
+        Node a;
+        Node b;
+        try {
+            a = new Parser(original, originalFrom).parseDocument();
+            b = new Parser(modified, modifiedFrom).parseDocument();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        List<StructuredDiff.Change> changes = new ArrayList<>();
+        diffNodes(a, b, changes);
+        return changes;
+    }
+
+    /**
+     * Adds the changes between two values.
+     */
+    private static void diffNodes(Node a, Node b, List<StructuredDiff.Change> out) {
+        if (a.hash == b.hash && a.kind == b.kind) return;
+
+        if (a.kind == OBJECT && b.kind == OBJECT) {
+            diffObjects(a, b, out);
+        } else if (a.kind == ARRAY && b.kind == ARRAY) {
+            diffArrays(a, b, out);
+        } else {
+            out.add(new StructuredDiff.Change(a.start, a.end, true, DiffType.MODIFIED));
+            out.add(new StructuredDiff.Change(b.start, b.end, false, DiffType.MODIFIED));
+        }
+    }
+
+    /**
+     * Aligns object members by key; members present on one side only are deleted or added.
+     */
+    private static void diffObjects(Node a, Node b, List<StructuredDiff.Change> out) {
+        Map<String, Member> byKey = new HashMap<>(b.members.size() * 2);
+        for (Member member : b.members) {
+            byKey.put(member.key, member);
+        }
+
+        for (Member member : a.members) {
+            Member other = byKey.remove(member.key);
+            if (other == null) {
+                out.add(new StructuredDiff.Change(member.start, member.value.end, true, DiffType.DELETED));
+            } else {
+                diffNodes(member.value, other.value, out);
+            }
+        }
+        for (Member member : b.members) {
+            if (byKey.get(member.key) == member) {
+                out.add(new StructuredDiff.Change(member.start, member.value.end, false, DiffType.ADDED));
+            }
+        }
+    }
+
+    /**
+     * Aligns array elements with Myers over their hashes; replaced elements are diffed pairwise.
+     */
+    private static void diffArrays(Node a, Node b, List<StructuredDiff.Change> out) {
+        StructuredDiff.alignElements(a.elements, b.elements, (x, y) -> diffNodes(x, y, out), out);
+    }
+
+    /**
+     * A JSON value: its source range, structural hash and, for containers, its children.
+     */
+    private static final class Node extends StructuredDiff.Element {
+        final int kind;
+        List<Member> members;
+        List<Node> elements;
+
+        Node(int kind, int start) {
+            super(start);
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * An object member: the raw key, the offset of the key's opening quote, and the value.
+     */
+    private static final class Member {
+        final String key;
+        final int start;
+        final Node value;
+
+        Member(String key, int start, Node value) {
+            this.key = key;
+            this.start = start;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Single-pass tokenizer and tree builder over a text range.
+     * Keys are kept raw (escapes not decoded); scalars are compared by their source text.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text, int from) {
+            this.text = text;
+            this.pos = from;
+        }
+
+        /** Parses exactly one value surrounded by optional whitespace. */
+        Node parseDocument() {
+            Node root = parseValue(0);
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw new IllegalArgumentException("Trailing data at " + pos);
+            }
+            return root;
+        }
+
+        private Node parseValue(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Nesting too deep");
+            }
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end of input");
+            }
+
+            char c = text.charAt(pos);
+            if (c == '{') return parseObject(depth);
+            if (c == '[') return parseArray(depth);
+
+            Node node = new Node(VALUE, pos);
+            if (c == '"') {
+                skipString();
+            } else {
+                while (pos < text.length() && isScalarChar(text.charAt(pos))) {
+                    pos++;
+                }
+                if (pos == node.start) {
+                    throw new IllegalArgumentException("Unexpected character at " + pos);
+                }
+            }
+            node.end = pos;
+            node.hash = StructuredDiff.mix(StructuredDiff.hashRange(text, node.start, node.end));
+            return node;
+        }
+
+        private Node parseObject(int depth) {
+            Node node = new Node(OBJECT, pos++);
+            node.members = new ArrayList<>();
+            long hash = OBJECT_SEED;
+
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    if (peek() != '"') {
+                        throw new IllegalArgumentException("Expected key at " + pos);
+                    }
+                    int keyStart = pos;
+                    skipString();
+                    String key = text.substring(keyStart + 1, pos - 1);
+                    skipWhitespace();
+                    expect(':');
+                    Node value = parseValue(depth + 1);
+                    node.members.add(new Member(key, keyStart, value));
+                    hash += StructuredDiff.mix(StructuredDiff.hashRange(text, keyStart, keyStart + key.length() + 2) * 31
+                            + value.hash);
+
+                    skipWhitespace();
+                    char c = peek();
+                    pos++;
+                    if (c == '}') break;
+                    if (c != ',') {
+                        throw new IllegalArgumentException("Expected , or } at " + (pos - 1));
+                    }
+                }
+            }
+            node.end = pos;
+            node.hash = StructuredDiff.mix(hash);
+            return node;
+        }
+
+        private Node parseArray(int depth) {
+            Node node = new Node(ARRAY, pos++);
+            node.elements = new ArrayList<>();
+            long hash = ARRAY_SEED;
+
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+            } else {
+                while (true) {
+                    Node element = parseValue(depth + 1);
+                    node.elements.add(element);
+                    hash = hash * 1000003 ^ element.hash;
+
+                    skipWhitespace();
+                    char c = peek();
+                    pos++;
+                    if (c == ']') break;
+                    if (c != ',') {
+                        throw new IllegalArgumentException("Expected , or ] at " + (pos - 1));
+                    }
+                }
+            }
+            node.end = pos;
+            node.hash = StructuredDiff.mix(hash);
+            return node;
+        }
+
+        /** Advances past a string starting at the current quote. */
+        private void skipString() {
+            pos++;
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '\\') {
+                    pos++;
+                } else if (c == '"') {
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("Expected " + c + " at " + pos);
+            }
+            pos++;
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end of input");
+            }
+            return text.charAt(pos);
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return;
+                pos++;
+            }
+        }
+
+        /** Returns true for characters of numbers and the literals true, false and null. */
+        private static boolean isScalarChar(char c) {
+            return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E';
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token-aware diff for HTML and XML bodies.
+ * Markup is tokenized in a single forward pass into a flat list of tags, text nodes and comments;
+ * no DOM is built, so multi-MB pages cost one token per node. Each token gets a 64-bit hash in which
+ * whitespace between and inside tokens is ignored and attributes are combined order-independently,
+ * so reflowed markup and reordered attributes compare equal. Myers runs over the token hashes, and
+ * replaced tags with the same name are compared attribute by attribute.
+ */
+final class MarkupDiffEngine {
+
+    private static final int TEXT = 0;
+    private static final int TAG = 1;
+    private static final int OTHER = 2;
+
+    /** Private constructor to prevent instantiation. */
+    private MarkupDiffEngine() {}
+
+    /**
+     * Diffs the markup bodies starting at the given offsets and running to the end of each text.
+     */
+    static List<StructuredDiff.Change> diff(String original, int originalFrom, String modified, int modifiedFrom) {
+        List<Token> a = new Tokenizer(original, originalFrom).tokenize();
+        List<Token> b = new Tokenizer(modified, modifiedFrom).tokenize();
+        List<StructuredDiff.Change> changes = new ArrayList<>();
+
+        StructuredDiff.alignElements(a, b, (x, y) -> diffTokens(x, y, changes), changes);
+        return changes;
+    }
+
+    /**
+     * Adds the changes between two tokens at the same position in the alignment.
+     * Tags with the same name are compared by attribute; anything else is marked modified as a whole.
+     */
+    private static void diffTokens(Token a, Token b, List<StructuredDiff.Change> out) {
+        if (a.kind != TAG || b.kind != TAG || !a.name.equals(b.name) || a.closing != b.closing) {
+            out.add(new StructuredDiff.Change(a.start, a.end, true, DiffType.MODIFIED));
+            out.add(new StructuredDiff.Change(b.start, b.end, false, DiffType.MODIFIED));
+            return;
+        }
+
+        Map<String, Attribute> byName = new HashMap<>(b.attributes.size() * 2);
+        for (Attribute attribute : b.attributes) {
+            byName.put(attribute.name, attribute);
+        }
+        for (Attribute attribute : a.attributes) {
+            Attribute other = byName.remove(attribute.name);
+            if (other == null) {
+                out.add(new StructuredDiff.Change(attribute.start, attribute.end, true, DiffType.DELETED));
+            } else if (other.valueHash != attribute.valueHash) {
+                out.add(new StructuredDiff.Change(attribute.start, attribute.end, true, DiffType.MODIFIED));
+                out.add(new StructuredDiff.Change(other.start, other.end, false, DiffType.MODIFIED));
+            }
+        }
+        for (Attribute attribute : b.attributes) {
+            if (byName.get(attribute.name) == attribute) {
+                out.add(new StructuredDiff.Change(attribute.start, attribute.end, false, DiffType.ADDED));
+            }
+        }
+    }
+
+    /**
+     * A markup token: a tag, a text node, or a comment, doctype or processing instruction.
+     */
+    private static final class Token extends StructuredDiff.Element {
+        final int kind;
+        final String name;
+        final boolean closing;
+        final List<Attribute> attributes;
+
+        Token(int kind, int start, int end, long hash, String name, boolean closing, List<Attribute> attributes) {
+            super(start);
+            this.kind = kind;
+            this.end = end;
+            this.hash = hash;
+            this.name = name;
+            this.closing = closing;
+            this.attributes = attributes;
+        }
+    }
+
+    /**
+     * A tag attribute: the lower-cased name, its source range including the value, and the value hash.
+     */
+    private static final class Attribute {
+        final String name;
+        final int start;
+        final int end;
+        final long valueHash;
+
+        Attribute(String name, int start, int end, long valueHash) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.valueHash = valueHash;
+        }
+    }
+
+    /**
+     * Forward-only tokenizer. Never fails: malformed markup degrades into text tokens.
+     * Contents of script and style elements are kept as a single raw text token.
+     */
+    private static final class Tokenizer {
+        private final String text;
+        private final List<Token> tokens = new ArrayList<>();
+        private int pos;
+
+        Tokenizer(String text, int from) {
+            this.text = text;
+            this.pos = from;
+        }
+
+        List<Token> tokenize() {
+            int length = text.length();
+            while (pos < length) {
+                if (text.charAt(pos) == '<' && pos + 1 < length && startsMarkup(text.charAt(pos + 1))) {
+                    readMarkup();
+                } else {
+                    readText();
+                }
+            }
+            return tokens;
+        }
+
+        /** Returns true if the character after '<' starts a tag, comment or declaration. */
+        private static boolean startsMarkup(char c) {
+            return Character.isLetter(c) || c == '/' || c == '!' || c == '?';
+        }
+
+        /** Reads a text node up to the next markup, dropping it if it is only whitespace. */
+        private void readText() {
+            int start = pos;
+            pos = text.indexOf('<', pos + 1);
+            while (pos >= 0 && (pos + 1 >= text.length() || !startsMarkup(text.charAt(pos + 1)))) {
+                pos = text.indexOf('<', pos + 1);
+            }
+            if (pos < 0) pos = text.length();
+            addText(start, pos);
+        }
+
+        /** Adds a text token trimmed of surrounding whitespace, unless it is empty. */
+        private void addText(int start, int end) {
+            while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+            if (start < end) {
+                tokens.add(new Token(TEXT, start, end, hashText(start, end, false), null, false, null));
+            }
+        }
+
+        /** Returns the finalized whitespace-normalized hash of a text range, optionally lower-cased. */
+        private long hashText(int start, int end, boolean ignoreCase) {
+            return StructuredDiff.mix(StructuredDiff.hashNormalized(text, start, end, ignoreCase));
+        }
+
+        /** Reads a comment, declaration, processing instruction or tag starting at '<'. */
+        private void readMarkup() {
+            int start = pos;
+            char next = text.charAt(pos + 1);
+
+            if (text.startsWith("<!--", pos)) {
+                int close = text.indexOf("-->", pos + 4);
+                pos = close < 0 ? text.length() : close + 3;
+                tokens.add(new Token(OTHER, start, pos, hashText(start, pos, false), null, false, null));
+                return;
+            }
+            if (next == '!' || next == '?') {
+                int close = text.indexOf('>', pos);
+                pos = close < 0 ? text.length() : close + 1;
+                tokens.add(new Token(OTHER, start, pos, hashText(start, pos, true), null, false, null));
+                return;
+            }
+
+            boolean closing = next == '/';
+            pos += closing ? 2 : 1;
+            int nameStart = pos;
+            while (pos < text.length() && isNameChar(text.charAt(pos))) pos++;
+            String name = text.substring(nameStart, pos).toLowerCase();
+
+            List<Attribute> attributes = new ArrayList<>();
+            long hash = StructuredDiff.mix(StructuredDiff.hashNormalized(text, nameStart, pos, true)
+                    + (closing ? 1 : 0));
+            while (pos < text.length()) {
+                skipWhitespace();
+                if (pos >= text.length()) break;
+                char c = text.charAt(pos);
+                if (c == '>') {
+                    pos++;
+                    break;
+                }
+                if (c == '/') {
+                    pos++;
+                    continue;
+                }
+                Attribute attribute = readAttribute();
+                attributes.add(attribute);
+                hash += StructuredDiff.mix(hashText(attribute.start, attribute.start + attribute.name.length(), true) * 31
+                        + attribute.valueHash);
+            }
+            tokens.add(new Token(TAG, start, pos, StructuredDiff.mix(hash), name, closing, attributes));
+
+            if (!closing && (name.equals("script") || name.equals("style"))) {
+                readRawText(name);
+            }
+        }
+
+        /** Reads name[=value] with a quoted or unquoted value. */
+        private Attribute readAttribute() {
+            int start = pos;
+            while (pos < text.length() && !Character.isWhitespace(text.charAt(pos))
+                    && text.charAt(pos) != '=' && text.charAt(pos) != '>' && text.charAt(pos) != '/') {
+                pos++;
+            }
+            if (pos == start) pos++;
+            String name = text.substring(start, pos).toLowerCase();
+
+            int nameEnd = pos;
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) != '=') {
+                pos = nameEnd;
+                return new Attribute(name, start, nameEnd, 0);
+            }
+            pos++;
+            skipWhitespace();
+
+            int valueStart = pos;
+            int valueEnd;
+            if (pos < text.length() && (text.charAt(pos) == '"' || text.charAt(pos) == '\'')) {
+                int close = text.indexOf(text.charAt(pos), pos + 1);
+                valueStart = pos + 1;
+                valueEnd = close < 0 ? text.length() : close;
+                pos = close < 0 ? text.length() : close + 1;
+            } else {
+                while (pos < text.length() && !Character.isWhitespace(text.charAt(pos)) && text.charAt(pos) != '>') {
+                    pos++;
+                }
+                valueEnd = pos;
+            }
+            return new Attribute(name, start, pos, StructuredDiff.hashNormalized(text, valueStart, valueEnd, false));
+        }
+
+        /** Reads the raw content of a script or style element as one text token. */
+        private void readRawText(String name) {
+            int start = pos;
+            int close = indexOfIgnoreCase("</" + name, pos);
+            pos = close < 0 ? text.length() : close;
+            addText(start, pos);
+        }
+
+        private int indexOfIgnoreCase(String needle, int from) {
+            for (int i = text.indexOf('<', from); i >= 0; i = text.indexOf('<', i + 1)) {
+                if (text.regionMatches(true, i, needle, 0, needle.length())) return i;
+            }
+            return -1;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        /** Returns true for characters of tag names, including XML namespaces. */
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ':' || c == '.';
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parameter-level diff for requests.
+ * The query string and form-urlencoded or multipart bodies are parsed in one pass into ordered
+ * parameter lists that keep only source offsets; JSON bodies are handed to JsonDiffEngine, which
+ * already aligns them by key. Parameters are grouped by name, identical values are matched first,
+ * remaining values are paired in order and reported over their exact value ranges, and the rest
+ * are deleted or added as a whole. Parameter order is ignored.
+ */
+final class ParameterDiff {
+
+    /** Private constructor to prevent instantiation. */
+    private ParameterDiff() {}
+
+    /**
+     * Diffs the query strings of two request lines [0, originalEnd) and [0, modifiedEnd).
+     * Returns null if the lines differ anywhere other than in the query (method, path or version).
+     */
+    static List<StructuredDiff.Change> diffQuery(String original, int originalEnd, String modified, int modifiedEnd) {
+        int[] a = splitRequestLine(original, originalEnd);
+        int[] b = splitRequestLine(modified, modifiedEnd);
+        if (a == null || b == null) return null;
+
+        int pathEndA = a[1] < 0 ? a[2] : a[1];
+        int pathEndB = b[1] < 0 ? b[2] : b[1];
+        if (pathEndA != pathEndB || !original.regionMatches(0, modified, 0, pathEndA)) return null;
+        if (originalEnd - a[2] != modifiedEnd - b[2] || !original.regionMatches(a[2], modified, b[2], originalEnd - a[2])) {
+            return null;
+        }
+
+        List<StructuredDiff.Change> changes = new ArrayList<>();
+        diffParameters(original, parseUrlEncoded(original, a[1] < 0 ? a[2] : a[1] + 1, a[2]),
+                modified, parseUrlEncoded(modified, b[1] < 0 ? b[2] : b[1] + 1, b[2]), changes);
+        return changes;
+    }
+
+    /**
+     * Diffs two request bodies starting at the given offsets and running to the end of each text,
+     * given their Content-Type values as sent. Media types and parameter names are matched ignoring
+     * case; the boundary value keeps its case. Returns null unless both bodies are form-urlencoded,
+     * both are multipart with a boundary, or both are well-formed JSON.
+     */
+    static List<StructuredDiff.Change> diffBody(String original, int originalFrom, String originalType,
+                                                String modified, int modifiedFrom, String modifiedType) {
+        if (originalType == null || modifiedType == null) return null;
+        String originalLower = originalType.toLowerCase(Locale.ROOT);
+        String modifiedLower = modifiedType.toLowerCase(Locale.ROOT);
+
+        if (originalLower.contains("x-www-form-urlencoded") && modifiedLower.contains("x-www-form-urlencoded")) {
+            List<StructuredDiff.Change> changes = new ArrayList<>();
+            diffParameters(original, parseUrlEncoded(original, originalFrom, trimEnd(original, originalFrom)),
+                    modified, parseUrlEncoded(modified, modifiedFrom, trimEnd(modified, modifiedFrom)), changes);
+            return changes;
+        }
+        if (originalLower.contains("multipart/") && modifiedLower.contains("multipart/")) {
+            List<Parameter> a = parseMultipart(original, originalFrom, boundary(originalType));
+            List<Parameter> b = parseMultipart(modified, modifiedFrom, boundary(modifiedType));
+            if (a == null || b == null) return null;
+            List<StructuredDiff.Change> changes = new ArrayList<>();
+            diffParameters(original, a, modified, b, changes);
+            return changes;
+        }
+        if (originalLower.contains("json") && modifiedLower.contains("json")) {
+            return JsonDiffEngine.diff(original, originalFrom, modified, modifiedFrom);
+        }
+        return null;
+    }
+
+    /**
+     * Adds the changes between two parameter lists, matched by name.
+     */
+    private static void diffParameters(String original, List<Parameter> originals,
+                                       String modified, List<Parameter> others, List<StructuredDiff.Change> out) {
+        Map<String, List<Parameter>> othersByName = new LinkedHashMap<>();
+        for (Parameter parameter : others) {
+            othersByName.computeIfAbsent(parameter.name, k -> new ArrayList<>()).add(parameter);
+        }
+        Map<String, List<Parameter>> originalsByName = new LinkedHashMap<>();
+        for (Parameter parameter : originals) {
+            originalsByName.computeIfAbsent(parameter.name, k -> new ArrayList<>()).add(parameter);
+        }
+
+        for (Map.Entry<String, List<Parameter>> group : originalsByName.entrySet()) {
+            List<Parameter> sameName = othersByName.remove(group.getKey());
+            diffGroup(original, group.getValue(), modified, sameName == null ? List.of() : sameName, out);
+        }
+        for (List<Parameter> added : othersByName.values()) {
+            for (Parameter parameter : added) {
+                out.add(new StructuredDiff.Change(parameter.start, parameter.end, false, DiffType.ADDED));
+            }
+        }
+    }
+
+    /**
+     * Adds the changes between the values of one parameter name.
+     */
+    private static void diffGroup(String original, List<Parameter> originals, String modified, List<Parameter> others,
+                                  List<StructuredDiff.Change> out) {
+        Map<String, ArrayDeque<Parameter>> byValue = new HashMap<>();
+        for (Parameter parameter : others) {
+            byValue.computeIfAbsent(parameter.value(modified), k -> new ArrayDeque<>()).add(parameter);
+        }
+
+        List<Parameter> unmatched = new ArrayList<>();
+        for (Parameter parameter : originals) {
+            ArrayDeque<Parameter> same = byValue.get(parameter.value(original));
+            if (same != null && !same.isEmpty()) {
+                same.poll().matched = true;
+            } else {
+                unmatched.add(parameter);
+            }
+        }
+        List<Parameter> unmatchedOthers = new ArrayList<>();
+        for (Parameter parameter : others) {
+            if (!parameter.matched) unmatchedOthers.add(parameter);
+        }
+
+        int paired = Math.min(unmatched.size(), unmatchedOthers.size());
+        for (int i = 0; i < paired; i++) {
+            Parameter a = unmatched.get(i);
+            Parameter b = unmatchedOthers.get(i);
+            out.add(new StructuredDiff.Change(a.valueStart, a.valueEnd, true, DiffType.MODIFIED));
+            out.add(new StructuredDiff.Change(b.valueStart, b.valueEnd, false, DiffType.MODIFIED));
+        }
+        for (int i = paired; i < unmatched.size(); i++) {
+            Parameter parameter = unmatched.get(i);
+            out.add(new StructuredDiff.Change(parameter.start, parameter.end, true, DiffType.DELETED));
+        }
+        for (int i = paired; i < unmatchedOthers.size(); i++) {
+            Parameter parameter = unmatchedOthers.get(i);
+            out.add(new StructuredDiff.Change(parameter.start, parameter.end, false, DiffType.ADDED));
+        }
+    }
+
+    /**
+     * Returns {target start, query '?' offset or -1, version start} of a request line, or null if
+     * it is not "METHOD target VERSION".
+     */
+    private static int[] splitRequestLine(String text, int end) {
+        int firstSpace = text.indexOf(' ');
+        if (firstSpace < 0 || firstSpace >= end) return null;
+        int lastSpace = text.lastIndexOf(' ', end - 1);
+        if (lastSpace <= firstSpace) return null;
+
+        int question = text.indexOf('?', firstSpace + 1);
+        if (question >= lastSpace) question = -1;
+        return new int[]{firstSpace + 1, question, lastSpace};
+    }
+
+    /**
+     * Parses name=value pairs separated by '&' in [from, to). Names are compared as sent, not decoded.
+     */
+    private static List<Parameter> parseUrlEncoded(String text, int from, int to) {
+        List<Parameter> parameters = new ArrayList<>();
+        int start = from;
+        while (start < to) {
+            int end = text.indexOf('&', start);
+            if (end < 0 || end > to) end = to;
+            if (end > start) {
+                int equals = text.indexOf('=', start);
+                if (equals < 0 || equals > end) {
+                    parameters.add(new Parameter(text.substring(start, end), start, end, end, end));
+                } else {
+                    parameters.add(new Parameter(text.substring(start, equals), start, end, equals + 1, end));
+                }
+            }
+            start = end + 1;
+        }
+        return parameters;
+    }
+
+    /**
+     * Parses multipart parts into parameters named by their Content-Disposition name, with the part
+     * content as the value. Returns null if the boundary is missing or never occurs in the body.
+     */
+    private static List<Parameter> parseMultipart(String text, int from, String boundary) {
+        if (boundary == null) return null;
+        String delimiter = "--" + boundary;
+        int partStart = text.indexOf(delimiter, from);
+        if (partStart < 0) return null;
+
+        List<Parameter> parameters = new ArrayList<>();
+        while (true) {
+            int headerStart = partStart + delimiter.length();
+            if (text.startsWith("--", headerStart)) break;
+            headerStart = text.indexOf('\n', headerStart);
+            if (headerStart < 0) break;
+            headerStart++;
+
+            int next = text.indexOf("\n" + delimiter, headerStart);
+            int partEnd = next < 0 ? text.length() : next;
+            int headerEnd = text.indexOf("\n\n", headerStart);
+            int valueStart = headerEnd < 0 || headerEnd >= partEnd ? partEnd : headerEnd + 2;
+
+            String name = partName(text, headerStart, valueStart);
+            parameters.add(new Parameter(name, headerStart, partEnd, valueStart, partEnd));
+
+            if (next < 0) break;
+            partStart = next + 1;
+        }
+        return parameters;
+    }
+
+    /**
+     * Returns the name="..." value from the part headers in [from, to), or the empty string.
+     */
+    private static String partName(String text, int from, int to) {
+        int index = text.indexOf("name=", from);
+        while (index >= 0 && index < to) {
+            char before = text.charAt(index - 1);
+            if (before == ';' || before == ' ') {
+                int start = index + 5;
+                if (start < to && text.charAt(start) == '"') {
+                    int close = text.indexOf('"', start + 1);
+                    if (close >= 0 && close < to) return text.substring(start + 1, close);
+                }
+                int end = start;
+                while (end < to && text.charAt(end) != ';' && text.charAt(end) != '\n') end++;
+                return text.substring(start, end).trim();
+            }
+            index = text.indexOf("name=", index + 1);
+        }
+        return "";
+    }
+
+    /**
+     * Returns the boundary parameter of a multipart Content-Type, or null. The parameter name is
+     * matched ignoring case; the boundary value keeps its case.
+     */
+    private static String boundary(String contentType) {
+        int index = 0;
+        while (index + 9 <= contentType.length() && !contentType.regionMatches(true, index, "boundary=", 0, 9)) {
+            index++;
+        }
+        if (index + 9 > contentType.length()) return null;
+        int start = index + 9;
+        int end = contentType.indexOf(';', start);
+        String boundary = contentType.substring(start, end < 0 ? contentType.length() : end).trim();
+        if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return boundary.isEmpty() ? null : boundary;
+    }
+
+    /** Returns the end of the text with trailing whitespace after from removed. */
+    private static int trimEnd(String text, int from) {
+        int end = text.length();
+        while (end > from && Character.isWhitespace(text.charAt(end - 1))) end--;
+        return end;
+    }
+
+    /**
+     * A parameter: its name, whole source range and value range.
+     */
+    private static final class Parameter {
+        final String name;
+        final int start;
+        final int end;
+        final int valueStart;
+        final int valueEnd;
+        boolean matched;
+
+        Parameter(String name, int start, int end, int valueStart, int valueEnd) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+        }
+
+        /** Returns the raw value. */
+        String value(String text) {
+            return text.substring(valueStart, valueEnd);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.diffhunter.diff;
+
+import java.util.Arrays;
+
+/**
+ * Diff kernels in plain Java. Mismatch scans use Arrays.mismatch and Arrays.equals, which HotSpot
+ * already compiles to vector instructions; the longest common substring DP is scalar.
+ */
+final class ScalarKernels implements DiffKernels {
+
+    private static final int SUFFIX_BLOCK = 64;
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public int mismatch(char[] a, int aFrom, char[] b, int bFrom, int length) {
+        return Arrays.mismatch(a, aFrom, aFrom + length, b, bFrom, bFrom + length);
+    }
+
+    @Override
+    public int mismatch(byte[] a, int aFrom, byte[] b, int bFrom, int length) {
+        return Arrays.mismatch(a, aFrom, aFrom + length, b, bFrom, bFrom + length);
+    }
+
+    /**
+     * Compares fixed-size blocks from the end with Arrays.equals and finishes byte by byte inside
+     * the first block that differs.
+     */
+    @Override
+    public int commonSuffix(byte[] a, int aLength, byte[] b, int bLength, int max) {
+        int suffix = 0;
+        while (suffix < max) {
+            int block = Math.min(SUFFIX_BLOCK, max - suffix);
+            int aEnd = aLength - suffix;
+            int bEnd = bLength - suffix;
+            if (!Arrays.equals(a, aEnd - block, aEnd, b, bEnd - block, bEnd)) {
+                while (a[aEnd - 1] == b[bEnd - 1]) {
+                    suffix++;
+                    aEnd--;
+                    bEnd--;
+                }
+                break;
+            }
+            suffix += block;
+        }
+        return suffix;
+    }
+
+    /**
+     * Uses O(min(n,m)) space with two DP rows, and detects a shorter region that is a prefix of the
+     * longer one without running the DP.
+     */
+    @Override
+    public int[] longestCommonSubstring(char[] s1, int start1, int end1, char[] s2, int start2, int end2) {
+        int len1 = end1 - start1;
+        int len2 = end2 - start2;
+
+        boolean swapped = len1 > len2;
+        char[] shorter, longer;
+        int shorterStart, shorterEnd, longerStart, longerEnd;
+
+        if (swapped) {
+            shorter = s2; shorterStart = start2; shorterEnd = end2;
+            longer = s1; longerStart = start1; longerEnd = end1;
+        } else {
+            shorter = s1; shorterStart = start1; shorterEnd = end1;
+            longer = s2; longerStart = start2; longerEnd = end2;
+        }
+
+        int shorterLen = shorterEnd - shorterStart;
+        int longerLen = longerEnd - longerStart;
+
+        if (mismatch(shorter, shorterStart, longer, longerStart, shorterLen) < 0) {
+            return swapped
+                    ? new int[]{shorterLen, longerStart, shorterStart}
+                    : new int[]{shorterLen, shorterStart, longerStart};
+        }
+
+        int[] dpPrev = new int[shorterLen + 1];
+        int[] dpCurr = new int[shorterLen + 1];
+
+        int maxLength = 0;
+        int maxEndShorter = 0;
+        int maxEndLonger = 0;
+
+        for (int i = 1; i <= longerLen; i++) {
+            char c = longer[longerStart + i - 1];
+
+            Arrays.fill(dpCurr, 0);
+
+            for (int j = 1; j <= shorterLen; j++) {
+                if (c == shorter[shorterStart + j - 1]) {
+                    int run = dpPrev[j - 1] + 1;
+                    dpCurr[j] = run;
+                    if (run > maxLength) {
+                        maxLength = run;
+                        maxEndLonger = i;
+                        maxEndShorter = j;
+                    }
+                }
+            }
+
+            int[] temp = dpPrev;
+            dpPrev = dpCurr;
+            dpCurr = temp;
+        }
+
+        if (swapped) {
+            return new int[]{maxLength, longerStart + maxEndLonger - maxLength, shorterStart + maxEndShorter - maxLength};
+        } else {
+            return new int[]{maxLength, shorterStart + maxEndShorter - maxLength, longerStart + maxEndLonger - maxLength};
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package org.diffhunter.diff;
+
+import org.diffhunter.model.DiffSegment;
+import org.diffhunter.model.DiffType;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Patch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Diffs HTTP messages as a header block and a body instead of as one text.
+ * The message is split once at the blank line: headers are matched by name with HeaderDiff, and the
+ * body goes to the engine for its content type when one is enabled (JsonDiffEngine for JSON,
+ * MarkupDiffEngine for HTML and XML) or to the line diff otherwise. Body results are mapped back to
+ * segments with offsets, line numbers and parent line indices in the full message text.
+ */
+public class StructuredDiff {
+
+    private final DiffCalculator calculator;
+
+    /**
+     * A changed range reported by a body engine, with offsets into the full message text.
+     */
+    static final class Change {
+        final int start;
+        final int end;
+        final boolean original;
+        final DiffType type;
+
+        Change(int start, int end, boolean original, DiffType type) {
+            this.start = start;
+            this.end = end;
+            this.original = original;
+            this.type = type;
+        }
+    }
+
+    /**
+     * An element of a parsed body that the engines align by hash: its source range and 64-bit hash.
+     */
+    abstract static class Element {
+        final int start;
+        int end;
+        long hash;
+
+        Element(int start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     * Creates a structured differ that diffs text with the given calculator.
+     */
+    public StructuredDiff(DiffCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    /**
+     * Finds differences between two normalized HTTP messages whose bodies start at the given offsets
+     * (-1 if a message has no blank line). With parameters set (requests only), the query string and
+     * form, multipart or JSON bodies are diffed by parameter. Otherwise the JSON and markup engines are
+     * used for the body when enabled and both bodies have a matching content type. A body that fails
+     * to parse falls back to the line diff.
+     */
+    public List<DiffSegment> findDifferences(String original, int originalBody, String modified, int modifiedBody,
+                                             boolean characterLevelDiff, boolean json, boolean markup,
+                                             boolean parameters) {
+        int originalHeadEnd = originalBody < 0 ? original.length() : originalBody - 2;
+        int modifiedHeadEnd = modifiedBody < 0 ? modified.length() : modifiedBody - 2;
+        List<DiffSegment> diffs = HeaderDiff.diff(calculator, original, originalHeadEnd,
+                modified, modifiedHeadEnd, characterLevelDiff, parameters);
+        if (originalBody < 0 && modifiedBody < 0) return diffs;
+
+        int originalFrom = originalBody < 0 ? original.length() : originalBody;
+        int modifiedFrom = modifiedBody < 0 ? modified.length() : modifiedBody;
+        int originalLines = countLines(original, originalFrom);
+        int modifiedLines = countLines(modified, modifiedFrom);
+
+        List<Change> changes = null;
+        if (originalBody >= 0 && modifiedBody >= 0) {
+            if (parameters) {
+                changes = ParameterDiff.diffBody(original, originalBody, getContentType(original, originalBody),
+                        modified, modifiedBody, getContentType(modified, modifiedBody));
+            }
+            if (changes == null && json && isJson(original, originalBody) && isJson(modified, modifiedBody)) {
+                changes = JsonDiffEngine.diff(original, originalBody, modified, modifiedBody);
+            } else if (changes == null && markup && isMarkup(original, originalBody) && isMarkup(modified, modifiedBody)) {
+                changes = MarkupDiffEngine.diff(original, originalBody, modified, modifiedBody);
+            }
+        }
+
+        if (changes == null) {
+            for (DiffSegment diff : calculator.findDifferences(original.substring(originalFrom),
+                    modified.substring(modifiedFrom), characterLevelDiff)) {
+                boolean isOriginal = diff.isOriginal();
+                int offset = isOriginal ? originalFrom : modifiedFrom;
+                diffs.add(new DiffSegment(diff.getStartOffset() + offset, diff.getEndOffset() + offset,
+                        diff.getContent(), isOriginal, diff.getType(),
+                        diff.getParentLineIndex() + (isOriginal ? originalLines : modifiedLines),
+                        diff.getLineNumber() + (isOriginal ? originalLines : modifiedLines)));
+            }
+            return diffs;
+        }
+
+        return addChanges(original, modified, changes, originalLines, modifiedLines, diffs);
+    }
+
+    /**
+     * Finds differences between two messages whose bodies are compared by hash rather than diffed.
+     * The header blocks are diffed as usual; if bodiesDiffer, each non-empty body is reported as
+     * a single modified segment.
+     */
+    public List<DiffSegment> findHeadDifferences(String original, int originalBody, String modified, int modifiedBody,
+                                                 boolean characterLevelDiff, boolean bodiesDiffer) {
+        int originalHeadEnd = originalBody < 0 ? original.length() : originalBody - 2;
+        int modifiedHeadEnd = modifiedBody < 0 ? modified.length() : modifiedBody - 2;
+        List<DiffSegment> diffs = HeaderDiff.diff(calculator, original, originalHeadEnd,
+                modified, modifiedHeadEnd, characterLevelDiff, false);
+        if (bodiesDiffer) {
+            addBody(original, originalBody, true, diffs);
+            addBody(modified, modifiedBody, false, diffs);
+        }
+        return diffs;
+    }
+
+    /** Adds one modified segment covering the body, unless it is empty. */
+    private static void addBody(String text, int bodyStart, boolean isOriginal, List<DiffSegment> diffs) {
+        if (bodyStart < 0 || bodyStart >= text.length()) return;
+        int lines = countLines(text, bodyStart);
+        diffs.add(new DiffSegment(bodyStart, text.length(), "[binary body]", isOriginal, DiffType.MODIFIED,
+                lines, lines + 1));
+    }
+
+    /**
+     * Converts changes into segments, in offset order. Each segment gets its own parent line index,
+     * counted up from the given bases, so it is listed and toggled on its own. Returns diffs.
+     */
+    static List<DiffSegment> addChanges(String original, String modified, List<Change> changes,
+                                        int originalIndex, int modifiedIndex, List<DiffSegment> diffs) {
+        changes.sort(Comparator.comparingInt(c -> c.start));
+        int[] lineStartsOriginal = lineStarts(original);
+        int[] lineStartsModified = lineStarts(modified);
+
+        for (Change change : changes) {
+            if (change.start >= change.end) continue;
+            String text = change.original ? original : modified;
+            int[] lineStarts = change.original ? lineStartsOriginal : lineStartsModified;
+            int parentIndex = change.original ? originalIndex++ : modifiedIndex++;
+            diffs.add(new DiffSegment(change.start, change.end, text.substring(change.start, change.end),
+                    change.original, change.type, parentIndex, lineNumber(lineStarts, change.start)));
+        }
+        return diffs;
+    }
+
+    /**
+     * Aligns two element lists with Myers over their hashes. Within each delta, replaced elements
+     * are paired in order and passed to pairDiffer; the rest are added as deleted or added.
+     */
+    static <T extends Element> void alignElements(List<T> a, List<T> b, BiConsumer<T, T> pairDiffer,
+                                                  List<Change> out) {
+        Patch<Long> patch = DiffUtils.diff(hashes(a), hashes(b));
+
+        for (AbstractDelta<Long> delta : patch.getDeltas()) {
+            int sourcePosition = delta.getSource().getPosition();
+            int targetPosition = delta.getTarget().getPosition();
+            int sourceSize = delta.getSource().size();
+            int targetSize = delta.getTarget().size();
+            int paired = Math.min(sourceSize, targetSize);
+
+            for (int i = 0; i < paired; i++) {
+                pairDiffer.accept(a.get(sourcePosition + i), b.get(targetPosition + i));
+            }
+            for (int i = paired; i < sourceSize; i++) {
+                T element = a.get(sourcePosition + i);
+                out.add(new Change(element.start, element.end, true, DiffType.DELETED));
+            }
+            for (int i = paired; i < targetSize; i++) {
+                T element = b.get(targetPosition + i);
+                out.add(new Change(element.start, element.end, false, DiffType.ADDED));
+            }
+        }
+    }
+
+    /** Returns the hashes of the elements. */
+    private static List<Long> hashes(List<? extends Element> elements) {
+        List<Long> hashes = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            hashes.add(element.hash);
+        }
+        return hashes;
+    }
+
+    /** Finalizes a 64-bit hash (the MurmurHash3 fmix64 step). */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Returns a 64-bit FNV-1a hash of a text range. */
+    static long hashRange(String text, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of a text range with runs of whitespace hashed as a single space,
+     * optionally lower-cased.
+     */
+    static long hashNormalized(String text, int start, int end, boolean ignoreCase) {
+        long h = 0xcbf29ce484222325L;
+        boolean inSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                inSpace = true;
+                continue;
+            }
+            if (inSpace) {
+                h ^= ' ';
+                h *= 0x100000001b3L;
+                inSpace = false;
+            }
+            h ^= ignoreCase ? Character.toLowerCase(c) : c;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Returns true if the headers declare a JSON content type (application/json or any +json type).
+     */
+    private static boolean isJson(String message, int bodyStart) {
+        String contentType = getContentType(message, bodyStart);
+        return contentType != null && contentType.toLowerCase().contains("json");
+    }
+
+    /**
+     * Returns true if the headers declare an HTML or XML content type.
+     */
+    private static boolean isMarkup(String message, int bodyStart) {
+        String contentType = getContentType(message, bodyStart);
+        if (contentType == null) return false;
+        contentType = contentType.toLowerCase();
+        return contentType.contains("html") || contentType.contains("xml");
+    }
+
+    /**
+     * Returns the Content-Type header value as sent, or null if there is none.
+     * The case is kept because multipart boundaries are case-sensitive.
+     */
+    static String getContentType(String message, int bodyStart) {
+        int lineStart = 0;
+        while (lineStart < bodyStart) {
+            int lineEnd = message.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > bodyStart) lineEnd = bodyStart;
+            if (message.regionMatches(true, lineStart, "content-type:", 0, 13)) {
+                return message.substring(lineStart + 13, lineEnd).trim();
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    /** Returns the number of newlines before the offset. */
+    private static int countLines(String text, int end) {
+        int count = 0;
+        for (int i = text.indexOf('\n'); i >= 0 && i < end; i = text.indexOf('\n', i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /** Returns the start offset of every line. */
+    static int[] lineStarts(String text) {
+        int[] starts = new int[64];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = i + 1;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /** Returns the 1-based line number of an offset. */
+    static int lineNumber(int[] lineStarts, int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return (index >= 0 ? index : -index - 2) + 1;
+    }
+}
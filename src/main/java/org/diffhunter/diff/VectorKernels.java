@@ -0,0 +1,163 @@
+package org.diffhunter.diff;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Diff kernels on the incubating Vector API, at the platform's preferred vector width.
+ * Only loaded through DiffKernels when the jdk.incubator.vector module is present. The constructor
+ * rejects platforms whose preferred width holds fewer than four ints, where the API falls back to
+ * slow emulation.
+ * The longest common substring DP computes a whole row segment per instruction: lanes whose
+ * character matches take the diagonal run plus one, the others zero. The row maximum is reduced
+ * once per row, and only a row that raises the overall maximum is scanned for its first position,
+ * so ties resolve exactly as in the scalar DP.
+ */
+final class VectorKernels implements DiffKernels {
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final int MIN_INT_LANES = 4;
+
+    VectorKernels() {
+        if (INTS.length() < MIN_INT_LANES) {
+            throw new UnsupportedOperationException("Preferred vector width is only " + INTS.vectorBitSize() + " bits");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Vector API (" + INTS.vectorBitSize() + "-bit)";
+    }
+
+    @Override
+    public int mismatch(char[] a, int aFrom, char[] b, int bFrom, int length) {
+        int i = 0;
+        int bound = CHARS.loopBound(length);
+        for (; i < bound; i += CHARS.length()) {
+            ShortVector va = ShortVector.fromCharArray(CHARS, a, aFrom + i);
+            ShortVector vb = ShortVector.fromCharArray(CHARS, b, bFrom + i);
+            VectorMask<Short> differs = va.compare(VectorOperators.NE, vb);
+            if (differs.anyTrue()) return i + differs.firstTrue();
+        }
+        for (; i < length; i++) {
+            if (a[aFrom + i] != b[bFrom + i]) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int mismatch(byte[] a, int aFrom, byte[] b, int bFrom, int length) {
+        int i = 0;
+        int bound = BYTES.loopBound(length);
+        for (; i < bound; i += BYTES.length()) {
+            ByteVector va = ByteVector.fromArray(BYTES, a, aFrom + i);
+            ByteVector vb = ByteVector.fromArray(BYTES, b, bFrom + i);
+            VectorMask<Byte> differs = va.compare(VectorOperators.NE, vb);
+            if (differs.anyTrue()) return i + differs.firstTrue();
+        }
+        for (; i < length; i++) {
+            if (a[aFrom + i] != b[bFrom + i]) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int commonSuffix(byte[] a, int aLength, byte[] b, int bLength, int max) {
+        int step = BYTES.length();
+        int suffix = 0;
+        while (suffix + step <= max) {
+            ByteVector va = ByteVector.fromArray(BYTES, a, aLength - suffix - step);
+            ByteVector vb = ByteVector.fromArray(BYTES, b, bLength - suffix - step);
+            VectorMask<Byte> differs = va.compare(VectorOperators.NE, vb);
+            if (differs.anyTrue()) return suffix + step - 1 - differs.lastTrue();
+            suffix += step;
+        }
+        while (suffix < max && a[aLength - 1 - suffix] == b[bLength - 1 - suffix]) {
+            suffix++;
+        }
+        return suffix;
+    }
+
+    @Override
+    public int[] longestCommonSubstring(char[] s1, int start1, int end1, char[] s2, int start2, int end2) {
+        int len1 = end1 - start1;
+        int len2 = end2 - start2;
+
+        boolean swapped = len1 > len2;
+        char[] shorter, longer;
+        int shorterStart, longerStart;
+
+        if (swapped) {
+            shorter = s2; shorterStart = start2;
+            longer = s1; longerStart = start1;
+        } else {
+            shorter = s1; shorterStart = start1;
+            longer = s2; longerStart = start2;
+        }
+
+        int shorterLen = Math.min(len1, len2);
+        int longerLen = Math.max(len1, len2);
+
+        if (mismatch(shorter, shorterStart, longer, longerStart, shorterLen) < 0) {
+            return swapped
+                    ? new int[]{shorterLen, longerStart, shorterStart}
+                    : new int[]{shorterLen, shorterStart, longerStart};
+        }
+
+        int[] shorterChars = new int[shorterLen];
+        for (int j = 0; j < shorterLen; j++) {
+            shorterChars[j] = shorter[shorterStart + j];
+        }
+        int[] dpPrev = new int[shorterLen + 1];
+        int[] dpCurr = new int[shorterLen + 1];
+        int bound = INTS.loopBound(shorterLen);
+        IntVector zero = IntVector.zero(INTS);
+
+        int maxLength = 0;
+        int maxEndShorter = 0;
+        int maxEndLonger = 0;
+
+        for (int i = 1; i <= longerLen; i++) {
+            int c = longer[longerStart + i - 1];
+            IntVector rowMax = zero;
+
+            int k = 0;
+            for (; k < bound; k += INTS.length()) {
+                VectorMask<Integer> matches = IntVector.fromArray(INTS, shorterChars, k).compare(VectorOperators.EQ, c);
+                IntVector runs = zero.blend(IntVector.fromArray(INTS, dpPrev, k).add(1), matches);
+                runs.intoArray(dpCurr, k + 1);
+                rowMax = rowMax.max(runs);
+            }
+            int max = rowMax.reduceLanes(VectorOperators.MAX);
+            for (; k < shorterLen; k++) {
+                int run = shorterChars[k] == c ? dpPrev[k] + 1 : 0;
+                dpCurr[k + 1] = run;
+                max = Math.max(max, run);
+            }
+
+            if (max > maxLength) {
+                int j = 1;
+                while (dpCurr[j] != max) j++;
+                maxLength = max;
+                maxEndLonger = i;
+                maxEndShorter = j;
+            }
+
+            int[] temp = dpPrev;
+            dpPrev = dpCurr;
+            dpCurr = temp;
+        }
+
+        if (swapped) {
+            return new int[]{maxLength, longerStart + maxEndLonger - maxLength, shorterStart + maxEndShorter - maxLength};
+        } else {
+            return new int[]{maxLength, shorterStart + maxEndShorter - maxLength, longerStart + maxEndLonger - maxLength};
+        }
+    }
+}
@@ -1,24 +1,39 @@
 package org.diffhunter.handler;
 
+import org.diffhunter.diff.ContentPolicy;
+import org.diffhunter.model.BodyPolicy;
 import org.diffhunter.model.HttpLogEntry;
+import org.diffhunter.search.TrigramIndex;
 import org.diffhunter.ui.UIContext;
+import org.diffhunter.util.Constants;
 
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.http.handler.*;
-import burp.api.montoya.http.message.HttpRequestResponse;
 import burp.api.montoya.http.message.requests.HttpRequest;
+import org.diffhunter.store.BlobStore;
+import org.diffhunter.store.StoredMessage;
 
 import java.util.Date;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles HTTP request/response capture from Burp Suite.
+ * Messages are stored on Burp's handler thread; trigram indexing runs on a single background thread.
  */
 public class HttpCaptureHandler implements HttpHandler {
 
     private final MontoyaApi api;
     private final UIContext context;
     private final ConcurrentHashMap<Integer, Long> requestStartTimes = new ConcurrentHashMap<>();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "DiffHunter indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong queuedIndexBytes = new AtomicLong();
 
     /**
      * Creates a new HttpCaptureHandler with the specified API and context.
@@ -78,7 +93,9 @@ public class HttpCaptureHandler implements HttpHandler {
                 query = "";
             }
 
-            int responseLength = responseReceived.toByteArray().length();
+            byte[] requestBytes = request.toByteArray().getBytes();
+            byte[] responseBytes = responseReceived.toByteArray().getBytes();
+            int responseLength = responseBytes.length;
 
             long responseTime = 0;
             Long startTime = requestStartTimes.remove(responseReceived.messageId());
@@ -86,9 +103,14 @@ public class HttpCaptureHandler implements HttpHandler {
                 responseTime = System.currentTimeMillis() - startTime;
             }
 
-            HttpRequestResponse httpRequestResponse = HttpRequestResponse
-                    .httpRequestResponse(request, responseReceived)
-                    .copyToTempFile();
+            BlobStore store = context.getBlobStore();
+            String endpointKey = context.isDeltaStorage() ? request.httpService().host() + fullPath : null;
+            String dictionaryKey = context.isCompressedStorage() ? request.httpService().host() : null;
+            StoredMessage storedRequest = store.store(requestBytes,
+                    endpointKey == null ? null : "request " + endpointKey, dictionaryKey);
+            StoredMessage storedResponse = store.store(responseBytes,
+                    endpointKey == null ? null : "response " + endpointKey, dictionaryKey);
+            BodyPolicy responsePolicy = ContentPolicy.classify(responseBytes, storedResponse.getHead().getLength());
 
             HttpLogEntry entry;
             synchronized (context.getWriteLock()) {
@@ -103,11 +125,19 @@ public class HttpCaptureHandler implements HttpHandler {
                         responseReceived.statusCode(),
                         responseLength,
                         responseTime,
-                        httpRequestResponse
+                        request.httpService(),
+                        store,
+                        storedRequest,
+                        storedResponse,
+                        context.getTextCache(),
+                        responsePolicy,
+                        context.getRowClassifications(),
+                        context.getSummaryBytes()
                 );
 
                 context.getLogEntries().add(entry);
                 context.getLogEntriesMap().put(entry.getNumber(), entry);
+                submitIndexing(entry, requestBytes, responseBytes, responsePolicy);
             }
 
             context.getPendingEntries().add(entry);
@@ -119,9 +149,50 @@ public class HttpCaptureHandler implements HttpHandler {
     }
 
     /**
-     * Clears all tracked request start times. Called during extension unload.
+     * Queues the entry for trigram indexing. Called under the write lock, so entries are indexed in
+     * number order. A request or response over TRIGRAM_MAX_INDEXED_BYTES, a response body that is
+     * not diffed as text, and any message that would take the queue over TRIGRAM_MAX_QUEUED_BYTES
+     * are not indexed and match every index lookup instead.
+     */
+    private void submitIndexing(HttpLogEntry entry, byte[] requestBytes, byte[] responseBytes,
+                                BodyPolicy responsePolicy) {
+        byte[] requestText = requestBytes.length <= Constants.TRIGRAM_MAX_INDEXED_BYTES ? requestBytes : null;
+        byte[] responseText = responsePolicy == BodyPolicy.TEXT_DIFF
+                && responseBytes.length <= Constants.TRIGRAM_MAX_INDEXED_BYTES ? responseBytes : null;
+        long bytes = (requestText == null ? 0 : requestText.length) + (responseText == null ? 0 : responseText.length);
+        if (queuedIndexBytes.addAndGet(bytes) > Constants.TRIGRAM_MAX_QUEUED_BYTES) {
+            queuedIndexBytes.addAndGet(-bytes);
+            requestText = null;
+            responseText = null;
+            bytes = 0;
+        }
+
+        byte[] request = requestText;
+        byte[] response = responseText;
+        long queued = bytes;
+        indexer.execute(() -> {
+            try {
+                long[] requestTrigrams = request == null ? null : TrigramIndex.extractTrigrams(request);
+                long[] responseTrigrams = response == null ? null : TrigramIndex.extractTrigrams(response);
+                synchronized (context.getWriteLock()) {
+                    if (context.getLogEntriesMap().get(entry.getNumber()) != entry) return;
+                    context.getTrigramIndex().add(entry.getNumber(), requestTrigrams, responseTrigrams);
+                    entry.setIndexedTrigrams((requestTrigrams == null ? 0 : requestTrigrams.length)
+                            + (responseTrigrams == null ? 0 : responseTrigrams.length));
+                }
+            } catch (Exception e) {
+                api.logging().logToError("[DiffHunter] Error indexing entry: " + e.getMessage());
+            } finally {
+                queuedIndexBytes.addAndGet(-queued);
+            }
+        });
+    }
+
+    /**
+     * Clears all tracked request start times and stops the indexer. Called during extension unload.
      */
     public void cleanup() {
         requestStartTimes.clear();
+        indexer.shutdownNow();
     }
 }
@@ -0,0 +1,15 @@
+package org.diffhunter.model;
+
+/**
+ * How a message body is compared, chosen per content type at capture time.
+ */
+public enum BodyPolicy {
+    /** Diffed as text, line or character level. */
+    TEXT_DIFF,
+    /** Compared by hash; diffed byte by byte in Hexdump mode. */
+    BYTE_DIFF,
+    /** Compared by hash only. */
+    HASH_ONLY,
+    /** Not compared at all. */
+    SKIP
+}
@@ -12,6 +12,7 @@ public class DiffSegment {
     private final DiffType type;
     private int parentLineIndex = -1;
     private int lineNumber = -1;
+    private int[] highlightRanges;
 
     /**
      * Creates a new DiffSegment with the specified parameters.
@@ -49,6 +50,16 @@ public class DiffSegment {
         this.lineNumber = lineNumber;
     }
 
+    /**
+     * Creates a new DiffSegment that is highlighted as several disjoint ranges within its offsets,
+     * given as consecutive start/end pairs (e.g. the hex and ASCII columns of a hexdump row).
+     */
+    public DiffSegment(int startOffset, int endOffset, String content, boolean isOriginal, DiffType type,
+                       int parentLineIndex, int lineNumber, int[] highlightRanges) {
+        this(startOffset, endOffset, content, isOriginal, type, parentLineIndex, lineNumber);
+        this.highlightRanges = highlightRanges;
+    }
+
     /**
      * Returns the start offset of the difference in the text.
      */
@@ -91,6 +102,13 @@ public class DiffSegment {
         return lineNumber;
     }
 
+    /**
+     * Returns the start/end pairs to highlight instead of the whole offset range, or null.
+     */
+    public int[] getHighlightRanges() {
+        return highlightRanges;
+    }
+
     /**
      * Returns the full content of this diff segment (not truncated).
      */
@@ -0,0 +1,10 @@
+package org.diffhunter.model;
+
+/**
+ * Policies for choosing which entries to evict when the memory budget is exceeded.
+ */
+public enum EvictionPolicy {
+    OLDEST,
+    LARGEST,
+    PER_HOST
+}
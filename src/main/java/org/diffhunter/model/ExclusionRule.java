@@ -1,17 +1,26 @@
 package org.diffhunter.model;
 
+import org.diffhunter.search.GuardedRegex;
+import org.diffhunter.search.RegexTimeoutException;
+
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * Represents an exclusion rule with a regex pattern.
+ * A rule whose regex exceeds the match budget is marked invalid until its regex is edited.
  */
 public class ExclusionRule {
 
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     private String regex;
-    private Pattern compiledPattern;
-    private boolean enabled;
-    private boolean valid;
+    private volatile Pattern compiledPattern;
+    private volatile boolean enabled;
+    private volatile boolean valid;
+    private volatile String invalidReason;
+    private volatile long version;
 
     /**
      * Creates a new exclusion rule with the specified regex.
@@ -26,12 +35,15 @@ public class ExclusionRule {
      * Compiles the regex pattern and sets validity flag.
      */
     private void compilePattern() {
+        version = nextVersion();
         try {
             this.compiledPattern = Pattern.compile(regex);
             this.valid = true;
+            this.invalidReason = null;
         } catch (PatternSyntaxException e) {
             this.compiledPattern = null;
             this.valid = false;
+            this.invalidReason = "Invalid regex: " + e.getDescription();
         }
     }
 
@@ -62,6 +74,21 @@ public class ExclusionRule {
      */
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        this.version = nextVersion();
+    }
+
+    /**
+     * Returns the version stamp of this rule, renewed whenever its regex or enabled state changes.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a new version stamp, greater than every stamp returned before.
+     */
+    static long nextVersion() {
+        return VERSIONS.incrementAndGet();
     }
 
     /**
@@ -71,14 +98,48 @@ public class ExclusionRule {
         return valid;
     }
 
+    /**
+     * Returns why the rule is invalid, or null if it is valid.
+     */
+    public String getInvalidReason() {
+        return invalidReason;
+    }
+
+    /**
+     * Marks the rule invalid if its regex exceeded the step budget of a match.
+     * The version is renewed, so compiled matchers drop the rule; editing the regex clears the mark.
+     * A match that only ran out of time is skipped without disabling the rule, since a busy machine
+     * can cause that with any pattern.
+     */
+    public void markTimedOut(RegexTimeoutException e) {
+        if (!valid || !e.isStepBudgetExceeded()) return;
+        this.valid = false;
+        this.invalidReason = "Disabled: a single match " + e.getMessage() + " (likely catastrophic backtracking)";
+        this.version = nextVersion();
+    }
+
+    /**
+     * Returns the compiled pattern, or null if the rule is disabled or invalid.
+     */
+    public Pattern getActivePattern() {
+        return enabled && valid ? compiledPattern : null;
+    }
+
     /**
      * Returns true if the given text matches this exclusion rule.
-     * Returns false if the rule is disabled or invalid.
+     * Returns false if the rule is disabled or invalid, or if the match exceeds its budget; only a
+     * step budget overrun disables the rule.
      */
     public boolean matches(String text) {
-        if (!enabled || !valid || compiledPattern == null) {
+        Pattern pattern = getActivePattern();
+        if (pattern == null) {
+            return false;
+        }
+        try {
+            return GuardedRegex.find(pattern, text);
+        } catch (RegexTimeoutException e) {
+            markTimedOut(e);
             return false;
         }
-        return compiledPattern.matcher(text).find();
     }
 }
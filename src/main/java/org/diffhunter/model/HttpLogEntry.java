@@ -1,16 +1,23 @@
 package org.diffhunter.model;
 
 import burp.api.montoya.http.HttpService;
-import burp.api.montoya.http.message.HttpRequestResponse;
+import org.diffhunter.cache.NormalizedTextCache;
+import org.diffhunter.diff.DiffSummary;
+import org.diffhunter.store.BlobStore;
+import org.diffhunter.store.StoredMessage;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents an HTTP log entry with request and response data.
- * Uses HttpRequestResponse backed by temporary files to minimize memory usage.
+ * Message bytes live in the memory-mapped, content-addressed BlobStore to minimize heap usage.
  */
 public class HttpLogEntry {
 
+    private static final int UNKNOWN_OFFSET = -2;
+
     private final int number;
     private final Date timestamp;
     private final String tool;
@@ -21,16 +28,35 @@ public class HttpLogEntry {
     private final int statusCode;
     private final int length;
     private final long responseTime;
-    private final HttpRequestResponse httpRequestResponse;
+    private final HttpService httpService;
+    private final BlobStore store;
+    private final StoredMessage request;
+    private final StoredMessage response;
+    private final NormalizedTextCache textCache;
+    private final BodyPolicy responsePolicy;
+    private final RowClassifications classifications;
+    private final AtomicLong summaryBytes;
+    private volatile int indexedTrigrams;
+    private final int cacheGeneration;
     private volatile boolean marked;
-    private volatile RowDiffType rowDiffType;
+    private volatile DiffSummary requestSummary;
+    private volatile DiffSummary responseSummary;
+    private boolean summariesReleased;
+    private volatile int requestBodyOffset = UNKNOWN_OFFSET;
+    private volatile int responseBodyOffset = UNKNOWN_OFFSET;
 
     /**
-     * Creates a new HTTP log entry with HttpRequestResponse backed by temp file.
+     * Creates a new HTTP log entry whose request and response bytes are held in the blob store.
+     * Normalized text is shared through the given cache, which may be null to disable caching.
+     * The response policy, decided at capture, controls how the response body is compared.
+     * The row difference type is read from and written to the active snapshot of the classifications.
+     * The estimated size of the entry's diff summaries is kept in the shared summaryBytes counter.
      */
     public HttpLogEntry(int number, Date timestamp, String tool, String method, String host,
                         String path, String query, int statusCode, int length, long responseTime,
-                        HttpRequestResponse httpRequestResponse) {
+                        HttpService httpService, BlobStore store, StoredMessage request, StoredMessage response,
+                        NormalizedTextCache textCache, BodyPolicy responsePolicy,
+                        RowClassifications classifications, AtomicLong summaryBytes) {
         this.number = number;
         this.timestamp = timestamp;
         this.tool = tool;
@@ -41,9 +67,16 @@ public class HttpLogEntry {
         this.statusCode = statusCode;
         this.length = length;
         this.responseTime = responseTime;
-        this.httpRequestResponse = httpRequestResponse;
+        this.httpService = httpService;
+        this.store = store;
+        this.request = request;
+        this.response = response;
+        this.textCache = textCache;
+        this.cacheGeneration = textCache != null ? textCache.getGeneration() : 0;
+        this.responsePolicy = responsePolicy;
+        this.classifications = classifications;
+        this.summaryBytes = summaryBytes;
         this.marked = false;
-        this.rowDiffType = RowDiffType.NONE;
     }
 
     /** Returns the sequential request number. */
@@ -78,42 +111,132 @@ public class HttpLogEntry {
 
     /** Returns the full request as a string with normalized line endings. */
     public String getRequestStr() {
-        if (httpRequestResponse == null || httpRequestResponse.request() == null) {
-            return "";
-        }
-        return normalizeLineEndings(httpRequestResponse.request().toString());
+        if (textCache == null) return loadRequestStr();
+        return textCache.get(cacheGeneration, number, NormalizedTextCache.Side.REQUEST, this::loadRequestStr);
     }
 
     /** Returns the full response as a string with normalized line endings. */
     public String getResponseStr() {
-        if (httpRequestResponse == null || httpRequestResponse.response() == null) {
-            return "";
+        if (textCache == null) return loadResponseStr();
+        return textCache.get(cacheGeneration, number, NormalizedTextCache.Side.RESPONSE, this::loadResponseStr);
+    }
+
+    /**
+     * Returns the offset where the body starts in getRequestStr(), just after the blank line,
+     * or -1 if the request has no blank line. Computed once per entry.
+     */
+    public int getRequestBodyOffset() {
+        int offset = requestBodyOffset;
+        if (offset == UNKNOWN_OFFSET) {
+            offset = findBodyOffset(getRequestStr());
+            requestBodyOffset = offset;
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the offset where the body starts in getResponseStr(), just after the blank line,
+     * or -1 if the response has no blank line. Computed once per entry.
+     */
+    public int getResponseBodyOffset() {
+        int offset = responseBodyOffset;
+        if (offset == UNKNOWN_OFFSET) {
+            offset = findBodyOffset(getResponseStr());
+            responseBodyOffset = offset;
         }
-        return normalizeLineEndings(httpRequestResponse.response().toString());
+        return offset;
+    }
+
+    /** Reads the request from the backing store and normalizes its line endings. */
+    private String loadRequestStr() {
+        return normalizeLineEndings(new String(getRequestBytes(), StandardCharsets.ISO_8859_1));
+    }
+
+    /** Reads the response from the backing store and normalizes its line endings. */
+    private String loadResponseStr() {
+        return normalizeLineEndings(new String(getResponseBytes(), StandardCharsets.ISO_8859_1));
     }
 
     /** Returns the raw request bytes. */
     public byte[] getRequestBytes() {
-        if (httpRequestResponse == null || httpRequestResponse.request() == null) {
+        if (store == null || request == null) {
             return new byte[0];
         }
-        return httpRequestResponse.request().toByteArray().getBytes();
+        return store.readBytes(request);
     }
 
     /** Returns the raw response bytes. */
     public byte[] getResponseBytes() {
-        if (httpRequestResponse == null || httpRequestResponse.response() == null) {
+        if (store == null || response == null) {
             return new byte[0];
         }
-        return httpRequestResponse.response().toByteArray().getBytes();
+        return store.readBytes(response);
     }
 
     /** Returns the HTTP service information. */
-    public HttpService getHttpService() {
-        if (httpRequestResponse == null || httpRequestResponse.request() == null) {
-            return null;
-        }
-        return httpRequestResponse.request().httpService();
+    public HttpService getHttpService() { return httpService; }
+
+    /** Returns the stored request message, or null if it is not stored. */
+    public StoredMessage getStoredRequest() { return request; }
+
+    /** Returns the stored response message, or null if it is not stored. */
+    public StoredMessage getStoredResponse() { return response; }
+
+    /** Returns the bytes the request and response occupy in the store, excluding shared baselines. */
+    public long getStoredBytes() {
+        return (request != null ? request.getStoredLength() : 0) + (response != null ? response.getStoredLength() : 0);
+    }
+
+    /**
+     * Returns the number of request and response trigrams the entry was indexed with, kept for its
+     * memory weight, or 0 until the indexer has processed it.
+     */
+    public int getIndexedTrigrams() { return indexedTrigrams; }
+
+    /** Sets the number of trigrams the entry was indexed with. */
+    public void setIndexedTrigrams(int indexedTrigrams) { this.indexedTrigrams = indexedTrigrams; }
+
+    /** Returns the estimated heap size of the entry's diff summaries in bytes. */
+    public long getSummaryBytes() {
+        DiffSummary request = requestSummary;
+        DiffSummary response = responseSummary;
+        return (request != null ? request.getEstimatedBytes() : 0) + (response != null ? response.getEstimatedBytes() : 0);
+    }
+
+    /** Returns true if the other entry's request is byte-identical, without reading either one. */
+    public boolean hasSameRequest(HttpLogEntry other) {
+        return request != null && request.sameContent(other.request);
+    }
+
+    /** Returns true if the other entry's response is byte-identical, without reading either one. */
+    public boolean hasSameResponse(HttpLogEntry other) {
+        return response != null && response.sameContent(other.response);
+    }
+
+    /** Returns how the response body is compared. */
+    public BodyPolicy getResponsePolicy() { return responsePolicy; }
+
+    /** Returns the length in bytes of the response start line and headers, including the blank line. */
+    public int getResponseHeadLength() {
+        return response != null ? response.getHead().getLength() : 0;
+    }
+
+    /** Returns true if the other entry's response headers are byte-identical, without reading either one. */
+    public boolean hasSameResponseHead(HttpLogEntry other) {
+        return response != null && response.sameHead(other.response);
+    }
+
+    /** Returns true if the other entry's response body is byte-identical, without reading either one. */
+    public boolean hasSameResponseBody(HttpLogEntry other) {
+        return response != null && response.sameBody(other.response);
+    }
+
+    /** Releases the stored request and response blobs and drops the diff summaries. Called when the entry is evicted. */
+    public void release() {
+        releaseSummaries();
+        if (store == null) return;
+        store.release(request);
+        store.release(response);
     }
 
     /** Returns true if this entry is marked as a target. */
@@ -122,17 +245,57 @@ public class HttpLogEntry {
     /** Sets whether this entry is marked as a target. */
     public void setMarked(boolean marked) { this.marked = marked; }
 
-    /** Returns the row difference type for table coloring. */
-    public RowDiffType getRowDiffType() { return rowDiffType; }
+    /** Returns the row difference type for table coloring, against the active target. */
+    public RowDiffType getRowDiffType() { return classifications.get(number); }
+
+    /** Returns the request diff summary against the last target, or null if there is none. */
+    public DiffSummary getRequestSummary() { return requestSummary; }
+
+    /**
+     * Drops both diff summaries and subtracts them from the shared summary size counter.
+     * Summaries set afterwards by a classification still in flight are ignored.
+     */
+    public synchronized void releaseSummaries() {
+        setRequestSummary(null);
+        setResponseSummary(null);
+        summariesReleased = true;
+    }
 
-    /** Sets the row difference type for table coloring. */
-    public void setRowDiffType(RowDiffType rowDiffType) { this.rowDiffType = rowDiffType; }
+    /** Sets the request diff summary and updates the shared summary size counter. */
+    public synchronized void setRequestSummary(DiffSummary requestSummary) {
+        if (summariesReleased) return;
+        summaryBytes.addAndGet(estimatedBytes(requestSummary) - estimatedBytes(this.requestSummary));
+        this.requestSummary = requestSummary;
+    }
+
+    /** Returns the response diff summary against the last target, or null if there is none. */
+    public DiffSummary getResponseSummary() { return responseSummary; }
+
+    /** Sets the response diff summary and updates the shared summary size counter. */
+    public synchronized void setResponseSummary(DiffSummary responseSummary) {
+        if (summariesReleased) return;
+        summaryBytes.addAndGet(estimatedBytes(responseSummary) - estimatedBytes(this.responseSummary));
+        this.responseSummary = responseSummary;
+    }
+
+    /** Returns the estimated heap size of a summary, or 0 for null. */
+    private static long estimatedBytes(DiffSummary summary) {
+        return summary == null ? 0 : summary.getEstimatedBytes();
+    }
 
     /** Returns the full endpoint (path + query string). */
     public String getEndpoint() {
         return path + (query.isEmpty() ? "" : "?" + query);
     }
 
+    /**
+     * Returns the offset after the first blank line of normalized text, or -1 if there is none.
+     */
+    private static int findBodyOffset(String text) {
+        int separator = text.indexOf("\n\n");
+        return separator < 0 ? -1 : separator + 2;
+    }
+
     /**
      * Normalizes line endings to Unix-style (LF only).
      */
@@ -0,0 +1,178 @@
+package org.diffhunter.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Row difference types of the log against each target, kept so that switching back to a target
+ * does not classify the whole log again.
+ * Each snapshot packs 2 bits per entry number and is tagged with the settings key it was computed
+ * under (the target's exclusion set version and the diff modes). Rows are colored from the active
+ * snapshot, so switching targets only swaps a reference.
+ * Entries captured after a snapshot was created are queued on it by number and classified off the
+ * Event Dispatch Thread while it is the current target's, or when its target is selected again.
+ */
+public class RowClassifications {
+
+    private static final RowDiffType[] TYPES = RowDiffType.values();
+    private static final int TYPES_PER_WORD = 32;
+
+    /**
+     * The row difference types of the log against one target, computed under one settings key.
+     * Entries never classified read as NONE.
+     */
+    public static final class Snapshot {
+        private final int targetNumber;
+        private final long key;
+        private long[] bits = new long[64];
+        private volatile boolean complete;
+        private int[] queued = new int[0];
+        private int queuedCount;
+
+        Snapshot(int targetNumber, long key) {
+            this.targetNumber = targetNumber;
+            this.key = key;
+        }
+
+        /** Returns the number of the target entry the rows were compared with. */
+        public int getTargetNumber() { return targetNumber; }
+
+        /** Returns the settings key the snapshot was computed under. */
+        public long getKey() { return key; }
+
+        /** Returns true once every entry present when classification started has been classified. */
+        public boolean isComplete() { return complete; }
+
+        /** Marks the snapshot as covering the whole log. */
+        public void markComplete() { this.complete = true; }
+
+        /** Returns the difference type of the entry with the given number. */
+        public synchronized RowDiffType get(int number) {
+            int word = number / TYPES_PER_WORD;
+            if (number < 0 || word >= bits.length) return RowDiffType.NONE;
+            int shift = (number % TYPES_PER_WORD) * 2;
+            return TYPES[(int) (bits[word] >>> shift) & 3];
+        }
+
+        /** Sets the difference type of the entry with the given number. */
+        public synchronized void set(int number, RowDiffType type) {
+            if (number < 0) return;
+            int word = number / TYPES_PER_WORD;
+            if (word >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+            }
+            int shift = (number % TYPES_PER_WORD) * 2;
+            bits[word] = (bits[word] & ~(3L << shift)) | ((long) type.ordinal() << shift);
+        }
+
+        /** Queues a new entry to be classified by the next takeQueued caller. */
+        public synchronized void queue(int number) {
+            if (queuedCount == queued.length) {
+                queued = Arrays.copyOf(queued, Math.max(16, queuedCount * 2));
+            }
+            queued[queuedCount++] = number;
+        }
+
+        /** Returns true if entries are queued. */
+        public synchronized boolean hasQueued() {
+            return queuedCount > 0;
+        }
+
+        /** Returns the queued entry numbers and empties the queue, or null if it is empty. */
+        public synchronized int[] takeQueued() {
+            if (queuedCount == 0) return null;
+            int[] numbers = Arrays.copyOf(queued, queuedCount);
+            queued = new int[0];
+            queuedCount = 0;
+            return numbers;
+        }
+
+        /** Returns the estimated heap size of the snapshot in bytes. */
+        public synchronized long getEstimatedBytes() {
+            return 32 + 8L * bits.length + 4L * queued.length;
+        }
+    }
+
+    private final Map<Integer, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private volatile Snapshot active;
+
+    /**
+     * Returns the difference type of the entry in the active snapshot, or NONE if there is none.
+     */
+    public RowDiffType get(int number) {
+        Snapshot snapshot = active;
+        return snapshot == null ? RowDiffType.NONE : snapshot.get(number);
+    }
+
+    /**
+     * Returns the target's snapshot if it was computed under the given key, or null.
+     */
+    public Snapshot find(int targetNumber, long key) {
+        Snapshot snapshot = snapshots.get(targetNumber);
+        return snapshot != null && snapshot.key == key ? snapshot : null;
+    }
+
+    /**
+     * Creates an empty snapshot for the target under the given key, replacing any previous one.
+     */
+    public Snapshot create(int targetNumber, long key) {
+        Snapshot snapshot = new Snapshot(targetNumber, key);
+        snapshots.put(targetNumber, snapshot);
+        return snapshot;
+    }
+
+    /** Makes the snapshot the one rows are colored from; null colors every row as NONE. */
+    public void activate(Snapshot snapshot) { this.active = snapshot; }
+
+    /** Returns the snapshot rows are colored from, or null if there is none. */
+    public Snapshot getActive() { return active; }
+
+    /**
+     * Returns the snapshots of all targets, for queuing new entries on them.
+     */
+    public List<Snapshot> getSnapshots() {
+        return new ArrayList<>(snapshots.values());
+    }
+
+    /**
+     * Removes the target's snapshot, deactivating it if it is active.
+     */
+    public void remove(int targetNumber) {
+        Snapshot removed = snapshots.remove(targetNumber);
+        if (removed != null && removed == active) active = null;
+    }
+
+    /** Removes all snapshots. */
+    public void clear() {
+        snapshots.clear();
+        active = null;
+    }
+
+    /** Returns the estimated heap size of all snapshots in bytes. */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Snapshot snapshot : snapshots.values()) {
+            bytes += snapshot.getEstimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Drops every snapshot except the active one and returns the estimated number of bytes released.
+     */
+    public long releaseInactive() {
+        long released = 0;
+        List<Integer> targets = new ArrayList<>(snapshots.keySet());
+        for (Integer target : targets) {
+            Snapshot snapshot = snapshots.get(target);
+            if (snapshot == null || snapshot == active) continue;
+            if (snapshots.remove(target, snapshot)) {
+                released += snapshot.getEstimatedBytes();
+            }
+        }
+        return released;
+    }
+}
@@ -1,15 +1,24 @@
 package org.diffhunter.model;
 
+import org.diffhunter.search.ExclusionMatcher;
+
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Holds exclusion rules for a specific target (host + endpoint).
+ * The enabled rules of each side are compiled into one ExclusionMatcher, which is rebuilt only
+ * when the rule-set version changes: a rule is added or removed, or a rule's version changes.
  */
 public class TargetExclusions {
 
     private final List<ExclusionRule> requestExclusions = new ArrayList<>();
     private final List<ExclusionRule> responseExclusions = new ArrayList<>();
+    private long listVersion = ExclusionRule.nextVersion();
+    private ExclusionMatcher requestMatcher;
+    private ExclusionMatcher responseMatcher;
+    private long requestMatcherVersion = -1;
+    private long responseMatcherVersion = -1;
 
     /**
      * Returns the list of request exclusion rules.
@@ -28,62 +37,104 @@ public class TargetExclusions {
     /**
      * Adds a request exclusion rule.
      */
-    public void addRequestExclusion(ExclusionRule rule) {
+    public synchronized void addRequestExclusion(ExclusionRule rule) {
         requestExclusions.add(rule);
+        listVersion = ExclusionRule.nextVersion();
     }
 
     /**
      * Adds a response exclusion rule.
      */
-    public void addResponseExclusion(ExclusionRule rule) {
+    public synchronized void addResponseExclusion(ExclusionRule rule) {
         responseExclusions.add(rule);
+        listVersion = ExclusionRule.nextVersion();
+    }
+
+    /**
+     * Removes the request exclusion rule at the given index.
+     */
+    public synchronized void removeRequestExclusion(int index) {
+        requestExclusions.remove(index);
+        listVersion = ExclusionRule.nextVersion();
+    }
+
+    /**
+     * Removes the response exclusion rule at the given index.
+     */
+    public synchronized void removeResponseExclusion(int index) {
+        responseExclusions.remove(index);
+        listVersion = ExclusionRule.nextVersion();
+    }
+
+    /**
+     * Returns the compiled matcher for the enabled request exclusions.
+     */
+    public synchronized ExclusionMatcher getRequestMatcher() {
+        long version = version(requestExclusions);
+        if (version != requestMatcherVersion) {
+            requestMatcher = ExclusionMatcher.compile(requestExclusions);
+            requestMatcherVersion = version;
+        }
+        return requestMatcher;
+    }
+
+    /**
+     * Returns the compiled matcher for the enabled response exclusions.
+     */
+    public synchronized ExclusionMatcher getResponseMatcher() {
+        long version = version(responseExclusions);
+        if (version != responseMatcherVersion) {
+            responseMatcher = ExclusionMatcher.compile(responseExclusions);
+            responseMatcherVersion = version;
+        }
+        return responseMatcher;
+    }
+
+    /**
+     * Returns the version of the whole exclusion set, which changes whenever a rule of either side
+     * is added, removed, edited, toggled or disabled for timing out.
+     */
+    public synchronized long getVersion() {
+        return Math.max(version(requestExclusions), version(responseExclusions));
     }
 
     /**
      * Checks if the given text matches any enabled request exclusion.
      */
     public boolean matchesRequestExclusion(String text) {
-        for (ExclusionRule rule : requestExclusions) {
-            if (rule.matches(text)) {
-                return true;
-            }
-        }
-        return false;
+        return getRequestMatcher().firstMatch(text) >= 0;
     }
 
     /**
      * Checks if the given text matches any enabled response exclusion.
      */
     public boolean matchesResponseExclusion(String text) {
-        for (ExclusionRule rule : responseExclusions) {
-            if (rule.matches(text)) {
-                return true;
-            }
-        }
-        return false;
+        return getResponseMatcher().firstMatch(text) >= 0;
     }
 
     /**
      * Returns true if there are any enabled request exclusions.
      */
     public boolean hasEnabledRequestExclusions() {
-        for (ExclusionRule rule : requestExclusions) {
-            if (rule.isEnabled() && rule.isValid()) {
-                return true;
-            }
-        }
-        return false;
+        return !getRequestMatcher().isEmpty();
     }
 
     /**
      * Returns true if there are any enabled response exclusions.
      */
     public boolean hasEnabledResponseExclusions() {
-        for (ExclusionRule rule : responseExclusions) {
-            if (rule.isEnabled() && rule.isValid()) {
-                return true;
-            }
+        return !getResponseMatcher().isEmpty();
+    }
+
+    /**
+     * Returns the rule-set version of a list: the newest stamp among the list and its rules.
+     * Stamps only grow, so any change yields a version that was never seen before.
+     */
+    private long version(List<ExclusionRule> rules) {
+        long version = listVersion;
+        for (ExclusionRule rule : rules) {
+            version = Math.max(version, rule.getVersion());
         }
-        return false;
+        return version;
     }
 }
@@ -0,0 +1,113 @@
+package org.diffhunter.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over ASCII keywords, matched case-insensitively in a single pass.
+ * The goto function is resolved into a full transition table, so each text character costs one
+ * array lookup; non-ASCII characters cannot be part of a keyword and reset the automaton.
+ */
+final class AhoCorasick {
+
+    private static final int ALPHABET = 128;
+
+    private int[][] next = new int[16][];
+    private int[] keyword = new int[16];
+    private int[] fail = new int[16];
+    private int[] dictionary = new int[16];
+    private int states;
+    private final int keywordCount;
+
+    /**
+     * Builds the automaton. Keywords must be ASCII; keyword ids are their indices in the list.
+     */
+    AhoCorasick(List<String> keywords) {
+        this.keywordCount = keywords.size();
+        newState();
+        for (int id = 0; id < keywords.size(); id++) {
+            String word = keywords.get(id);
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                int c = lower(word.charAt(i));
+                if (next[state][c] == 0) {
+                    int created = newState();
+                    next[state][c] = created;
+                }
+                state = next[state][c];
+            }
+            keyword[state] = id;
+        }
+        link();
+    }
+
+    /**
+     * Scans the text and sets found[id] for every keyword that occurs in it.
+     * Stops early once all keywords have been found. Returns the number of keywords found.
+     */
+    int scan(String text, boolean[] found) {
+        int remaining = keywordCount;
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= ALPHABET) {
+                state = 0;
+                continue;
+            }
+            state = next[state][lower(c)];
+            for (int s = keyword[state] >= 0 ? state : dictionary[state]; s > 0; s = dictionary[s]) {
+                if (!found[keyword[s]]) {
+                    found[keyword[s]] = true;
+                    if (--remaining == 0) return keywordCount;
+                }
+            }
+        }
+        return keywordCount - remaining;
+    }
+
+    /** Computes failure and dictionary links breadth-first and fills in missing transitions. */
+    private void link() {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int child = next[0][c];
+            if (child != 0) {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int failState = fail[state];
+            dictionary[state] = keyword[failState] >= 0 ? failState : dictionary[failState];
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = next[state][c];
+                if (child != 0) {
+                    fail[child] = next[failState][c];
+                    queue.add(child);
+                } else {
+                    next[state][c] = next[failState][c];
+                }
+            }
+        }
+    }
+
+    private int newState() {
+        if (states == next.length) {
+            int capacity = states * 2;
+            next = Arrays.copyOf(next, capacity);
+            keyword = Arrays.copyOf(keyword, capacity);
+            fail = Arrays.copyOf(fail, capacity);
+            dictionary = Arrays.copyOf(dictionary, capacity);
+        }
+        next[states] = new int[ALPHABET];
+        keyword[states] = -1;
+        return states++;
+    }
+
+    /** Lower-cases an ASCII character. */
+    private static int lower(char c) {
+        return c >= 'A' && c <= 'Z' ? c + 32 : c;
+    }
+}
@@ -0,0 +1,194 @@
+package org.diffhunter.search;
+
+import org.diffhunter.model.ExclusionRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * All enabled exclusion rules of a target compiled into one matcher.
+ * The longest required literal of each rule goes into an Aho-Corasick prefilter, so one pass over
+ * the text tells which rules can possibly match and only those run their regex. Rules without
+ * a usable literal always run. Built once per rule-set version by TargetExclusions.
+ * Regexes run under a GuardedRegex budget; a rule that exceeds it is marked invalid and skipped,
+ * and the remaining rules still run.
+ * Patterns are compiled in MULTILINE mode, so ^ and $ anchor at line boundaries when a whole
+ * message is searched, as they did when rules ran against single diff lines.
+ */
+public final class ExclusionMatcher {
+
+    /** A matcher with no rules. */
+    public static final ExclusionMatcher EMPTY = new ExclusionMatcher(new ExclusionRule[0], new Pattern[0], new int[0], null, new int[0][], new int[0]);
+
+    private static final int MIN_LITERAL_LENGTH = 3;
+
+    private final ExclusionRule[] rules;
+    private final Pattern[] patterns;
+    private final int[] ruleIndices;
+    private final AhoCorasick prefilter;
+    private final int[][] patternsByKeyword;
+    private final int[] unfiltered;
+
+    private ExclusionMatcher(ExclusionRule[] rules, Pattern[] patterns, int[] ruleIndices, AhoCorasick prefilter,
+                             int[][] patternsByKeyword, int[] unfiltered) {
+        this.rules = rules;
+        this.patterns = patterns;
+        this.ruleIndices = ruleIndices;
+        this.prefilter = prefilter;
+        this.patternsByKeyword = patternsByKeyword;
+        this.unfiltered = unfiltered;
+    }
+
+    /**
+     * Compiles the enabled, valid rules of the list. Rule indices reported by firstMatch refer to it.
+     */
+    public static ExclusionMatcher compile(List<ExclusionRule> rules) {
+        List<ExclusionRule> compiled = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
+        List<Integer> ruleIndices = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+        Map<String, List<Integer>> byKeyword = new HashMap<>();
+        List<Integer> unfiltered = new ArrayList<>();
+
+        for (int i = 0; i < rules.size(); i++) {
+            Pattern active = rules.get(i).getActivePattern();
+            if (active == null) continue;
+            Pattern pattern = Pattern.compile(active.pattern(), active.flags() | Pattern.MULTILINE);
+            int index = patterns.size();
+            compiled.add(rules.get(i));
+            patterns.add(pattern);
+            ruleIndices.add(i);
+
+            String literal = longestAsciiLiteral(pattern.pattern());
+            if (literal == null) {
+                unfiltered.add(index);
+                continue;
+            }
+            String key = literal.toLowerCase(Locale.ROOT);
+            List<Integer> sharing = byKeyword.get(key);
+            if (sharing == null) {
+                sharing = new ArrayList<>();
+                byKeyword.put(key, sharing);
+                keywords.add(key);
+            }
+            sharing.add(index);
+        }
+        if (patterns.isEmpty()) return EMPTY;
+
+        int[][] patternsByKeyword = new int[keywords.size()][];
+        for (int k = 0; k < keywords.size(); k++) {
+            patternsByKeyword[k] = toArray(byKeyword.get(keywords.get(k)));
+        }
+        return new ExclusionMatcher(compiled.toArray(new ExclusionRule[0]), patterns.toArray(new Pattern[0]), toArray(ruleIndices),
+                keywords.isEmpty() ? null : new AhoCorasick(keywords), patternsByKeyword, toArray(unfiltered));
+    }
+
+    /** Returns true if there are no enabled rules. */
+    public boolean isEmpty() { return patterns.length == 0; }
+
+    /**
+     * Returns the index of the first rule, in list order, that finds a match in the text, or -1.
+     * A rule whose match exceeds its budget is skipped for this text, and disabled if it was the
+     * step budget.
+     */
+    public int firstMatch(String text) {
+        boolean[] candidates = candidates(text);
+        for (int i = 0; i < patterns.length; i++) {
+            if (!candidates[i] || !rules[i].isValid()) continue;
+            try {
+                if (GuardedRegex.find(patterns[i], text)) {
+                    return ruleIndices[i];
+                }
+            } catch (RegexTimeoutException e) {
+                rules[i].markTimedOut(e);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns every non-empty match of every rule as start << 32 | end, unsorted.
+     * The matches of a rule that times out are dropped for this text, and the rule is disabled if
+     * it exceeded the step budget.
+     */
+    public long[] findAll(String text) {
+        boolean[] candidates = candidates(text);
+        long[] ranges = new long[16];
+        int count = 0;
+        for (int i = 0; i < patterns.length; i++) {
+            if (!candidates[i] || !rules[i].isValid()) continue;
+            int ruleStart = count;
+            GuardedRegex matcher = GuardedRegex.matcher(patterns[i], text);
+            try {
+                while (matcher.find()) {
+                    if (matcher.end() == matcher.start()) continue;
+                    if (count == ranges.length) {
+                        ranges = Arrays.copyOf(ranges, count * 2);
+                    }
+                    ranges[count++] = (long) matcher.start() << 32 | matcher.end();
+                }
+            } catch (RegexTimeoutException e) {
+                rules[i].markTimedOut(e);
+                count = ruleStart;
+            }
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Returns, per compiled pattern, whether it can match the text: its literal occurs in the text
+     * (case-insensitively) or it has no literal.
+     */
+    private boolean[] candidates(String text) {
+        boolean[] candidates = new boolean[patterns.length];
+        for (int index : unfiltered) {
+            candidates[index] = true;
+        }
+        if (prefilter != null) {
+            boolean[] found = new boolean[patternsByKeyword.length];
+            if (prefilter.scan(text, found) > 0) {
+                for (int k = 0; k < found.length; k++) {
+                    if (!found[k]) continue;
+                    for (int index : patternsByKeyword[k]) {
+                        candidates[index] = true;
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the longest required literal of the regex that is ASCII and at least MIN_LITERAL_LENGTH
+     * characters long, or null if there is none.
+     */
+    private static String longestAsciiLiteral(String regex) {
+        String longest = null;
+        for (String literal : RegexLiterals.requiredLiterals(regex, MIN_LITERAL_LENGTH)) {
+            if ((longest == null || literal.length() > longest.length()) && isAscii(literal)) {
+                longest = literal;
+            }
+        }
+        return longest;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 128) return false;
+        }
+        return true;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
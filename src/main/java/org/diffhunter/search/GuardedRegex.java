@@ -0,0 +1,124 @@
+package org.diffhunter.search;
+
+import org.diffhunter.util.Constants;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A regex matcher that cannot run away on catastrophic backtracking.
+ * The text is wrapped in a CharSequence that counts every character the regex engine reads and
+ * checks a deadline every few thousand reads. Each find gets a fresh budget of
+ * REGEX_STEP_BUDGET steps plus REGEX_STEPS_PER_CHAR per remaining character, and
+ * REGEX_TIME_BUDGET_MS; exceeding either aborts the find with a RegexTimeoutException.
+ * Timeouts are counted for the statistics.
+ */
+public final class GuardedRegex {
+
+    private static final int CLOCK_INTERVAL_MASK = 4095;
+    private static final AtomicLong TIMEOUTS = new AtomicLong();
+
+    private final Matcher matcher;
+    private final BudgetedText text;
+    private int searchFrom;
+
+    private GuardedRegex(Pattern pattern, CharSequence text) {
+        this.text = new BudgetedText(text);
+        this.matcher = pattern.matcher(this.text);
+    }
+
+    /**
+     * Returns a guarded matcher of the pattern over the text.
+     */
+    public static GuardedRegex matcher(Pattern pattern, CharSequence text) {
+        return new GuardedRegex(pattern, text);
+    }
+
+    /**
+     * Returns true if the pattern finds a match anywhere in the text.
+     *
+     * @throws RegexTimeoutException if the match exceeds its budget
+     */
+    public static boolean find(Pattern pattern, CharSequence text) {
+        return new GuardedRegex(pattern, text).find();
+    }
+
+    /**
+     * Finds the next match with a fresh budget. After a timeout the matcher must not be used again.
+     *
+     * @throws RegexTimeoutException if the match exceeds its budget
+     */
+    public boolean find() {
+        text.arm(text.length() - searchFrom);
+        try {
+            boolean found = matcher.find();
+            if (found) searchFrom = matcher.end();
+            return found;
+        } catch (RegexTimeoutException e) {
+            TIMEOUTS.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /** Returns the start offset of the last match. */
+    public int start() { return matcher.start(); }
+
+    /** Returns the end offset of the last match. */
+    public int end() { return matcher.end(); }
+
+    /**
+     * Returns the number of matches aborted for exceeding their budget since the extension loaded.
+     */
+    public static long getTimeoutCount() {
+        return TIMEOUTS.get();
+    }
+
+    /**
+     * The text as seen by the regex engine, charging one step per character read.
+     */
+    private static final class BudgetedText implements CharSequence {
+
+        private final CharSequence text;
+        private long steps;
+        private long stepLimit;
+        private long deadline;
+
+        BudgetedText(CharSequence text) {
+            this.text = text;
+        }
+
+        /** Resets the budget for a match over the given number of remaining characters. */
+        void arm(int remaining) {
+            steps = 0;
+            stepLimit = Constants.REGEX_STEP_BUDGET + (long) Constants.REGEX_STEPS_PER_CHAR * remaining;
+            deadline = System.nanoTime() + Constants.REGEX_TIME_BUDGET_MS * 1_000_000L;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++steps > stepLimit) {
+                throw new RegexTimeoutException(String.format("exceeded %,d steps", stepLimit), true);
+            }
+            if ((steps & CLOCK_INTERVAL_MASK) == 0 && System.nanoTime() > deadline) {
+                throw new RegexTimeoutException("exceeded " + Constants.REGEX_TIME_BUDGET_MS + " ms", false);
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
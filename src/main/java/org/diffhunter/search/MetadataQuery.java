@@ -0,0 +1,239 @@
+package org.diffhunter.search;
+
+import org.diffhunter.model.HttpLogEntry;
+import org.diffhunter.model.RowDiffType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled table filter query with metadata terms and free body text.
+ * Metadata terms such as {@code status:500 len>10000 method:POST host:api.* time>800 diff:response}
+ * are evaluated against the in-memory columns of HttpLogEntry and never read the stored bodies.
+ * Words that are not metadata terms are joined into the body text, which callers evaluate
+ * only for entries that already passed the metadata terms.
+ */
+public class MetadataQuery implements Predicate<HttpLogEntry> {
+
+    private static final String OPERATOR_CHARS = ":=<>";
+
+    private final List<Predicate<HttpLogEntry>> terms;
+    private final String bodyText;
+
+    /**
+     * Creates a query from compiled metadata terms and the remaining body text.
+     */
+    private MetadataQuery(List<Predicate<HttpLogEntry>> terms, String bodyText) {
+        this.terms = terms;
+        this.bodyText = bodyText;
+    }
+
+    /**
+     * Parses a filter string into a query.
+     * Throws IllegalArgumentException if a metadata term has an invalid value.
+     */
+    public static MetadataQuery parse(String text) {
+        List<Predicate<HttpLogEntry>> terms = new ArrayList<>();
+        List<String> bodyWords = new ArrayList<>();
+
+        for (String token : tokenize(text)) {
+            Predicate<HttpLogEntry> term = parseTerm(token);
+            if (term != null) {
+                terms.add(term);
+            } else {
+                bodyWords.add(unquote(token));
+            }
+        }
+
+        return new MetadataQuery(terms, String.join(" ", bodyWords));
+    }
+
+    /**
+     * Returns true if the entry passes all metadata terms.
+     */
+    @Override
+    public boolean test(HttpLogEntry entry) {
+        for (Predicate<HttpLogEntry> term : terms) {
+            if (!term.test(entry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the query contains at least one metadata term.
+     */
+    public boolean hasMetadataTerms() {
+        return !terms.isEmpty();
+    }
+
+    /**
+     * Returns the free text to search in request and response bodies, or an empty string.
+     */
+    public String getBodyText() {
+        return bodyText;
+    }
+
+    /**
+     * Parses a single token into a metadata term, or returns null if it is a body word.
+     */
+    private static Predicate<HttpLogEntry> parseTerm(String token) {
+        boolean negated = token.startsWith("-") && token.length() > 1;
+        String term = negated ? token.substring(1) : token;
+
+        int index = 0;
+        while (index < term.length() && OPERATOR_CHARS.indexOf(term.charAt(index)) < 0) {
+            index++;
+        }
+        if (index == 0 || index == term.length()) return null;
+
+        String operator = term.substring(index, index + 1);
+        if ((operator.equals(">") || operator.equals("<")) && term.startsWith("=", index + 1)) {
+            operator += "=";
+        }
+
+        String field = term.substring(0, index).toLowerCase(Locale.ROOT);
+        String value = unquote(term.substring(index + operator.length()));
+        Predicate<HttpLogEntry> predicate = compileField(field, operator, value);
+        if (predicate == null) return null;
+        return negated ? predicate.negate() : predicate;
+    }
+
+    /**
+     * Compiles a field comparison, or returns null if the field is unknown.
+     */
+    private static Predicate<HttpLogEntry> compileField(String field, String operator, String value) {
+        return switch (field) {
+            case "status" -> compileNumeric(field, operator, value, HttpLogEntry::getStatusCode);
+            case "len", "length" -> compileNumeric(field, operator, value, HttpLogEntry::getLength);
+            case "time" -> compileNumeric(field, operator, value, HttpLogEntry::getResponseTime);
+            case "tool" -> compileText(field, operator, value, HttpLogEntry::getTool);
+            case "method" -> compileText(field, operator, value, HttpLogEntry::getMethod);
+            case "host" -> compileText(field, operator, value, HttpLogEntry::getHost);
+            case "path" -> compileText(field, operator, value, HttpLogEntry::getPath);
+            case "query" -> compileText(field, operator, value, HttpLogEntry::getQuery);
+            case "diff" -> compileDiff(operator, value);
+            default -> null;
+        };
+    }
+
+    /**
+     * Compiles a numeric comparison. With ':' or '=' the value may use 'x' or '*' as digit wildcards (e.g. 5xx).
+     */
+    private static Predicate<HttpLogEntry> compileNumeric(String field, String operator, String value,
+                                                          ToLongFunction<HttpLogEntry> getter) {
+        if ((operator.equals(":") || operator.equals("=")) && value.matches("[0-9xX*]+") && !value.matches("[0-9]+")) {
+            Pattern pattern = Pattern.compile(value.toLowerCase(Locale.ROOT).replace("*", "[0-9]*").replace("x", "[0-9]"));
+            return entry -> pattern.matcher(Long.toString(getter.applyAsLong(entry))).matches();
+        }
+
+        long number;
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + field + ": " + value);
+        }
+
+        return switch (operator) {
+            case ">" -> entry -> getter.applyAsLong(entry) > number;
+            case "<" -> entry -> getter.applyAsLong(entry) < number;
+            case ">=" -> entry -> getter.applyAsLong(entry) >= number;
+            case "<=" -> entry -> getter.applyAsLong(entry) <= number;
+            default -> entry -> getter.applyAsLong(entry) == number;
+        };
+    }
+
+    /**
+     * Compiles a case-insensitive glob match where '*' matches any text and '?' a single character.
+     */
+    private static Predicate<HttpLogEntry> compileText(String field, String operator, String value,
+                                                       Function<HttpLogEntry, String> getter) {
+        if (!operator.equals(":") && !operator.equals("=")) {
+            throw new IllegalArgumentException("Operator " + operator + " is not supported for " + field);
+        }
+
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        Pattern pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        return entry -> {
+            String text = getter.apply(entry);
+            return text != null && pattern.matcher(text).matches();
+        };
+    }
+
+    /**
+     * Compiles a row difference type comparison: request, response, both, none or any.
+     */
+    private static Predicate<HttpLogEntry> compileDiff(String operator, String value) {
+        if (!operator.equals(":") && !operator.equals("=")) {
+            throw new IllegalArgumentException("Operator " + operator + " is not supported for diff");
+        }
+
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "request" -> entry -> entry.getRowDiffType() == RowDiffType.REQUEST_ONLY;
+            case "response" -> entry -> entry.getRowDiffType() == RowDiffType.RESPONSE_ONLY;
+            case "both" -> entry -> entry.getRowDiffType() == RowDiffType.BOTH;
+            case "none" -> entry -> entry.getRowDiffType() == RowDiffType.NONE;
+            case "any" -> entry -> entry.getRowDiffType() != RowDiffType.NONE;
+            default -> throw new IllegalArgumentException("Invalid diff value: " + value);
+        };
+    }
+
+    /**
+     * Splits the text on whitespace, keeping double-quoted sections together.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (char c : text.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                current.append(c);
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (!current.isEmpty()) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Removes surrounding double quotes from a value.
+     */
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,335 @@
+package org.diffhunter.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of entry numbers in the style of a roaring bitmap.
+ * Values are grouped by their high 16 bits into containers that store the low 16 bits
+ * either as a sorted array (sparse) or as a 65536-bit bitmap (dense).
+ */
+public class PostingList {
+
+    private static final int ARRAY_CONTAINER_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[2];
+    private Container[] containers = new Container[2];
+    private int size;
+
+    /**
+     * Adds a value to the list.
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = findContainer(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new Container());
+        }
+        containers[index].add((char) value);
+    }
+
+    /**
+     * Removes a value from the list, dropping its container when it becomes empty.
+     */
+    public void remove(int value) {
+        int index = findContainer((char) (value >>> 16));
+        if (index < 0) return;
+        Container container = containers[index];
+        container.remove((char) value);
+        if (container.cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        }
+    }
+
+    /**
+     * Returns true if the list contains the given value.
+     */
+    public boolean contains(int value) {
+        int index = findContainer((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in the list.
+     */
+    public int getCardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].cardinality;
+        }
+        return total;
+    }
+
+    /**
+     * Returns true if the list has no values.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls the consumer for every value in ascending order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * Returns a copy of this list.
+     */
+    public PostingList copy() {
+        PostingList result = new PostingList();
+        result.keys = Arrays.copyOf(keys, Math.max(2, size));
+        result.containers = new Container[result.keys.length];
+        for (int i = 0; i < size; i++) {
+            result.containers[i] = containers[i].copy();
+        }
+        result.size = size;
+        return result;
+    }
+
+    /**
+     * Returns the intersection of two lists.
+     */
+    public static PostingList and(PostingList a, PostingList b) {
+        PostingList result = new PostingList();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container merged = Container.and(a.containers[i], b.containers[j]);
+                if (merged.cardinality > 0) {
+                    result.insertContainer(result.size, a.keys[i], merged);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the union of two lists.
+     */
+    public static PostingList or(PostingList a, PostingList b) {
+        PostingList result = new PostingList();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j >= b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.insertContainer(result.size, a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i >= a.size || a.keys[i] > b.keys[j]) {
+                result.insertContainer(result.size, b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.insertContainer(result.size, a.keys[i], Container.or(a.containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values of a that are not in b.
+     */
+    public static PostingList andNot(PostingList a, PostingList b) {
+        PostingList result = new PostingList();
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) j++;
+            Container container = j < b.size && b.keys[j] == a.keys[i]
+                    ? Container.andNot(a.containers[i], b.containers[j])
+                    : a.containers[i].copy();
+            if (container.cardinality > 0) {
+                result.insertContainer(result.size, a.keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the container index for a key, or (-(insertion point) - 1) if absent.
+     * Checks the last container first since entry numbers are mostly appended in order.
+     */
+    private int findContainer(char key) {
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Inserts a container at the given position, growing the arrays as needed.
+     */
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Holds the low 16 bits of values sharing the same high 16 bits.
+     * Uses a sorted array while sparse and converts to a bitmap when it grows past 4096 values.
+     */
+    private static final class Container {
+
+        private char[] values = new char[4];
+        private long[] bitmap;
+        private int cardinality;
+
+        /** Adds a low value to the container. */
+        void add(char value) {
+            if (bitmap != null) {
+                long mask = 1L << value;
+                if ((bitmap[value >>> 6] & mask) == 0) {
+                    bitmap[value >>> 6] |= mask;
+                    cardinality++;
+                }
+                return;
+            }
+
+            int index;
+            if (cardinality == 0 || values[cardinality - 1] < value) {
+                index = cardinality;
+            } else {
+                index = Arrays.binarySearch(values, 0, cardinality, value);
+                if (index >= 0) return;
+                index = -index - 1;
+            }
+
+            if (cardinality == ARRAY_CONTAINER_MAX) {
+                toBitmap();
+                add(value);
+                return;
+            }
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_CONTAINER_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+        }
+
+        /** Removes a low value from the container. */
+        void remove(char value) {
+            if (bitmap != null) {
+                long mask = 1L << value;
+                if ((bitmap[value >>> 6] & mask) != 0) {
+                    bitmap[value >>> 6] &= ~mask;
+                    cardinality--;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+        }
+
+        /** Returns true if the container holds the low value. */
+        boolean contains(char value) {
+            if (bitmap != null) {
+                return (bitmap[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        /** Calls the consumer for every value, combined with the container's high bits. */
+        void forEach(int high, IntConsumer consumer) {
+            if (bitmap != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long bits = bitmap[word];
+                    while (bits != 0) {
+                        int bit = Long.numberOfTrailingZeros(bits);
+                        consumer.accept(high | (word << 6) | bit);
+                        bits &= bits - 1;
+                    }
+                }
+                return;
+            }
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        /** Returns a deep copy of the container. */
+        Container copy() {
+            Container result = new Container();
+            result.cardinality = cardinality;
+            if (bitmap != null) {
+                result.bitmap = bitmap.clone();
+                result.values = null;
+            } else {
+                result.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            }
+            return result;
+        }
+
+        /** Converts the sorted array representation into a bitmap. */
+        private void toBitmap() {
+            bitmap = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                char value = values[i];
+                bitmap[value >>> 6] |= 1L << value;
+            }
+            values = null;
+        }
+
+        /** Returns the intersection of two containers. */
+        static Container and(Container a, Container b) {
+            Container result = new Container();
+            if (a.bitmap != null && b.bitmap != null) {
+                result.bitmap = new long[BITMAP_WORDS];
+                result.values = null;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result.bitmap[i] = a.bitmap[i] & b.bitmap[i];
+                    result.cardinality += Long.bitCount(result.bitmap[i]);
+                }
+                return result;
+            }
+            Container sparse = a.bitmap == null ? a : b;
+            Container other = sparse == a ? b : a;
+            for (int i = 0; i < sparse.cardinality; i++) {
+                if (other.contains(sparse.values[i])) {
+                    result.add(sparse.values[i]);
+                }
+            }
+            return result;
+        }
+
+        /** Returns the values of a that are not in b. */
+        static Container andNot(Container a, Container b) {
+            Container result = new Container();
+            a.forEach(0, value -> {
+                if (!b.contains((char) value)) result.add((char) value);
+            });
+            return result;
+        }
+
+        /** Returns the union of two containers. */
+        static Container or(Container a, Container b) {
+            Container result = a.copy();
+            b.forEach(0, value -> result.add((char) value));
+            return result;
+        }
+    }
+}
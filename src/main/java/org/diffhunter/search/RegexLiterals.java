@@ -0,0 +1,221 @@
+package org.diffhunter.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts literal substrings that every match of a regular expression must contain.
+ * The extraction is conservative: when the pattern uses constructs that cannot be
+ * reasoned about cheaply (top-level alternation, unknown escapes, comments mode),
+ * no literals are returned and callers must fall back to a full scan.
+ */
+public final class RegexLiterals {
+
+    /** Private constructor to prevent instantiation. */
+    private RegexLiterals() {}
+
+    /**
+     * Returns the required literals of the given regex that are at least minLength characters long.
+     * Returns an empty list if no required literal can be safely extracted.
+     */
+    public static List<String> requiredLiterals(String regex, int minLength) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int length = regex.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = regex.charAt(i);
+            switch (c) {
+                case '\\' -> {
+                    if (i + 1 >= length) return List.of();
+                    char next = regex.charAt(i + 1);
+                    if (next == 'Q') {
+                        int end = regex.indexOf("\\E", i + 2);
+                        String quoted = end < 0 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+                        i = end < 0 ? length : end + 2;
+                        if (isQuantifier(regex, i)) {
+                            run.append(quoted, 0, Math.max(0, quoted.length() - 1));
+                            flush(run, literals, minLength);
+                            i = skipQuantifier(regex, i);
+                        } else {
+                            run.append(quoted);
+                        }
+                        continue;
+                    }
+                    Character literal = escapedLiteral(next);
+                    if (literal == null) {
+                        if ("dDwWsSbB".indexOf(next) < 0) return List.of();
+                        flush(run, literals, minLength);
+                        i += 2;
+                        i = skipQuantifier(regex, i);
+                        continue;
+                    }
+                    i = appendAtom(regex, i + 2, literal, run, literals, minLength);
+                }
+                case '[' -> {
+                    flush(run, literals, minLength);
+                    i = skipCharacterClass(regex, i);
+                    if (i < 0) return List.of();
+                    i = skipQuantifier(regex, i);
+                }
+                case '(' -> {
+                    if (regex.startsWith("(?", i) && hasCommentsFlag(regex, i + 2)) return List.of();
+                    flush(run, literals, minLength);
+                    i = skipGroup(regex, i);
+                    if (i < 0) return List.of();
+                    i = skipQuantifier(regex, i);
+                }
+                case '|' -> {
+                    return List.of();
+                }
+                case '.', '^', '$' -> {
+                    flush(run, literals, minLength);
+                    i = skipQuantifier(regex, i + 1);
+                }
+                case '*', '+', '?', '{', ')', ']' -> {
+                    return List.of();
+                }
+                default -> i = appendAtom(regex, i + 1, c, run, literals, minLength);
+            }
+        }
+
+        flush(run, literals, minLength);
+        return literals;
+    }
+
+    /**
+     * Appends a literal atom to the current run, honouring a following quantifier.
+     * Returns the index after the atom and its quantifier.
+     */
+    private static int appendAtom(String regex, int next, char c, StringBuilder run,
+                                  List<String> literals, int minLength) {
+        if (!isQuantifier(regex, next)) {
+            run.append(c);
+            return next;
+        }
+        if (requiresAtLeastOne(regex, next)) {
+            run.append(c);
+        }
+        flush(run, literals, minLength);
+        return skipQuantifier(regex, next);
+    }
+
+    /**
+     * Returns the literal character for a simple escape, or null if the escape is not a literal.
+     */
+    private static Character escapedLiteral(char c) {
+        if (!Character.isLetterOrDigit(c)) return c;
+        return switch (c) {
+            case 'n' -> '\n';
+            case 't' -> '\t';
+            case 'f' -> '\f';
+            default -> null;
+        };
+    }
+
+    /** Returns true if a quantifier starts at the given index. */
+    private static boolean isQuantifier(String regex, int i) {
+        if (i >= regex.length()) return false;
+        char c = regex.charAt(i);
+        return c == '*' || c == '+' || c == '?' || (c == '{' && regex.indexOf('}', i) > i);
+    }
+
+    /** Returns true if the quantifier at the given index requires at least one repetition. */
+    private static boolean requiresAtLeastOne(String regex, int i) {
+        char c = regex.charAt(i);
+        if (c == '+') return true;
+        if (c != '{') return false;
+        int end = regex.indexOf('}', i);
+        String min = regex.substring(i + 1, end).split(",", -1)[0].trim();
+        try {
+            return Integer.parseInt(min) >= 1;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /** Skips a quantifier and its lazy/possessive modifier, if present. */
+    private static int skipQuantifier(String regex, int i) {
+        if (!isQuantifier(regex, i)) return i;
+        i = regex.charAt(i) == '{' ? regex.indexOf('}', i) + 1 : i + 1;
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skips a (possibly nested) character class.
+     * Returns -1 if it is unterminated or starts with a bracket whose meaning is ambiguous.
+     */
+    private static int skipCharacterClass(String regex, int i) {
+        int depth = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                i++;
+                if (i < regex.length() && regex.charAt(i) == '^') i++;
+                if (i < regex.length() && regex.charAt(i) == ']') return -1;
+                continue;
+            }
+            if (c == ']') {
+                depth--;
+                if (depth == 0) return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /** Skips a group including nested groups and classes. Returns -1 if it is unterminated. */
+    private static int skipGroup(String regex, int i) {
+        int depth = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                if (i < 0) return -1;
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /** Returns true if the inline flag group starting at the given index enables comments mode. */
+    private static boolean hasCommentsFlag(String regex, int i) {
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == ')' || c == ':') return false;
+            if (c == '-') return false;
+            if (c == 'x') return true;
+            if (!Character.isLetter(c)) return false;
+            i++;
+        }
+        return false;
+    }
+
+    /** Adds the current run to the literals if it is long enough, then resets it. */
+    private static void flush(StringBuilder run, List<String> literals, int minLength) {
+        if (run.length() >= minLength) {
+            literals.add(run.toString());
+        }
+        run.setLength(0);
+    }
+}
@@ -0,0 +1,28 @@
+package org.diffhunter.search;
+
+/**
+ * Thrown when a guarded regex match exceeds its step or time budget.
+ */
+public class RegexTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean stepBudgetExceeded;
+
+    /**
+     * Creates a new exception with a message describing the exceeded budget, and whether it was the
+     * step budget rather than the time budget.
+     */
+    public RegexTimeoutException(String message, boolean stepBudgetExceeded) {
+        super(message);
+        this.stepBudgetExceeded = stepBudgetExceeded;
+    }
+
+    /**
+     * Returns true if the match exceeded its step budget, which only depends on the pattern and the
+     * text. A time budget overrun can also come from a busy machine.
+     */
+    public boolean isStepBudgetExceeded() {
+        return stepBudgetExceeded;
+    }
+}
@@ -0,0 +1,364 @@
+package org.diffhunter.search;
+
+import org.diffhunter.util.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incrementally maintained trigram inverted index over captured request and response text.
+ * Text is normalized the same way as HttpLogEntry (CRLF and CR become LF) and lowercased,
+ * so a single index serves both case-sensitive and case-insensitive searches.
+ * Lookups return candidate entry numbers that must still be verified against the full text.
+ * Texts over TRIGRAM_MAX_INDEXED_BYTES, and binary response bodies, are not indexed; their
+ * entries are kept in a list that every lookup on that side returns.
+ * Removed entries stay in the posting lists and are compacted out in the background once enough
+ * have accumulated, so removing an entry never needs its text. Lookups may therefore return
+ * numbers of removed entries.
+ */
+public class TrigramIndex {
+
+    private static final int TRIGRAM_LENGTH = 3;
+
+    private final Map<Long, PostingList> requestPostings = new HashMap<>();
+    private final Map<Long, PostingList> responsePostings = new HashMap<>();
+    private PostingList unindexedRequests = new PostingList();
+    private PostingList unindexedResponses = new PostingList();
+    private PostingList removed = new PostingList();
+    private int indexedCount;
+    private long postingCount;
+    private int highestNumber;
+    private int generation;
+    private boolean compacting;
+
+    /**
+     * Returns the sorted, distinct trigram keys of the given text.
+     * Can be called outside the index lock so capture threads do the heavy work in parallel.
+     */
+    public static long[] extractTrigrams(String text) {
+        if (text == null || text.length() < TRIGRAM_LENGTH) {
+            return new long[0];
+        }
+
+        TrigramSet trigrams = new TrigramSet();
+        char c0 = 0;
+        char c1 = 0;
+        int filled = 0;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                if (i + 1 < length && text.charAt(i + 1) == '\n') continue;
+                c = '\n';
+            }
+            c = Character.toLowerCase(c);
+            if (filled >= 2) {
+                trigrams.add(key(c0, c1, c));
+            } else {
+                filled++;
+            }
+            c0 = c1;
+            c1 = c;
+        }
+        return trigrams.toSortedArray();
+    }
+
+    /**
+     * Returns the sorted, distinct trigram keys of raw message bytes, read as ISO-8859-1 like
+     * extractTrigrams(String) without copying them into a String first.
+     */
+    public static long[] extractTrigrams(byte[] data) {
+        if (data == null || data.length < TRIGRAM_LENGTH) {
+            return new long[0];
+        }
+
+        TrigramSet trigrams = new TrigramSet();
+        char c0 = 0;
+        char c1 = 0;
+        int filled = 0;
+        int length = data.length;
+
+        for (int i = 0; i < length; i++) {
+            char c = (char) (data[i] & 0xFF);
+            if (c == '\r') {
+                if (i + 1 < length && data[i + 1] == '\n') continue;
+                c = '\n';
+            }
+            c = Character.toLowerCase(c);
+            if (filled >= 2) {
+                trigrams.add(key(c0, c1, c));
+            } else {
+                filled++;
+            }
+            c0 = c1;
+            c1 = c;
+        }
+        return trigrams.toSortedArray();
+    }
+
+    /**
+     * Adds an entry using trigrams previously computed by extractTrigrams. A null side was not
+     * indexed, such as a body over TRIGRAM_MAX_INDEXED_BYTES, and the entry is a candidate for
+     * every lookup on that side.
+     */
+    public synchronized void add(int entryNumber, long[] requestTrigrams, long[] responseTrigrams) {
+        if (requestTrigrams == null) {
+            unindexedRequests.add(entryNumber);
+        } else {
+            addPostings(requestPostings, entryNumber, requestTrigrams);
+            postingCount += requestTrigrams.length;
+        }
+        if (responseTrigrams == null) {
+            unindexedResponses.add(entryNumber);
+        } else {
+            addPostings(responsePostings, entryNumber, responseTrigrams);
+            postingCount += responseTrigrams.length;
+        }
+        indexedCount++;
+        highestNumber = Math.max(highestNumber, entryNumber);
+    }
+
+    /**
+     * Returns the highest entry number added since the index was last cleared. Entries are added in
+     * number order, so every entry up to it was indexed before this call returned.
+     */
+    public synchronized int getHighestNumber() {
+        return highestNumber;
+    }
+
+    /**
+     * Returns the estimated heap size of the index in bytes: two bytes per posting, which is what
+     * array containers use and bitmap containers stay under, plus a fixed cost per posting list.
+     * Postings of removed entries are not counted, as the next compaction drops them.
+     */
+    public synchronized long getEstimatedBytes() {
+        return 2 * (postingCount + unindexedRequests.getCardinality() + unindexedResponses.getCardinality())
+                + (long) (requestPostings.size() + responsePostings.size()) * Constants.TRIGRAM_LIST_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Removes an entry that was added with the given number of trigrams. Its postings are dropped
+     * by a background compaction once the removed entries reach a quarter of the index, and at
+     * least TRIGRAM_COMPACT_MIN_REMOVED.
+     */
+    public synchronized void remove(int entryNumber, int trigramCount) {
+        removed.add(entryNumber);
+        postingCount -= trigramCount;
+        indexedCount--;
+        int removedCount = removed.getCardinality();
+        if (!compacting && removedCount >= Math.max(Constants.TRIGRAM_COMPACT_MIN_REMOVED, indexedCount / 4)) {
+            compacting = true;
+            new Thread(this::compact).start();
+        }
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    public synchronized void clear() {
+        requestPostings.clear();
+        responsePostings.clear();
+        unindexedRequests = new PostingList();
+        unindexedResponses = new PostingList();
+        removed = new PostingList();
+        postingCount = 0;
+        indexedCount = 0;
+        highestNumber = 0;
+        generation++;
+    }
+
+    /**
+     * Drops the removed entries from every posting list, a batch of trigrams per lock so captures
+     * are not held up. Entries removed meanwhile are left for the next compaction; a clear
+     * abandons it.
+     */
+    private void compact() {
+        PostingList dead;
+        int startGeneration;
+        synchronized (this) {
+            dead = removed.copy();
+            startGeneration = generation;
+        }
+        boolean finished = compactPostings(requestPostings, dead, startGeneration)
+                && compactPostings(responsePostings, dead, startGeneration);
+        synchronized (this) {
+            if (finished && generation == startGeneration) {
+                removed = PostingList.andNot(removed, dead);
+                unindexedRequests = PostingList.andNot(unindexedRequests, dead);
+                unindexedResponses = PostingList.andNot(unindexedResponses, dead);
+            }
+            compacting = false;
+        }
+    }
+
+    /**
+     * Removes the dead entries from the posting lists of one side. Returns false if the index was
+     * cleared meanwhile.
+     */
+    private boolean compactPostings(Map<Long, PostingList> postings, PostingList dead, int startGeneration) {
+        List<Long> trigrams;
+        synchronized (this) {
+            if (generation != startGeneration) return false;
+            trigrams = new ArrayList<>(postings.keySet());
+        }
+        for (int from = 0; from < trigrams.size(); from += Constants.TRIGRAM_COMPACT_BATCH) {
+            int to = Math.min(trigrams.size(), from + Constants.TRIGRAM_COMPACT_BATCH);
+            synchronized (this) {
+                if (generation != startGeneration) return false;
+                for (int i = from; i < to; i++) {
+                    Long trigram = trigrams.get(i);
+                    PostingList list = postings.get(trigram);
+                    if (list == null) continue;
+                    PostingList live = PostingList.andNot(list, dead);
+                    if (live.isEmpty()) {
+                        postings.remove(trigram);
+                    } else {
+                        postings.put(trigram, live);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the entries whose searched text may contain the literal,
+     * or null if the literal is too short for the index to narrow the search.
+     */
+    public synchronized PostingList candidates(String literal, boolean requests, boolean responses) {
+        if (literal.length() < TRIGRAM_LENGTH || (!requests && !responses)) {
+            return null;
+        }
+
+        long[] trigrams = extractTrigrams(literal);
+        PostingList result = null;
+        if (requests) {
+            result = PostingList.or(intersect(requestPostings, trigrams), unindexedRequests);
+        }
+        if (responses) {
+            PostingList responseCandidates = PostingList.or(intersect(responsePostings, trigrams), unindexedResponses);
+            result = result == null ? responseCandidates : PostingList.or(result, responseCandidates);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entries whose searched text may match the regex,
+     * or null if no required literal could be extracted from it.
+     */
+    public PostingList candidatesForRegex(String regex, boolean requests, boolean responses) {
+        List<String> literals = RegexLiterals.requiredLiterals(regex, TRIGRAM_LENGTH);
+        if (literals.isEmpty() || (!requests && !responses)) {
+            return null;
+        }
+
+        synchronized (this) {
+            PostingList requestResult = null;
+            PostingList responseResult = null;
+            for (String literal : literals) {
+                long[] trigrams = extractTrigrams(literal);
+                if (requests) {
+                    PostingList c = intersect(requestPostings, trigrams);
+                    requestResult = requestResult == null ? c : PostingList.and(requestResult, c);
+                }
+                if (responses) {
+                    PostingList c = intersect(responsePostings, trigrams);
+                    responseResult = responseResult == null ? c : PostingList.and(responseResult, c);
+                }
+            }
+            if (requestResult != null) requestResult = PostingList.or(requestResult, unindexedRequests);
+            if (responseResult != null) responseResult = PostingList.or(responseResult, unindexedResponses);
+            if (requestResult == null) return responseResult;
+            if (responseResult == null) return requestResult;
+            return PostingList.or(requestResult, responseResult);
+        }
+    }
+
+    /**
+     * Intersects the posting lists of all trigrams, smallest first.
+     */
+    private PostingList intersect(Map<Long, PostingList> postings, long[] trigrams) {
+        PostingList[] lists = new PostingList[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            PostingList list = postings.get(trigrams[i]);
+            if (list == null) {
+                return new PostingList();
+            }
+            lists[i] = list;
+        }
+
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+        PostingList result = lists[0].copy();
+        for (int i = 1; i < lists.length && !result.isEmpty(); i++) {
+            result = PostingList.and(result, lists[i]);
+        }
+        return result;
+    }
+
+    /** Adds the entry to the posting list of each trigram. */
+    private static void addPostings(Map<Long, PostingList> postings, int entryNumber, long[] trigrams) {
+        for (long trigram : trigrams) {
+            postings.computeIfAbsent(trigram, k -> new PostingList()).add(entryNumber);
+        }
+    }
+
+    /**
+     * An open-addressing hash set of trigram keys, so that deduplicating a text costs memory in
+     * its distinct trigrams rather than in its length.
+     */
+    private static final class TrigramSet {
+        private static final long EMPTY = -1L;
+
+        private long[] slots = newSlots(256);
+        private int size;
+
+        /** Adds a key; keys are never negative. */
+        void add(long trigram) {
+            int mask = slots.length - 1;
+            int slot = (int) (trigram * 0x9E3779B97F4A7C15L >>> 32) & mask;
+            while (slots[slot] != EMPTY) {
+                if (slots[slot] == trigram) return;
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = trigram;
+            if (++size * 2 > slots.length) grow();
+        }
+
+        /** Returns the keys in ascending order. */
+        long[] toSortedArray() {
+            long[] keys = new long[size];
+            int count = 0;
+            for (long slot : slots) {
+                if (slot != EMPTY) keys[count++] = slot;
+            }
+            Arrays.sort(keys);
+            return keys;
+        }
+
+        /** Doubles the table and reinserts the keys. */
+        private void grow() {
+            long[] old = slots;
+            slots = newSlots(old.length * 2);
+            size = 0;
+            for (long slot : old) {
+                if (slot != EMPTY) add(slot);
+            }
+        }
+
+        /** Returns a table of the given power-of-two size with every slot empty. */
+        private static long[] newSlots(int capacity) {
+            long[] slots = new long[capacity];
+            Arrays.fill(slots, EMPTY);
+            return slots;
+        }
+    }
+
+    /** Packs three characters into a trigram key. */
+    private static long key(char c0, char c1, char c2) {
+        return ((long) c0 << 32) | ((long) c1 << 16) | c2;
+    }
+}
@@ -0,0 +1,95 @@
+package org.diffhunter.search;
+
+import org.diffhunter.model.HttpLogEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Precomputed result of a table filter: the entry numbers that matched when the filter was evaluated
+ * in the background. Entries captured after the evaluation are hidden and queued on first use;
+ * evaluateLate checks them with the original predicate off the Event Dispatch Thread, after which
+ * the table applies the row set again. The table never evaluates the filter while it refreshes.
+ */
+public class VisibleRowSet {
+
+    private final PostingList matches;
+    private final int lastEvaluatedNumber;
+    private final Predicate<HttpLogEntry> predicate;
+    private final PostingList lateMatches = new PostingList();
+    private final PostingList lateQueued = new PostingList();
+    private final List<HttpLogEntry> latePending = new ArrayList<>();
+    private boolean lateRunning;
+
+    /**
+     * Creates a row set from the matched entry numbers and the highest entry number that was evaluated.
+     */
+    public VisibleRowSet(PostingList matches, int lastEvaluatedNumber, Predicate<HttpLogEntry> predicate) {
+        this.matches = matches;
+        this.lastEvaluatedNumber = lastEvaluatedNumber;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Returns true if the entry passes the filter. A late entry that was not evaluated yet is
+     * queued for evaluateLate and reported as not passing.
+     */
+    public boolean contains(HttpLogEntry entry) {
+        int number = entry.getNumber();
+        if (number <= lastEvaluatedNumber) {
+            return matches.contains(number);
+        }
+        synchronized (this) {
+            if (!lateQueued.contains(number)) {
+                lateQueued.add(number);
+                latePending.add(entry);
+            }
+            return lateMatches.contains(number);
+        }
+    }
+
+    /**
+     * Returns true if late entries are queued and no evaluation of them is running.
+     */
+    public synchronized boolean hasPendingLate() {
+        return !lateRunning && !latePending.isEmpty();
+    }
+
+    /**
+     * Evaluates the queued late entries with the predicate, on the calling thread, and returns
+     * true if any of them passes. Returns false without evaluating if another call is running.
+     */
+    public boolean evaluateLate() {
+        List<HttpLogEntry> entries;
+        synchronized (this) {
+            if (lateRunning || latePending.isEmpty()) return false;
+            lateRunning = true;
+            entries = new ArrayList<>(latePending);
+            latePending.clear();
+        }
+        boolean anyMatched = false;
+        try {
+            for (HttpLogEntry entry : entries) {
+                if (predicate.test(entry)) {
+                    synchronized (this) {
+                        lateMatches.add(entry.getNumber());
+                    }
+                    anyMatched = true;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                lateRunning = false;
+            }
+        }
+        return anyMatched;
+    }
+
+    /**
+     * Returns the number of entries that matched during the background evaluation.
+     */
+    public int getMatchCount() {
+        return matches.getCardinality();
+    }
+}
@@ -0,0 +1,75 @@
+package org.diffhunter.store;
+
+/**
+ * Content-addressed, reference-counted piece of stored data.
+ * Byte-identical data captured more than once is stored once and shared through the same Blob,
+ * so two blobs are equal in content exactly when they are the same instance.
+ */
+public final class Blob {
+
+    private final long id;
+    private final byte[] digest;
+    private final StoreRef ref;
+    private final int rawLength;
+    private final byte[] dictionary;
+    private final boolean compressed;
+    private int refCount;
+    private String baselineKey;
+
+    /**
+     * Creates a blob for data stored uncompressed at the given location.
+     */
+    Blob(long id, byte[] digest, StoreRef ref) {
+        this(id, digest, ref, ref.getLength(), false, null);
+    }
+
+    /**
+     * Creates a blob whose data is stored at the given location, optionally Deflate-compressed
+     * with the given preset dictionary.
+     */
+    Blob(long id, byte[] digest, StoreRef ref, int rawLength, boolean compressed, byte[] dictionary) {
+        this.id = id;
+        this.digest = digest;
+        this.ref = ref;
+        this.rawLength = rawLength;
+        this.compressed = compressed;
+        this.dictionary = dictionary;
+        this.refCount = 1;
+    }
+
+    /** Returns the unique blob id. */
+    public long getId() { return id; }
+
+    /** Returns the SHA-256 digest of the content. */
+    byte[] getDigest() { return digest; }
+
+    /** Returns the location of the content in the segment store. */
+    public StoreRef getRef() { return ref; }
+
+    /** Returns the uncompressed content length in bytes. */
+    public int getLength() { return rawLength; }
+
+    /** Returns the number of bytes the blob occupies in the segment store. */
+    public int getStoredLength() { return ref.getLength(); }
+
+    /** Returns true if the stored data is Deflate-compressed. */
+    public boolean isCompressed() { return compressed; }
+
+    /** Returns the preset dictionary of a compressed blob, or null. */
+    byte[] getDictionary() { return dictionary; }
+
+    /** Returns the endpoint key this blob is the delta baseline for, or null. Guarded by the BlobStore lock. */
+    String getBaselineKey() { return baselineKey; }
+
+    /** Sets the endpoint key this blob is the delta baseline for. Guarded by the BlobStore lock. */
+    void setBaselineKey(String baselineKey) { this.baselineKey = baselineKey; }
+
+    /** Returns the number of references to this blob. Guarded by the BlobStore lock. */
+    int getRefCount() { return refCount; }
+
+    /** Adds a reference. Guarded by the BlobStore lock. */
+    void retain() { refCount++; }
+
+    /** Drops a reference and returns the remaining count. Guarded by the BlobStore lock. */
+    int releaseOne() { return --refCount; }
+}
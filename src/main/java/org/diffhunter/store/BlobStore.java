@@ -0,0 +1,324 @@
+package org.diffhunter.store;
+
+import org.diffhunter.util.Constants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed layer over SegmentStore.
+ * Data is hashed with SHA-256 and byte-identical blobs are written once and reference counted,
+ * which collapses the repeated bodies produced by Intruder and Scanner (e.g. identical 403 pages).
+ * The physical record is released when the last message referencing a blob is released.
+ * When a baseline key (host + endpoint) is given, bodies that are not exact duplicates are stored
+ * as line deltas against the first body captured for that key, if the delta is small enough.
+ * When a dictionary key (host) is given, new blobs are Deflate-compressed with a preset dictionary
+ * trained from that host's first captures, and decompressed lazily when read.
+ */
+public class BlobStore {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final SegmentStore segments;
+    private final Map<ByteBuffer, Blob> blobsByDigest = new HashMap<>();
+    private final Map<String, Blob> baselines = new HashMap<>();
+    private final DictionaryCompressor compressor = new DictionaryCompressor();
+    private long nextBlobId = 1;
+    private long storedBytes;
+    private long dedupedBytes;
+    private long dedupedBlobs;
+    private long deltaMessages;
+    private long deltaSavedBytes;
+    private long compressedRawBytes;
+    private long compressedStoredBytes;
+    private final AtomicLong decompressions = new AtomicLong();
+    private final AtomicLong decompressionNanos = new AtomicLong();
+
+    /**
+     * Creates a blob store writing to the given segment store.
+     */
+    public BlobStore(SegmentStore segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Stores an HTTP message as separate header and body blobs.
+     * Hashing happens outside the store lock so capture threads hash in parallel.
+     */
+    public StoredMessage store(byte[] message) throws IOException {
+        return store(message, null, null);
+    }
+
+    /**
+     * Stores an HTTP message, delta-encoding the body against the baseline for the key if one is given
+     * and compressing new blobs with the dictionary for the dictionary key if one is given.
+     * Requests and responses must use different baseline keys. Compression runs outside the store lock.
+     */
+    public StoredMessage store(byte[] message, String baselineKey, String dictionaryKey) throws IOException {
+        int split = findBodyOffset(message);
+        byte[] head = split == message.length ? message : Arrays.copyOfRange(message, 0, split);
+        byte[] body = split == message.length ? new byte[0] : Arrays.copyOfRange(message, split, message.length);
+
+        byte[] headDigest = digest(head);
+        byte[] bodyDigest = digest(body);
+        DictionaryCompressor.Compressed headCompressed = compressIfNew(dictionaryKey, head, headDigest);
+
+        Blob baseline = null;
+        if (baselineKey != null && body.length >= Constants.DELTA_MIN_BODY_SIZE) {
+            synchronized (this) {
+                baseline = baselines.get(baselineKey);
+                if (baseline != null) {
+                    if (blobsByDigest.containsKey(ByteBuffer.wrap(bodyDigest))) {
+                        baseline = null;
+                    } else {
+                        baseline.retain();
+                    }
+                }
+            }
+        }
+
+        if (baseline != null) {
+            byte[] delta = LineDelta.encode(readBlob(baseline), body);
+            if (delta.length <= body.length * Constants.DELTA_MAX_RATIO) {
+                byte[] deltaDigest = digest(delta);
+                DictionaryCompressor.Compressed deltaCompressed = compressIfNew(dictionaryKey, delta, deltaDigest);
+                synchronized (this) {
+                    Blob headBlob = intern(head, headDigest, headCompressed);
+                    Blob deltaBlob = intern(delta, deltaDigest, deltaCompressed);
+                    deltaMessages++;
+                    deltaSavedBytes += body.length - delta.length;
+                    return new StoredMessage(headBlob, deltaBlob, baseline, body.length, bodyDigest);
+                }
+            }
+            synchronized (this) {
+                releaseBlob(baseline);
+            }
+        }
+
+        DictionaryCompressor.Compressed bodyCompressed = compressIfNew(dictionaryKey, body, bodyDigest);
+        synchronized (this) {
+            Blob headBlob = intern(head, headDigest, headCompressed);
+            Blob bodyBlob = intern(body, bodyDigest, bodyCompressed);
+            if (baselineKey != null && body.length >= Constants.DELTA_MIN_BODY_SIZE
+                    && bodyBlob.getBaselineKey() == null && !baselines.containsKey(baselineKey)) {
+                bodyBlob.retain();
+                bodyBlob.setBaselineKey(baselineKey);
+                baselines.put(baselineKey, bodyBlob);
+            }
+            return new StoredMessage(headBlob, bodyBlob, null, body.length, bodyDigest);
+        }
+    }
+
+    /**
+     * Returns a copy of the full message bytes, reconstructing delta-encoded bodies.
+     */
+    public byte[] readBytes(StoredMessage message) {
+        Blob head = message.getHead();
+        byte[] data = new byte[message.getLength()];
+        if (head.isCompressed()) {
+            System.arraycopy(readBlob(head), 0, data, 0, head.getLength());
+        } else {
+            segments.read(head.getRef()).get(data, 0, head.getLength());
+        }
+        if (message.isDelta()) {
+            byte[] body = LineDelta.decode(readBlob(message.getBaseline()), readBlob(message.getBody()));
+            System.arraycopy(body, 0, data, head.getLength(), body.length);
+        } else if (message.getBody().isCompressed()) {
+            byte[] body = readBlob(message.getBody());
+            System.arraycopy(body, 0, data, head.getLength(), body.length);
+        } else {
+            Blob body = message.getBody();
+            segments.read(body.getRef()).get(data, head.getLength(), body.getLength());
+        }
+        return data;
+    }
+
+    /**
+     * Returns a read-only view of a blob's content, without copying it unless it is compressed.
+     */
+    public ByteBuffer read(Blob blob) {
+        if (blob.isCompressed()) {
+            return ByteBuffer.wrap(readBlob(blob)).asReadOnlyBuffer();
+        }
+        return segments.read(blob.getRef());
+    }
+
+    /**
+     * Releases a message's references to its blobs.
+     */
+    public synchronized void release(StoredMessage message) {
+        if (message == null) return;
+        releaseBlob(message.getHead());
+        releaseBlob(message.getBody());
+        if (message.getBaseline() != null) {
+            releaseBlob(message.getBaseline());
+        }
+    }
+
+    /**
+     * Drops all blobs and segment files and resets every statistics counter.
+     */
+    public synchronized void clear() {
+        blobsByDigest.clear();
+        baselines.clear();
+        compressor.clear();
+        segments.clear();
+        storedBytes = 0;
+        dedupedBytes = 0;
+        dedupedBlobs = 0;
+        deltaMessages = 0;
+        deltaSavedBytes = 0;
+        compressedRawBytes = 0;
+        compressedStoredBytes = 0;
+        decompressions.set(0);
+        decompressionNanos.set(0);
+    }
+
+    /** Returns the number of distinct blobs held. */
+    public synchronized int getBlobCount() { return blobsByDigest.size(); }
+
+    /** Returns the bytes written for distinct blobs that are still held. */
+    public synchronized long getStoredBytes() { return storedBytes; }
+
+    /** Returns the total bytes that were not written because an identical blob already existed. */
+    public synchronized long getDedupedBytes() { return dedupedBytes; }
+
+    /** Returns the number of blobs that were shared instead of written. */
+    public synchronized long getDedupedBlobs() { return dedupedBlobs; }
+
+    /** Returns the number of messages whose body was stored as a delta. */
+    public synchronized long getDeltaMessages() { return deltaMessages; }
+
+    /** Returns the total bytes saved by storing bodies as deltas. */
+    public synchronized long getDeltaSavedBytes() { return deltaSavedBytes; }
+
+    /** Returns the number of endpoint baselines held. */
+    public synchronized int getBaselineCount() { return baselines.size(); }
+
+    /** Returns the uncompressed size of the compressed blobs that are still held. */
+    public synchronized long getCompressedRawBytes() { return compressedRawBytes; }
+
+    /** Returns the stored size of the compressed blobs that are still held. */
+    public synchronized long getCompressedStoredBytes() { return compressedStoredBytes; }
+
+    /** Returns the number of trained compression dictionaries. */
+    public int getDictionaryCount() { return compressor.getDictionaryCount(); }
+
+    /** Returns the number of blob decompressions performed. */
+    public long getDecompressions() { return decompressions.get(); }
+
+    /** Returns the average decompression latency in microseconds, or 0 if nothing was decompressed. */
+    public double getAverageDecompressionMicros() {
+        long count = decompressions.get();
+        return count == 0 ? 0 : decompressionNanos.get() / 1000.0 / count;
+    }
+
+    /** Returns the underlying segment store. */
+    public SegmentStore getSegmentStore() { return segments; }
+
+    /**
+     * Returns the existing blob for the digest with an added reference, or writes a new one.
+     */
+    private Blob intern(byte[] data, byte[] digest, DictionaryCompressor.Compressed compressed) throws IOException {
+        ByteBuffer key = ByteBuffer.wrap(digest);
+        Blob existing = blobsByDigest.get(key);
+        if (existing != null) {
+            existing.retain();
+            dedupedBytes += data.length;
+            dedupedBlobs++;
+            return existing;
+        }
+
+        Blob blob;
+        if (compressed != null) {
+            blob = new Blob(nextBlobId++, digest, segments.write(compressed.data), data.length, true, compressed.dictionary);
+            compressedRawBytes += data.length;
+            compressedStoredBytes += compressed.data.length;
+        } else {
+            blob = new Blob(nextBlobId++, digest, segments.write(data));
+        }
+        blobsByDigest.put(key, blob);
+        storedBytes += data.length;
+        return blob;
+    }
+
+    /**
+     * Drops a reference to the blob, releasing its record when no message uses it.
+     */
+    private void releaseBlob(Blob blob) {
+        if (blob.getRefCount() <= 0) return;
+        int remaining = blob.releaseOne();
+        if (remaining == 1 && blob.getBaselineKey() != null && baselines.get(blob.getBaselineKey()) == blob) {
+            baselines.remove(blob.getBaselineKey());
+            blob.setBaselineKey(null);
+            remaining = blob.releaseOne();
+        }
+        if (remaining > 0) return;
+        ByteBuffer key = ByteBuffer.wrap(blob.getDigest());
+        if (blobsByDigest.get(key) == blob) {
+            blobsByDigest.remove(key);
+            storedBytes -= blob.getLength();
+            if (blob.isCompressed()) {
+                compressedRawBytes -= blob.getLength();
+                compressedStoredBytes -= blob.getStoredLength();
+            }
+        }
+        segments.release(blob.getRef());
+    }
+
+    /**
+     * Returns the offset where the body starts: after the first blank line (CRLF CRLF or LF LF),
+     * or the message length if there is no blank line.
+     */
+    static int findBodyOffset(byte[] message) {
+        for (int i = 0; i + 1 < message.length; i++) {
+            if (message[i] != '\n') continue;
+            if (message[i + 1] == '\n') return i + 2;
+            if (message[i + 1] == '\r' && i + 2 < message.length && message[i + 2] == '\n') return i + 3;
+        }
+        return message.length;
+    }
+
+    /**
+     * Compresses data for the dictionary key unless compression is off, the data is small,
+     * or an identical blob is already stored. Returns null if the data should be stored as is.
+     */
+    private DictionaryCompressor.Compressed compressIfNew(String dictionaryKey, byte[] data, byte[] digest) {
+        if (dictionaryKey == null || data.length < Constants.COMPRESSION_MIN_SIZE) return null;
+        synchronized (this) {
+            if (blobsByDigest.containsKey(ByteBuffer.wrap(digest))) return null;
+        }
+        return compressor.compress(dictionaryKey, data);
+    }
+
+    /** Returns a copy of a blob's uncompressed content. */
+    private byte[] readBlob(Blob blob) {
+        byte[] stored = segments.readBytes(blob.getRef());
+        if (!blob.isCompressed()) return stored;
+
+        long start = System.nanoTime();
+        byte[] data = DictionaryCompressor.decompress(stored, blob.getLength(), blob.getDictionary());
+        decompressionNanos.addAndGet(System.nanoTime() - start);
+        decompressions.incrementAndGet();
+        return data;
+    }
+
+    /** Returns the SHA-256 digest of the data. */
+    private static byte[] digest(byte[] data) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        return md.digest(data);
+    }
+}
@@ -0,0 +1,149 @@
+package org.diffhunter.store;
+
+import org.diffhunter.util.Constants;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression with a preset dictionary trained per host.
+ * The first captured blobs of a host are sampled into a dictionary of up to 32 KB (the Deflate window),
+ * after which the dictionary is frozen and used for every later blob of that host. Headers and HTML
+ * boilerplate repeat across a host's traffic, so they compress to back-references into the dictionary.
+ * Blobs compressed before the dictionary is frozen use no dictionary.
+ */
+final class DictionaryCompressor {
+
+    private final Map<String, Trainer> trainers = new HashMap<>();
+    private final Map<String, byte[]> dictionaries = new HashMap<>();
+
+    /**
+     * Result of a compression: the compressed bytes and the dictionary they depend on, if any.
+     */
+    static final class Compressed {
+        final byte[] data;
+        final byte[] dictionary;
+
+        Compressed(byte[] data, byte[] dictionary) {
+            this.data = data;
+            this.dictionary = dictionary;
+        }
+    }
+
+    /**
+     * Compresses the data with the dictionary for the key and feeds it to the key's trainer.
+     * Returns null if compression does not save enough space to be worth it.
+     */
+    Compressed compress(String key, byte[] data) {
+        byte[] dictionary = dictionaryFor(key, data);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                if (out.size() >= data.length) return null;
+            }
+            if (out.size() > data.length * Constants.COMPRESSION_MAX_RATIO) return null;
+            return new Compressed(out.toByteArray(), dictionary);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses data produced by compress.
+     */
+    static byte[] decompress(byte[] compressed, int rawLength, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] out = new byte[rawLength];
+            int written = 0;
+            while (written < rawLength) {
+                int n = inflater.inflate(out, written, rawLength - written);
+                if (n == 0) {
+                    if (inflater.needsDictionary() && dictionary != null) {
+                        inflater.setDictionary(dictionary);
+                        continue;
+                    }
+                    break;
+                }
+                written += n;
+            }
+            if (written != rawLength) {
+                throw new IllegalStateException("Corrupt compressed blob: expected " + rawLength + " bytes, got " + written);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed blob: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Removes all dictionaries and training state. */
+    synchronized void clear() {
+        trainers.clear();
+        dictionaries.clear();
+    }
+
+    /** Returns the number of frozen dictionaries. */
+    synchronized int getDictionaryCount() { return dictionaries.size(); }
+
+    /**
+     * Returns the frozen dictionary for the key, or null while it is still being trained.
+     * Adds a sample of the data to the trainer until the dictionary is frozen.
+     */
+    private synchronized byte[] dictionaryFor(String key, byte[] data) {
+        byte[] dictionary = dictionaries.get(key);
+        if (dictionary != null) return dictionary;
+
+        Trainer trainer = trainers.computeIfAbsent(key, k -> new Trainer());
+        trainer.sample(data);
+        if (trainer.isComplete()) {
+            trainers.remove(key);
+            dictionaries.put(key, trainer.build());
+        }
+        return null;
+    }
+
+    /**
+     * Collects samples from the first blobs of a host.
+     */
+    private static final class Trainer {
+        private final ByteArrayOutputStream samples = new ByteArrayOutputStream(Constants.COMPRESSION_DICTIONARY_SIZE);
+        private int count;
+
+        /** Adds the start of the data, where headers and page boilerplate live. */
+        void sample(byte[] data) {
+            int room = Constants.COMPRESSION_DICTIONARY_SIZE - samples.size();
+            int length = Math.min(room, Math.min(data.length, Constants.COMPRESSION_SAMPLE_SIZE));
+            samples.write(data, 0, length);
+            count++;
+        }
+
+        /** Returns true once the dictionary is full or enough samples were seen. */
+        boolean isComplete() {
+            if (samples.size() == 0) return false;
+            return samples.size() >= Constants.COMPRESSION_DICTIONARY_SIZE
+                    || count >= Constants.COMPRESSION_TRAINING_SAMPLES;
+        }
+
+        /** Returns the trained dictionary. */
+        byte[] build() {
+            return samples.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.diffhunter.store;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary line-level delta between a baseline and a target body.
+ * A delta is a sequence of operations: COPY (start line, line count) takes lines from the baseline,
+ * INSERT (length, bytes) adds literal bytes. Lines include their trailing LF, so the encoding is
+ * exact for any byte content, including CRLF and bodies without a final newline.
+ */
+public final class LineDelta {
+
+    private static final int OP_COPY = 0;
+    private static final int OP_INSERT = 1;
+
+    /** Private constructor to prevent instantiation. */
+    private LineDelta() {}
+
+    /**
+     * Encodes the target as a delta against the baseline.
+     */
+    public static byte[] encode(byte[] baseline, byte[] target) {
+        int[] baseStarts = lineStarts(baseline);
+        int baseLines = baseStarts.length - 1;
+        Map<LineKey, Integer> firstIndex = new HashMap<>();
+        for (int i = 0; i < baseLines; i++) {
+            firstIndex.putIfAbsent(new LineKey(baseline, baseStarts[i], baseStarts[i + 1]), i);
+        }
+
+        int[] targetStarts = lineStarts(target);
+        int targetLines = targetStarts.length - 1;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(16, target.length / 8));
+        int insertStart = -1;
+        int copyStart = -1;
+        int copyCount = 0;
+
+        for (int j = 0; j < targetLines; j++) {
+            int from = targetStarts[j];
+            int to = targetStarts[j + 1];
+
+            int next = copyStart + copyCount;
+            if (copyCount > 0 && next < baseLines && lineEquals(baseline, baseStarts[next], baseStarts[next + 1], target, from, to)) {
+                copyCount++;
+                continue;
+            }
+
+            Integer match = firstIndex.get(new LineKey(target, from, to));
+            if (match != null) {
+                if (copyCount > 0) writeCopy(out, copyStart, copyCount);
+                if (insertStart >= 0) writeInsert(out, target, insertStart, from);
+                insertStart = -1;
+                copyStart = match;
+                copyCount = 1;
+            } else {
+                if (copyCount > 0) writeCopy(out, copyStart, copyCount);
+                copyCount = 0;
+                if (insertStart < 0) insertStart = from;
+            }
+        }
+
+        if (copyCount > 0) writeCopy(out, copyStart, copyCount);
+        if (insertStart >= 0) writeInsert(out, target, insertStart, target.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reconstructs the target from the baseline and a delta produced by encode.
+     */
+    public static byte[] decode(byte[] baseline, byte[] delta) {
+        int[] baseStarts = lineStarts(baseline);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(baseline.length, delta.length));
+        int[] pos = {0};
+
+        while (pos[0] < delta.length) {
+            int op = delta[pos[0]++];
+            if (op == OP_COPY) {
+                int start = readVarInt(delta, pos);
+                int count = readVarInt(delta, pos);
+                out.write(baseline, baseStarts[start], baseStarts[start + count] - baseStarts[start]);
+            } else {
+                int length = readVarInt(delta, pos);
+                out.write(delta, pos[0], length);
+                pos[0] += length;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the start offset of every line plus a final entry equal to the data length.
+     */
+    private static int[] lineStarts(byte[] data) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n' && i + 1 < data.length) {
+                starts.add(i + 1);
+            }
+        }
+        if (data.length > 0) starts.add(data.length);
+        int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    /** Returns true if the two byte ranges are equal. */
+    private static boolean lineEquals(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        return Arrays.equals(a, aFrom, aTo, b, bFrom, bTo);
+    }
+
+    /** Writes a COPY operation. */
+    private static void writeCopy(ByteArrayOutputStream out, int start, int count) {
+        out.write(OP_COPY);
+        writeVarInt(out, start);
+        writeVarInt(out, count);
+    }
+
+    /** Writes an INSERT operation with the given bytes. */
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int from, int to) {
+        out.write(OP_INSERT);
+        writeVarInt(out, to - from);
+        out.write(data, from, to - from);
+    }
+
+    /** Writes an unsigned LEB128 integer. */
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /** Reads an unsigned LEB128 integer, advancing the position. */
+    private static int readVarInt(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            int b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+
+    /**
+     * Hash key for a line within a byte array, compared by content.
+     */
+    private static final class LineKey {
+        private final byte[] data;
+        private final int from;
+        private final int to;
+        private final int hash;
+
+        LineKey(byte[] data, int from, int to) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            int h = 1;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + data[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LineKey other)) return false;
+            return hash == other.hash && lineEquals(data, from, to, other.data, other.from, other.to);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.diffhunter.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A preallocated segment file that message bodies are appended to.
+ * Appends are serialized by SegmentStore; reads use absolute positions and are safe from any thread.
+ * A mapped segment is read through slices of its memory mapping; an unmapped one through
+ * positional FileChannel reads, which lets its file be deleted on platforms that refuse to delete
+ * mapped files. An empty segment can be reset and reused; its generation then changes so that
+ * references to its old records can be told apart.
+ */
+final class Segment {
+
+    private final int id;
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int writePosition;
+    private int liveCount;
+    private long liveBytes;
+    private boolean sealed;
+    private boolean deleted;
+    private volatile int generation;
+
+    /**
+     * Creates a new segment file of the given capacity, memory-mapped if mapped is set.
+     */
+    Segment(int id, Path file, int capacity, boolean mapped) throws IOException {
+        this.id = id;
+        this.file = file;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            this.buffer = mapped ? channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity) : null;
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /** Returns the segment id. */
+    int getId() { return id; }
+
+    /** Returns the number of bytes that can still be appended. */
+    int remaining() { return capacity - writePosition; }
+
+    /** Returns the size of the segment file in bytes. */
+    int getCapacity() { return capacity; }
+
+    /** Returns the number of live records in this segment. */
+    int getLiveCount() { return liveCount; }
+
+    /** Returns the number of live bytes in this segment. */
+    long getLiveBytes() { return liveBytes; }
+
+    /** Returns true if no more records will be appended to this segment. */
+    boolean isSealed() { return sealed; }
+
+    /** Marks the segment as full so it can be deleted once all of its records are released. */
+    void seal() { sealed = true; }
+
+    /** Returns true if the segment file has been deleted. */
+    boolean isDeleted() { return deleted; }
+
+    /** Returns the number of times the segment was reset for reuse. */
+    int getGeneration() { return generation; }
+
+    /** Returns true if the segment is read through a memory mapping. */
+    boolean isMapped() { return buffer != null; }
+
+    /**
+     * Appends the data and returns its offset within the segment.
+     */
+    int append(byte[] data) throws IOException {
+        int offset = writePosition;
+        if (buffer != null) {
+            buffer.put(offset, data);
+        } else {
+            ByteBuffer source = ByteBuffer.wrap(data);
+            while (source.hasRemaining()) {
+                channel.write(source, offset + source.position());
+            }
+        }
+        writePosition += data.length;
+        liveCount++;
+        liveBytes += data.length;
+        return offset;
+    }
+
+    /**
+     * Releases a record of the given length. Returns true if the segment has no live records left.
+     */
+    boolean release(int length) {
+        liveCount--;
+        liveBytes -= length;
+        return liveCount <= 0;
+    }
+
+    /**
+     * Empties the segment for reuse, keeping its file and mapping.
+     */
+    void reset() {
+        writePosition = 0;
+        liveCount = 0;
+        liveBytes = 0;
+        sealed = false;
+        generation++;
+    }
+
+    /**
+     * Returns a read-only view of a record: a slice of the mapping, or a copy read from the file.
+     */
+    ByteBuffer slice(int offset, int length) {
+        if (buffer != null) {
+            return buffer.slice(offset, length).asReadOnlyBuffer();
+        }
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        try {
+            while (copy.hasRemaining()) {
+                if (channel.read(copy, offset + copy.position()) < 0) {
+                    throw new IOException("Segment " + id + " ended at " + (offset + copy.position()));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read segment " + id + ": " + e.getMessage(), e);
+        }
+        return copy.flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Closes and deletes the segment file. A mapping is released by the garbage collector, and
+     * where the platform refuses to delete a mapped file it is deleted on exit.
+     */
+    void delete() {
+        if (deleted) return;
+        deleted = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.diffhunter.store;
+
+import org.diffhunter.util.Constants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only storage engine for captured request and response bytes.
+ * Messages are written into large preallocated segment files and read back through
+ * memory-mapped slices without copying. Each entry keeps the StoreRef of its messages
+ * as its offset index. A segment that is full and has every record released is kept on a free
+ * list of up to STORE_FREE_SEGMENTS segments and reused with its mapping, or deleted beyond that,
+ * so evicting old entries frees disk space a segment at a time.
+ * Windows refuses to delete a mapped file until the mapping is collected, so there segments are
+ * read with positional FileChannel reads instead, and their files can always be deleted.
+ */
+public class SegmentStore {
+
+    private final int segmentSize;
+    private static final boolean MAP_SEGMENTS =
+            !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private final Map<Integer, Segment> segments = new LinkedHashMap<>();
+    private final ArrayDeque<Segment> freeSegments = new ArrayDeque<>();
+    private Path directory;
+    private Segment active;
+    private int nextSegmentId = 0;
+
+    /**
+     * Creates a store that allocates segment files of the given size.
+     * The store directory is created on the first write.
+     */
+    public SegmentStore(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Appends the data and returns its location.
+     * Data larger than a segment is written to a dedicated segment of exactly its size.
+     */
+    public synchronized StoreRef write(byte[] data) throws IOException {
+        if (data.length > segmentSize) {
+            Segment dedicated = createSegment(data.length, false);
+            int offset = dedicated.append(data);
+            dedicated.seal();
+            return new StoreRef(dedicated, offset, data.length);
+        }
+
+        if (active == null || active.remaining() < data.length) {
+            if (active != null) {
+                active.seal();
+                deleteIfUnused(active);
+            }
+            Segment free = freeSegments.poll();
+            if (free != null) {
+                segments.put(free.getId(), free);
+                active = free;
+            } else {
+                active = createSegment(segmentSize, MAP_SEGMENTS);
+            }
+        }
+
+        int offset = active.append(data);
+        return new StoreRef(active, offset, data.length);
+    }
+
+    /**
+     * Returns a read-only view of the stored data, without copying it if the segment is mapped.
+     *
+     * @throws IllegalStateException if the data was released and its segment reused
+     */
+    public ByteBuffer read(StoreRef ref) {
+        Segment segment = ref.getSegment();
+        if (segment.getGeneration() != ref.getGeneration()) {
+            throw new IllegalStateException("Segment " + segment.getId() + " was reused after the data was released");
+        }
+        return segment.slice(ref.getOffset(), ref.getLength());
+    }
+
+    /**
+     * Returns a copy of the stored data.
+     */
+    public byte[] readBytes(StoreRef ref) {
+        byte[] data = new byte[ref.getLength()];
+        read(ref).get(data);
+        return data;
+    }
+
+    /**
+     * Releases the stored data. The segment is freed for reuse or deleted when it holds no live records.
+     */
+    public synchronized void release(StoreRef ref) {
+        if (ref == null) return;
+        Segment segment = ref.getSegment();
+        if (segment.isDeleted() || segment.getGeneration() != ref.getGeneration()) return;
+        if (segment.release(ref.getLength())) {
+            deleteIfUnused(segment);
+        }
+    }
+
+    /**
+     * Releases all stored data, keeping up to STORE_FREE_SEGMENTS segments for reuse and deleting
+     * the rest. References handed out earlier can no longer be read.
+     */
+    public synchronized void clear() {
+        for (Segment segment : segments.values()) {
+            segment.seal();
+            free(segment);
+        }
+        segments.clear();
+        active = null;
+    }
+
+    /**
+     * Deletes all segment files and the store directory.
+     */
+    public synchronized void close() {
+        clear();
+        for (Segment segment : freeSegments) {
+            segment.delete();
+        }
+        freeSegments.clear();
+        if (directory != null) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                directory.toFile().deleteOnExit();
+            }
+            directory = null;
+        }
+    }
+
+    /** Returns the number of segment files on disk, including free ones. */
+    public synchronized int getSegmentCount() { return segments.size() + freeSegments.size(); }
+
+    /** Returns the total size of all segment files in bytes, including free ones. */
+    public synchronized long getAllocatedBytes() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.getCapacity();
+        }
+        for (Segment segment : freeSegments) {
+            total += segment.getCapacity();
+        }
+        return total;
+    }
+
+    /** Returns the number of bytes held by live records. */
+    public synchronized long getLiveBytes() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.getLiveBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Creates and registers a new segment file, memory-mapped if mapped is set.
+     */
+    private Segment createSegment(int capacity, boolean mapped) throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("diffhunter-store");
+        }
+        int id = nextSegmentId++;
+        Segment segment = new Segment(id, directory.resolve("segment-" + id + ".dat"), capacity, mapped);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Frees a sealed segment that has no live records left.
+     */
+    private void deleteIfUnused(Segment segment) {
+        if (segment.isSealed() && segment.getLiveCount() <= 0) {
+            segments.remove(segment.getId());
+            free(segment);
+        }
+    }
+
+    /**
+     * Resets a segment of the standard size onto the free list if it has room, or deletes it.
+     */
+    private void free(Segment segment) {
+        if (segment.getCapacity() == segmentSize && freeSegments.size() < Constants.STORE_FREE_SEGMENTS) {
+            segment.reset();
+            freeSegments.add(segment);
+        } else {
+            segment.delete();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.diffhunter.store;
+
+/**
+ * Location of a stored message inside a segment: the entry's offset index record.
+ * Holds the segment and its generation at write time, so a read through a reference whose
+ * segment has since been reused for other records is detected.
+ */
+public final class StoreRef {
+
+    private final Segment segment;
+    private final int offset;
+    private final int length;
+    private final int generation;
+
+    /**
+     * Creates a reference to length bytes at the given offset of the segment's current generation.
+     */
+    StoreRef(Segment segment, int offset, int length) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+        this.generation = segment.getGeneration();
+    }
+
+    /** Returns the segment holding the data. */
+    Segment getSegment() { return segment; }
+
+    /** Returns the generation of the segment the data was written in. */
+    int getGeneration() { return generation; }
+
+    /** Returns the offset of the data within its segment. */
+    public int getOffset() { return offset; }
+
+    /** Returns the length of the data in bytes. */
+    public int getLength() { return length; }
+
+    /** Returns the id of the segment holding the data. */
+    public int getSegmentId() { return segment.getId(); }
+}
@@ -0,0 +1,73 @@
+package org.diffhunter.store;
+
+import java.util.Arrays;
+
+/**
+ * An HTTP message stored as two content-addressed blobs: the header section and the body.
+ * Splitting them lets identical bodies deduplicate even when headers such as Date differ.
+ * In delta storage mode the body blob may hold a LineDelta against an endpoint baseline, so bodies
+ * are compared by the SHA-256 digest of their decoded bytes rather than by blob.
+ */
+public final class StoredMessage {
+
+    private final Blob head;
+    private final Blob body;
+    private final Blob baseline;
+    private final int bodyLength;
+    private final byte[] bodyDigest;
+
+    /**
+     * Creates a message from its header and body blobs and the SHA-256 digest of the decoded body.
+     * If baseline is not null, the body blob is a delta against it and bodyLength is the decoded length.
+     */
+    StoredMessage(Blob head, Blob body, Blob baseline, int bodyLength, byte[] bodyDigest) {
+        this.head = head;
+        this.body = body;
+        this.baseline = baseline;
+        this.bodyLength = bodyLength;
+        this.bodyDigest = bodyDigest;
+    }
+
+    /** Returns the blob holding the start line and headers, including the blank line. */
+    public Blob getHead() { return head; }
+
+    /** Returns the blob holding the body, or the body delta if the message is delta-encoded. */
+    public Blob getBody() { return body; }
+
+    /** Returns the baseline the body delta applies to, or null if the body is stored in full. */
+    public Blob getBaseline() { return baseline; }
+
+    /** Returns true if the body is stored as a delta against a baseline. */
+    public boolean isDelta() { return baseline != null; }
+
+    /** Returns the decoded body length in bytes. */
+    public int getBodyLength() { return bodyLength; }
+
+    /** Returns the total message length in bytes. */
+    public int getLength() { return head.getLength() + bodyLength; }
+
+    /** Returns the bytes this message's own blobs occupy in the store, excluding a shared baseline. */
+    public int getStoredLength() { return head.getStoredLength() + body.getStoredLength(); }
+
+    /**
+     * Returns true if the other message has byte-identical content, comparing the head blob and the
+     * body digest.
+     */
+    public boolean sameContent(StoredMessage other) {
+        return sameHead(other) && sameBody(other);
+    }
+
+    /** Returns true if the other message has byte-identical headers, comparing blob identities only. */
+    public boolean sameHead(StoredMessage other) {
+        return other != null && head == other.head;
+    }
+
+    /**
+     * Returns true if the other message has a byte-identical body, comparing the digests of the
+     * decoded bodies, so a body stored in full and the same body stored as a delta are equal.
+     */
+    public boolean sameBody(StoredMessage other) {
+        return other != null && (body == other.body && baseline == other.baseline
+                || bodyLength == other.bodyLength && Arrays.equals(bodyDigest, other.bodyDigest));
+    }
+}
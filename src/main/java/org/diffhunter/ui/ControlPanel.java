@@ -1,5 +1,6 @@
 package org.diffhunter.ui;
 
+import org.diffhunter.model.EvictionPolicy;
 import org.diffhunter.ui.components.ColorBox;
 import org.diffhunter.ui.components.StayOpenCheckBoxMenuItem;
 import org.diffhunter.util.Constants;
@@ -106,36 +107,103 @@ public class ControlPanel {
         });
         context.setTableFilterField(tableFilterField);
 
+        JProgressBar tableFilterProgress = new JProgressBar(0, 100);
+        tableFilterProgress.setStringPainted(true);
+        tableFilterProgress.setPreferredSize(new Dimension(90, gearButton.getPreferredSize().height));
+        tableFilterProgress.setVisible(false);
+        context.setTableFilterProgress(tableFilterProgress);
+
         panel.add(new JLabel("Filter:"));
         panel.add(tableFilterField);
+        panel.add(tableFilterProgress);
         panel.add(gearButton);
     }
 
     /**
-     * Adds the clear button and request limit spinner to the panel.
+     * Adds the clear button, the log limit spinner and the limit mode popup to the panel.
+     * The spinner holds a request count or a memory budget in MB depending on the limit mode.
      * Returns the button height for sizing other components.
      */
     private int addClearAndLimitSection(JPanel panel) {
         JButton clearButton = new JButton("Clear All");
         clearButton.addActionListener(e -> clearLogCallback.run());
 
-        panel.add(new JLabel("  Request Limit:"));
+        JLabel limitLabel = new JLabel("  Request Limit:");
+        panel.add(limitLabel);
 
-        JSpinner maxEntriesSpinner = new JSpinner(new SpinnerNumberModel(
+        SpinnerNumberModel countModel = new SpinnerNumberModel(
                 context.getMaxLogEntries(),
                 Constants.MIN_LOG_ENTRIES,
                 Constants.MAX_LOG_ENTRIES,
-                Constants.LOG_ENTRIES_STEP));
+                Constants.LOG_ENTRIES_STEP);
+        SpinnerNumberModel memoryModel = new SpinnerNumberModel(
+                context.getMemoryBudgetMb(),
+                Constants.MIN_MEMORY_BUDGET_MB,
+                Constants.MAX_MEMORY_BUDGET_MB,
+                Constants.MEMORY_BUDGET_STEP_MB);
+
+        JSpinner maxEntriesSpinner = new JSpinner(countModel);
         maxEntriesSpinner.setToolTipText("Maximum number of requests stored in memory");
         maxEntriesSpinner.setPreferredSize(new Dimension(105, clearButton.getPreferredSize().height));
-        maxEntriesSpinner.addChangeListener(e -> context.setMaxLogEntries((Integer) maxEntriesSpinner.getValue()));
+        maxEntriesSpinner.addChangeListener(e -> {
+            if (context.isMemoryBudgetMode()) {
+                context.setMemoryBudgetMb((Integer) maxEntriesSpinner.getValue());
+            } else {
+                context.setMaxLogEntries((Integer) maxEntriesSpinner.getValue());
+            }
+        });
         panel.add(maxEntriesSpinner);
+
+        JPopupMenu limitPopup = new JPopupMenu();
+        JRadioButtonMenuItem countItem = new JRadioButtonMenuItem("Limit By Request Count", true);
+        JRadioButtonMenuItem memoryItem = new JRadioButtonMenuItem("Limit By Log Size (MB)", false);
+        ButtonGroup limitModeGroup = new ButtonGroup();
+        limitModeGroup.add(countItem);
+        limitModeGroup.add(memoryItem);
+
+        countItem.addActionListener(e -> {
+            context.setMemoryBudgetMode(false);
+            limitLabel.setText("  Request Limit:");
+            maxEntriesSpinner.setModel(countModel);
+            maxEntriesSpinner.setToolTipText("Maximum number of requests stored in memory");
+        });
+        memoryItem.addActionListener(e -> {
+            context.setMemoryBudgetMode(true);
+            limitLabel.setText("  Log Size Limit (MB):");
+            maxEntriesSpinner.setModel(memoryModel);
+            maxEntriesSpinner.setToolTipText("Maximum size of stored requests and responses (memory-mapped, outside the heap) plus caches and indexes");
+        });
+        limitPopup.add(countItem);
+        limitPopup.add(memoryItem);
+        limitPopup.addSeparator();
+
+        ButtonGroup policyGroup = new ButtonGroup();
+        addEvictionPolicyItem(limitPopup, policyGroup, "Evict Oldest First", EvictionPolicy.OLDEST);
+        addEvictionPolicyItem(limitPopup, policyGroup, "Evict Largest First", EvictionPolicy.LARGEST);
+        addEvictionPolicyItem(limitPopup, policyGroup, "Evict By Per-Host Quota", EvictionPolicy.PER_HOST);
+        context.registerContextMenu(limitPopup);
+
+        JButton limitButton = new JButton("▼");
+        limitButton.setToolTipText("Limit mode and eviction policy");
+        limitButton.addActionListener(e -> limitPopup.show(limitButton, 0, limitButton.getHeight()));
+        panel.add(limitButton);
+
         panel.add(new JLabel("  |  "));
         panel.add(clearButton);
 
         return clearButton.getPreferredSize().height;
     }
 
+    /**
+     * Adds a radio item selecting the eviction policy used in log size limit mode.
+     */
+    private void addEvictionPolicyItem(JPopupMenu popup, ButtonGroup group, String text, EvictionPolicy policy) {
+        JRadioButtonMenuItem item = new JRadioButtonMenuItem(text, context.getEvictionPolicy() == policy);
+        item.addActionListener(e -> context.setEvictionPolicy(policy));
+        group.add(item);
+        popup.add(item);
+    }
+
     /**
      * Adds the color legend section to the panel.
      */
@@ -239,6 +307,42 @@ public class ControlPanel {
 
         modePopup.add(wordsItem);
         modePopup.add(hexdumpItem);
+        modePopup.addSeparator();
+
+        JCheckBoxMenuItem jsonStructureItem = new JCheckBoxMenuItem("JSON Structure Diff", context.isJsonStructureDiff());
+        jsonStructureItem.setToolTipText("Diff JSON bodies by key and array element instead of by line");
+        jsonStructureItem.addActionListener(e -> {
+            context.setJsonStructureDiff(jsonStructureItem.isSelected());
+            recalculateAllCallback.run();
+        });
+        modePopup.add(jsonStructureItem);
+
+        JCheckBoxMenuItem markupTokenItem = new JCheckBoxMenuItem("HTML Token Diff", context.isMarkupTokenDiff());
+        markupTokenItem.setToolTipText("Diff HTML and XML bodies by tag, attribute and text, ignoring whitespace and attribute order");
+        markupTokenItem.addActionListener(e -> {
+            context.setMarkupTokenDiff(markupTokenItem.isSelected());
+            recalculateAllCallback.run();
+        });
+        modePopup.add(markupTokenItem);
+
+        JCheckBoxMenuItem parameterItem = new JCheckBoxMenuItem("Parameter Diff", context.isParameterDiff());
+        parameterItem.setToolTipText("Diff request query strings and form, multipart and JSON bodies by parameter, ignoring parameter order");
+        parameterItem.addActionListener(e -> {
+            context.setParameterDiff(parameterItem.isSelected());
+            recalculateAllCallback.run();
+        });
+        modePopup.add(parameterItem);
+        modePopup.addSeparator();
+
+        JCheckBoxMenuItem deltaStorageItem = new JCheckBoxMenuItem("Delta Storage", context.isDeltaStorage());
+        deltaStorageItem.setToolTipText("Store new entries as line deltas against the first response of their endpoint");
+        deltaStorageItem.addActionListener(e -> context.setDeltaStorage(deltaStorageItem.isSelected()));
+        modePopup.add(deltaStorageItem);
+
+        JCheckBoxMenuItem compressedStorageItem = new JCheckBoxMenuItem("Compressed Storage", context.isCompressedStorage());
+        compressedStorageItem.setToolTipText("Compress new entries with a dictionary trained from each host's first responses");
+        compressedStorageItem.addActionListener(e -> context.setCompressedStorage(compressedStorageItem.isSelected()));
+        modePopup.add(compressedStorageItem);
 
         return modePopup;
     }
@@ -253,6 +357,11 @@ public class ControlPanel {
         rightPanel.add(statusLabel);
         context.setStatusLabel(statusLabel);
 
+        JLabel memoryUsageLabel = new JLabel("");
+        memoryUsageLabel.setToolTipText("Estimated log size: stored requests and responses (memory-mapped, outside the heap) plus caches and indexes on the heap");
+        rightPanel.add(memoryUsageLabel);
+        context.setMemoryUsageLabel(memoryUsageLabel);
+
         JToggleButton statusButton = new JToggleButton("OFF");
         statusButton.setSelected(false);
         statusButton.addActionListener(e -> {
@@ -266,6 +375,10 @@ public class ControlPanel {
                 context.setCaptureEnabled(false);
             }
         });
+        JButton statsButton = new JButton("Stats");
+        statsButton.setToolTipText("Storage, compression and cache statistics");
+        statsButton.addActionListener(e -> new StatsDialog(context).show(statsButton));
+        rightPanel.add(statsButton);
         rightPanel.add(statusButton);
 
         return rightPanel;
@@ -325,6 +438,19 @@ public class ControlPanel {
         });
         filterPopup.add(negativeItem);
 
+        StayOpenCheckBoxMenuItem querySyntaxItem = new StayOpenCheckBoxMenuItem("Query Syntax");
+        querySyntaxItem.setToolTipText("<html>Filter by metadata before searching bodies, e.g.<br>"
+                + "status:5xx len&gt;10000 method:POST host:api.* time&gt;800 diff:response<br>"
+                + "Fields: status, len, time, tool, method, host, path, query, diff. Prefix a term with - to negate it.<br>"
+                + "Remaining words are searched in request and response content.</html>");
+        querySyntaxItem.addActionListener(e -> {
+            context.setQuerySyntax(querySyntaxItem.isSelected());
+            if (context.getTableFilterField().getText().isEmpty()) {
+                applyTableFilterCallback.run();
+            }
+        });
+        filterPopup.add(querySyntaxItem);
+
         filterPopup.addSeparator();
 
         StayOpenCheckBoxMenuItem requestDiffItem = new StayOpenCheckBoxMenuItem("Request Differences Only", true);
@@ -98,7 +98,9 @@ public class ExclusionsPanel {
             @Override
             public Component getTableCellRendererComponent(JTable table, Object value,
                     boolean isSelected, boolean hasFocus, int row, int column) {
-                textField.setText(value != null ? value.toString() : "");
+                String text = value != null ? value.toString() : "";
+                textField.setText(text);
+                textField.setToolTipText(null);
                 textField.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
 
                 TargetExclusions exclusions = context.getCurrentTargetExclusions();
@@ -106,6 +108,11 @@ public class ExclusionsPanel {
                     List<ExclusionRule> rules = isRequest ?
                             exclusions.getRequestExclusions() : exclusions.getResponseExclusions();
                     if (row < rules.size() && !rules.get(row).isValid()) {
+                        String reason = rules.get(row).getInvalidReason();
+                        if (column == 0 && reason != null) {
+                            textField.setText(text + "   [" + reason + "]");
+                            textField.setToolTipText(reason);
+                        }
                         textField.setBackground(new Color(255, 200, 200));
                     } else if (isSelected) {
                         textField.setBackground(table.getSelectionBackground());
@@ -227,7 +234,11 @@ public class ExclusionsPanel {
         List<ExclusionRule> rules = isRequest ?
                 exclusions.getRequestExclusions() : exclusions.getResponseExclusions();
         if (selectedRow < rules.size()) {
-            rules.remove(selectedRow);
+            if (isRequest) {
+                exclusions.removeRequestExclusion(selectedRow);
+            } else {
+                exclusions.removeResponseExclusion(selectedRow);
+            }
             refreshTables();
             context.notifyExclusionsChanged();
         }
@@ -0,0 +1,87 @@
+package org.diffhunter.ui;
+
+import org.diffhunter.cache.NormalizedTextCache;
+import org.diffhunter.search.GuardedRegex;
+import org.diffhunter.store.BlobStore;
+import org.diffhunter.store.SegmentStore;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Dialog showing storage, deduplication, compression, cache and regex statistics.
+ */
+public class StatsDialog {
+
+    private final UIContext context;
+
+    /**
+     * Creates a new StatsDialog with the specified context.
+     */
+    public StatsDialog(UIContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Shows the statistics relative to the given component.
+     */
+    public void show(Component parent) {
+        JTextArea textArea = new JTextArea(buildText());
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont().getSize()));
+        textArea.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        JOptionPane.showMessageDialog(SwingUtilities.getWindowAncestor(parent), textArea,
+                "Diff Hunter Statistics", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Builds the statistics report.
+     */
+    private String buildText() {
+        BlobStore blobs = context.getBlobStore();
+        SegmentStore segments = blobs.getSegmentStore();
+        NormalizedTextCache cache = context.getTextCache();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("Storage\n");
+        sb.append(String.format("  Entries:              %,d%n", context.getLogEntries().size()));
+        sb.append(String.format("  Segment files:        %,d (%s allocated, %s live)%n",
+                segments.getSegmentCount(), formatBytes(segments.getAllocatedBytes()), formatBytes(segments.getLiveBytes())));
+
+        sb.append("\nDeduplication\n");
+        sb.append(String.format("  Distinct blobs:       %,d (%s)%n", blobs.getBlobCount(), formatBytes(blobs.getStoredBytes())));
+        sb.append(String.format("  Shared blobs:         %,d (%s not written)%n", blobs.getDedupedBlobs(), formatBytes(blobs.getDedupedBytes())));
+
+        sb.append("\nDelta Storage\n");
+        sb.append(String.format("  Baselines:            %,d%n", blobs.getBaselineCount()));
+        sb.append(String.format("  Delta bodies:         %,d (%s saved)%n", blobs.getDeltaMessages(), formatBytes(blobs.getDeltaSavedBytes())));
+
+        sb.append("\nCompression\n");
+        long raw = blobs.getCompressedRawBytes();
+        long stored = blobs.getCompressedStoredBytes();
+        sb.append(String.format("  Compressed blobs:     %s -> %s (ratio %.2f)%n",
+                formatBytes(raw), formatBytes(stored), stored == 0 ? 0.0 : (double) raw / stored));
+        sb.append(String.format("  Host dictionaries:    %,d%n", blobs.getDictionaryCount()));
+        sb.append(String.format("  Decompressions:       %,d (avg %.1f µs)%n",
+                blobs.getDecompressions(), blobs.getAverageDecompressionMicros()));
+
+        sb.append("\nText Cache\n");
+        sb.append("  ").append(cache.getStatsSummary()).append('\n');
+
+        sb.append("\nRegex\n");
+        sb.append(String.format("  Timed-out matches:    %,d%n", GuardedRegex.getTimeoutCount()));
+
+        return sb.toString();
+    }
+
+    /**
+     * Formats a byte count for display.
+     */
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / 1048576.0);
+        return String.format("%.2f GB", bytes / 1073741824.0);
+    }
+}
@@ -2,6 +2,7 @@ package org.diffhunter.ui;
 
 import org.diffhunter.model.HttpLogEntry;
 import org.diffhunter.model.RowDiffType;
+import org.diffhunter.search.VisibleRowSet;
 import org.diffhunter.util.Constants;
 
 import javax.swing.*;
@@ -11,6 +12,7 @@ import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Panel containing the main request table.
@@ -65,6 +67,7 @@ public class TablePanel {
                             } else {
                                 context.removeExclusionsForTarget(entry);
                                 context.getTargetEntries().remove(entry.getNumber());
+                                context.getRowClassifications().remove(entry.getNumber());
                             }
                             updateHostAndEndpointCombosCallback.run();
                         }
@@ -150,6 +153,31 @@ public class TablePanel {
         return new JScrollPane(requestTable);
     }
 
+    /**
+     * Installs a row filter backed by a precomputed row set, so the sorter only performs lookups.
+     * The row predicate is evaluated live for every row and should be cheap (e.g. difference type).
+     * Passing a null row set shows every row that passes the row predicate.
+     */
+    public void applyVisibleRows(VisibleRowSet visibleRows, Predicate<HttpLogEntry> rowPredicate) {
+        context.setFiltering(true);
+        try {
+            context.getTableSorter().setRowFilter(new RowFilter<DefaultTableModel, Integer>() {
+                @Override
+                public boolean include(Entry<? extends DefaultTableModel, ? extends Integer> entry) {
+                    Object requestNumObj = entry.getValue(0);
+                    if (requestNumObj == null) return false;
+
+                    HttpLogEntry logEntry = context.getLogEntriesMap().get((Integer) requestNumObj);
+                    if (logEntry == null || !rowPredicate.test(logEntry)) return false;
+
+                    return visibleRows == null || visibleRows.contains(logEntry);
+                }
+            });
+        } finally {
+            context.setFiltering(false);
+        }
+    }
+
     /**
      * Applies row coloring based on selection state and difference status.
      */
@@ -1,10 +1,18 @@
 package org.diffhunter.ui;
 
+import org.diffhunter.cache.NormalizedTextCache;
+import org.diffhunter.diff.ByteDiffCalculator;
 import org.diffhunter.diff.DiffCalculator;
+import org.diffhunter.diff.StructuredDiff;
 import org.diffhunter.diff.DiffHighlighter;
 import org.diffhunter.model.DiffSegment;
+import org.diffhunter.model.EvictionPolicy;
 import org.diffhunter.model.HttpLogEntry;
+import org.diffhunter.model.RowClassifications;
 import org.diffhunter.model.TargetExclusions;
+import org.diffhunter.search.TrigramIndex;
+import org.diffhunter.store.BlobStore;
+import org.diffhunter.store.SegmentStore;
 import org.diffhunter.util.Constants;
 
 import javax.swing.*;
@@ -16,6 +24,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Shared UI context that holds all state and components.
@@ -42,6 +51,7 @@ public class UIContext {
     private JTextPane responsePaneEndpoint;
 
     private JTextField tableFilterField;
+    private JProgressBar tableFilterProgress;
     private String committedFilterText = "";
     private JCheckBox tableFilterCaseSensitive;
     private JCheckBox tableFilterRegex;
@@ -50,6 +60,7 @@ public class UIContext {
     private JComboBox<String> endpointFilterCombo;
 
     private JLabel statusLabel;
+    private JLabel memoryUsageLabel;
 
     private boolean showRequestDiff = true;
     private boolean showResponseDiff = true;
@@ -58,6 +69,7 @@ public class UIContext {
 
     private boolean filterRequests = true;
     private boolean filterResponses = true;
+    private boolean querySyntax = false;
     private volatile boolean updatingCombos = false;
     private volatile boolean editingCheckbox = false;
     private volatile boolean filtering = false;
@@ -79,9 +91,14 @@ public class UIContext {
 
     private int requestCounter = 0;
     private volatile int maxLogEntries = Constants.DEFAULT_MAX_LOG_ENTRIES;
+    private volatile boolean memoryBudgetMode = false;
+    private volatile int memoryBudgetMb = Constants.DEFAULT_MEMORY_BUDGET_MB;
+    private volatile EvictionPolicy evictionPolicy = EvictionPolicy.OLDEST;
     private volatile boolean captureEnabled = false;
     private volatile boolean extensionUnloading = false;
     private final AtomicInteger highlightingVersion = new AtomicInteger(0);
+    private final AtomicInteger filterVersion = new AtomicInteger(0);
+    private final AtomicLong summaryBytes = new AtomicLong(0);
     private final Object writeLock = new Object();
 
     private final List<HttpLogEntry> pendingEntries = Collections.synchronizedList(new ArrayList<>());
@@ -93,9 +110,20 @@ public class UIContext {
     private boolean darkTheme;
     private boolean characterLevelDiff = false;
     private boolean hexMode = false;
+    private boolean jsonStructureDiff = false;
+    private boolean markupTokenDiff = false;
+    private boolean parameterDiff = false;
+    private volatile boolean deltaStorage = false;
+    private volatile boolean compressedStorage = false;
 
     private final DiffCalculator diffCalculator = new DiffCalculator();
+    private final ByteDiffCalculator byteDiffCalculator = new ByteDiffCalculator();
+    private final StructuredDiff structuredDiff = new StructuredDiff(diffCalculator);
     private final DiffHighlighter diffHighlighter = new DiffHighlighter();
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    private final NormalizedTextCache textCache = new NormalizedTextCache(Constants.TEXT_CACHE_MAX_BYTES);
+    private final RowClassifications rowClassifications = new RowClassifications();
+    private final BlobStore blobStore = new BlobStore(new SegmentStore(Constants.STORE_SEGMENT_SIZE));
     private final List<JPopupMenu> contextMenus = new ArrayList<>();
     private JCheckBox tableCheckBoxRenderer;
     private JPanel colorBoxModified;
@@ -112,6 +140,7 @@ public class UIContext {
     public void setApi(burp.api.montoya.MontoyaApi api) {
         this.api = api;
         diffCalculator.setApi(api);
+        byteDiffCalculator.setApi(api);
         diffHighlighter.setApi(api);
     }
 
@@ -211,6 +240,12 @@ public class UIContext {
     /** Sets the table filter text field. */
     public void setTableFilterField(JTextField tableFilterField) { this.tableFilterField = tableFilterField; }
 
+    /** Returns the progress bar shown while the table filter is evaluated. */
+    public JProgressBar getTableFilterProgress() { return tableFilterProgress; }
+
+    /** Sets the progress bar shown while the table filter is evaluated. */
+    public void setTableFilterProgress(JProgressBar tableFilterProgress) { this.tableFilterProgress = tableFilterProgress; }
+
     /** Returns the committed filter text, confirmed by pressing Enter. */
     public String getCommittedFilterText() { return committedFilterText; }
 
@@ -277,6 +312,12 @@ public class UIContext {
     /** Sets the status label. */
     public void setStatusLabel(JLabel statusLabel) { this.statusLabel = statusLabel; }
 
+    /** Returns the status panel label showing log memory usage. */
+    public JLabel getMemoryUsageLabel() { return memoryUsageLabel; }
+
+    /** Sets the status panel label showing log memory usage. */
+    public void setMemoryUsageLabel(JLabel memoryUsageLabel) { this.memoryUsageLabel = memoryUsageLabel; }
+
     /** Returns true if requests should be included in filter search. */
     public boolean isFilterRequests() { return filterRequests; }
 
@@ -289,6 +330,12 @@ public class UIContext {
     /** Sets whether responses should be included in filter search. */
     public void setFilterResponses(boolean filterResponses) { this.filterResponses = filterResponses; }
 
+    /** Returns true if the filter text is parsed as a metadata query. */
+    public boolean isQuerySyntax() { return querySyntax; }
+
+    /** Sets whether the filter text is parsed as a metadata query. */
+    public void setQuerySyntax(boolean querySyntax) { this.querySyntax = querySyntax; }
+
     /** Returns true if combo boxes are being updated programmatically. */
     public boolean isUpdatingCombos() { return updatingCombos; }
 
@@ -344,13 +391,19 @@ public class UIContext {
     public HttpLogEntry getCurrentTargetEntry() { return currentTargetEntry; }
 
     /** Sets the currently selected target entry for comparison. */
-    public void setCurrentTargetEntry(HttpLogEntry currentTargetEntry) { this.currentTargetEntry = currentTargetEntry; }
+    public void setCurrentTargetEntry(HttpLogEntry currentTargetEntry) {
+        this.currentTargetEntry = currentTargetEntry;
+        textCache.pin(NormalizedTextCache.PIN_TARGET, currentTargetEntry != null ? currentTargetEntry.getNumber() : -1);
+    }
 
     /** Returns the currently selected entry in the request table. */
     public HttpLogEntry getCurrentSelectedEntry() { return currentSelectedEntry; }
 
     /** Sets the currently selected entry in the request table. */
-    public void setCurrentSelectedEntry(HttpLogEntry currentSelectedEntry) { this.currentSelectedEntry = currentSelectedEntry; }
+    public void setCurrentSelectedEntry(HttpLogEntry currentSelectedEntry) {
+        this.currentSelectedEntry = currentSelectedEntry;
+        textCache.pin(NormalizedTextCache.PIN_SELECTION, currentSelectedEntry != null ? currentSelectedEntry.getNumber() : -1);
+    }
 
     /** Returns the current request counter value. */
     public int getRequestCounter() { return requestCounter; }
@@ -367,6 +420,53 @@ public class UIContext {
     /** Sets the maximum number of log entries to keep in memory. */
     public void setMaxLogEntries(int maxLogEntries) { this.maxLogEntries = maxLogEntries; }
 
+    /** Returns true if the log is limited by memory budget instead of entry count. */
+    public boolean isMemoryBudgetMode() { return memoryBudgetMode; }
+
+    /** Sets whether the log is limited by memory budget instead of entry count. */
+    public void setMemoryBudgetMode(boolean memoryBudgetMode) { this.memoryBudgetMode = memoryBudgetMode; }
+
+    /** Returns the memory budget in megabytes. */
+    public int getMemoryBudgetMb() { return memoryBudgetMb; }
+
+    /** Sets the memory budget in megabytes. */
+    public void setMemoryBudgetMb(int memoryBudgetMb) { this.memoryBudgetMb = memoryBudgetMb; }
+
+    /** Returns the policy used to evict entries when the memory budget is exceeded. */
+    public EvictionPolicy getEvictionPolicy() { return evictionPolicy; }
+
+    /** Sets the policy used to evict entries when the memory budget is exceeded. */
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) { this.evictionPolicy = evictionPolicy; }
+
+    /**
+     * Returns the estimated size of the log that the size limit applies to: the stored message bytes,
+     * which live in memory-mapped segment files outside the heap, plus the log's heap usage.
+     */
+    public long getLogSizeBytes() {
+        return blobStore.getSegmentStore().getLiveBytes() + getHeapUsageBytes();
+    }
+
+    /**
+     * Returns the estimated heap used by the log: cached strings, the trigram index, diff summaries,
+     * row classifications and a fixed per-entry overhead for the entry object and its table row.
+     */
+    public long getHeapUsageBytes() {
+        return textCache.getUsedBytes()
+                + trigramIndex.getEstimatedBytes()
+                + summaryBytes.get()
+                + rowClassifications.getEstimatedBytes()
+                + (long) logEntries.size() * Constants.ENTRY_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Returns the estimated size a single entry adds to the log: its stored bytes, its postings
+     * in the trigram index, its diff summaries and the per-entry overhead.
+     */
+    public long getEntryWeight(HttpLogEntry entry) {
+        return entry.getStoredBytes() + 2L * entry.getIndexedTrigrams() + entry.getSummaryBytes()
+                + Constants.ENTRY_OVERHEAD_BYTES;
+    }
+
     /** Returns true if HTTP capture is enabled. */
     public boolean isCaptureEnabled() { return captureEnabled; }
 
@@ -382,6 +482,9 @@ public class UIContext {
     /** Returns the highlighting version counter for cancellation checks. */
     public AtomicInteger getHighlightingVersion() { return highlightingVersion; }
 
+    /** Returns the table filter version counter for cancellation checks. */
+    public AtomicInteger getFilterVersion() { return filterVersion; }
+
     /** Returns the write lock for thread-safe operations. */
     public Object getWriteLock() { return writeLock; }
 
@@ -427,9 +530,30 @@ public class UIContext {
     /** Returns the diff calculator instance. */
     public DiffCalculator getDiffCalculator() { return diffCalculator; }
 
+    /** Returns the byte-level diff calculator used in Hexdump mode. */
+    public ByteDiffCalculator getByteDiffCalculator() { return byteDiffCalculator; }
+
+    /** Returns the structure-aware message differ. */
+    public StructuredDiff getStructuredDiff() { return structuredDiff; }
+
     /** Returns the diff highlighter instance. */
     public DiffHighlighter getDiffHighlighter() { return diffHighlighter; }
 
+    /** Returns the trigram index over captured request and response text. */
+    public TrigramIndex getTrigramIndex() { return trigramIndex; }
+
+    /** Returns the shared cache of normalized request and response text. */
+    public NormalizedTextCache getTextCache() { return textCache; }
+
+    /** Returns the per-target row difference types. */
+    public RowClassifications getRowClassifications() { return rowClassifications; }
+
+    /** Returns the running estimate of the heap held by all entries' diff summaries. */
+    public AtomicLong getSummaryBytes() { return summaryBytes; }
+
+    /** Returns the content-addressed store holding captured request and response bytes. */
+    public BlobStore getBlobStore() { return blobStore; }
+
     /** Registers a context menu for theme updates. */
     public void registerContextMenu(JPopupMenu menu) { contextMenus.add(menu); }
 
@@ -472,6 +596,39 @@ public class UIContext {
         this.hexMode = hexMode;
     }
 
+    /** Returns true if JSON bodies are diffed by structure instead of by line. */
+    public boolean isJsonStructureDiff() { return jsonStructureDiff; }
+
+    /** Sets whether JSON bodies are diffed by structure instead of by line. */
+    public void setJsonStructureDiff(boolean jsonStructureDiff) { this.jsonStructureDiff = jsonStructureDiff; }
+
+    /** Returns true if HTML and XML bodies are diffed by markup token instead of by line. */
+    public boolean isMarkupTokenDiff() { return markupTokenDiff; }
+
+    /** Sets whether HTML and XML bodies are diffed by markup token instead of by line. */
+    public void setMarkupTokenDiff(boolean markupTokenDiff) { this.markupTokenDiff = markupTokenDiff; }
+
+    /** Returns true if requests are diffed by query, form, multipart and JSON parameter. */
+    public boolean isParameterDiff() { return parameterDiff; }
+
+    /** Sets whether requests are diffed by query, form, multipart and JSON parameter. */
+    public void setParameterDiff(boolean parameterDiff) { this.parameterDiff = parameterDiff; }
+
+    /** Returns true if any structure-aware body engine or the parameter diff is enabled. */
+    public boolean isStructuredDiff() { return jsonStructureDiff || markupTokenDiff || parameterDiff; }
+
+    /** Returns true if new entries are stored as deltas against their endpoint baseline. */
+    public boolean isDeltaStorage() { return deltaStorage; }
+
+    /** Sets whether new entries are stored as deltas against their endpoint baseline. */
+    public void setDeltaStorage(boolean deltaStorage) { this.deltaStorage = deltaStorage; }
+
+    /** Returns true if new entries are compressed with a per-host dictionary. */
+    public boolean isCompressedStorage() { return compressedStorage; }
+
+    /** Sets whether new entries are compressed with a per-host dictionary. */
+    public void setCompressedStorage(boolean compressedStorage) { this.compressedStorage = compressedStorage; }
+
     /**
      * Returns the exclusions for a target, creating a new one if it doesn't exist.
      */
@@ -24,7 +24,34 @@ public final class Constants {
     public static final int MIN_LOG_ENTRIES = 100;
     public static final int MAX_LOG_ENTRIES = Integer.MAX_VALUE;
     public static final int LOG_ENTRIES_STEP = 1000;
+    public static final int DEFAULT_MEMORY_BUDGET_MB = 1024;
+    public static final int MIN_MEMORY_BUDGET_MB = 16;
+    public static final int MAX_MEMORY_BUDGET_MB = 1024 * 1024;
+    public static final int MEMORY_BUDGET_STEP_MB = 64;
+    public static final int ENTRY_OVERHEAD_BYTES = 512;
     public static final int BATCH_UPDATE_INTERVAL_MS = 100;
+    public static final int FILTER_CHUNK_SIZE = 2048;
+    public static final int FILTER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    public static final int TRIGRAM_COMPACT_MIN_REMOVED = 1024;
+    public static final int TRIGRAM_COMPACT_BATCH = 4096;
+    public static final int TRIGRAM_LIST_OVERHEAD_BYTES = 128;
+    public static final int TRIGRAM_MAX_INDEXED_BYTES = 1024 * 1024;
+    public static final long TRIGRAM_MAX_QUEUED_BYTES = 64L * 1024 * 1024;
+    public static final long TEXT_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    public static final int STORE_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int STORE_FREE_SEGMENTS = 2;
+    public static final int DELTA_MIN_BODY_SIZE = 256;
+    public static final double DELTA_MAX_RATIO = 0.5;
+    public static final int COMPRESSION_MIN_SIZE = 128;
+    public static final double COMPRESSION_MAX_RATIO = 0.9;
+    public static final int COMPRESSION_DICTIONARY_SIZE = 32 * 1024;
+    public static final int COMPRESSION_SAMPLE_SIZE = 4096;
+    public static final int COMPRESSION_TRAINING_SAMPLES = 16;
+    public static final int DIFF_SUMMARY_MAX_CHARS = 4096;
+    public static final int BYTE_DIFF_MAX_BYTES = 64 * 1024;
+    public static final long REGEX_STEP_BUDGET = 1_000_000;
+    public static final int REGEX_STEPS_PER_CHAR = 64;
+    public static final long REGEX_TIME_BUDGET_MS = 1000;
 
     public static final Color COLOR_DELETED_REQUEST_DARK = new Color(106, 26, 26);
     public static final Color COLOR_ADDED_BOTH_DARK = new Color(85, 115, 35);
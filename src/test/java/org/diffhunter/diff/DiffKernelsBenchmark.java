@@ -0,0 +1,197 @@
+package org.diffhunter.diff;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the scalar and Vector API diff kernels on generated HTML and JSON bodies.
+ * Not a unit test; run it with the incubator module enabled so both backends are measured:
+ * <pre>
+ * mvn -q test-compile
+ * java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes org.diffhunter.diff.DiffKernelsBenchmark
+ * </pre>
+ * Each workload checks that both backends return the same results before it is timed.
+ */
+public final class DiffKernelsBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int MIN_ROUND_NANOS = 200_000_000;
+
+    private DiffKernelsBenchmark() {}
+
+    /** A named workload that runs once over its inputs and returns a checksum of the results. */
+    private interface Workload {
+        long run(DiffKernels kernels);
+    }
+
+    /**
+     * Runs every workload on the scalar backend and, if the module is present, the Vector API backend.
+     */
+    public static void main(String[] args) {
+        List<DiffKernels> backends = new ArrayList<>();
+        backends.add(new ScalarKernels());
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            backends.add(new VectorKernels());
+        } else {
+            System.out.println("jdk.incubator.vector is not enabled; measuring the scalar backend only.");
+        }
+
+        Random random = new Random(42);
+        String html = htmlBody(random, 400);
+        String json = jsonBody(random, 300);
+        List<char[][]> htmlLines = changedLines(html, random, 0);
+        List<char[][]> jsonPieces = changedLines(json, random, 256);
+        char[] htmlChars = html.toCharArray();
+        char[] htmlTail = changeNearEnd(htmlChars);
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        byte[] jsonMiddle = changeInMiddle(jsonBytes);
+
+        System.out.printf("HTML body: %,d chars, %d changed lines; JSON body: %,d chars, %d changed pieces%n",
+                html.length(), htmlLines.size(), json.length(), jsonPieces.size());
+        System.out.printf("%-38s %-24s %14s %9s%n", "workload", "backend", "ns/op", "speedup");
+
+        measure("LCS, changed HTML lines", backends, kernels -> lcs(kernels, htmlLines));
+        measure("LCS, changed minified JSON pieces", backends, kernels -> lcs(kernels, jsonPieces));
+        measure("char mismatch, HTML body", backends,
+                kernels -> kernels.mismatch(htmlChars, 0, htmlTail, 0, htmlChars.length));
+        measure("byte prefix + suffix, JSON body", backends, kernels -> {
+            int prefix = kernels.mismatch(jsonBytes, 0, jsonMiddle, 0, jsonBytes.length);
+            return prefix + 31L * kernels.commonSuffix(jsonBytes, jsonBytes.length, jsonMiddle, jsonMiddle.length,
+                    jsonBytes.length - prefix);
+        });
+    }
+
+    /**
+     * Times the workload on each backend and prints the time per run and the speedup over the first.
+     */
+    private static void measure(String name, List<DiffKernels> backends, Workload workload) {
+        long expected = workload.run(backends.get(0));
+        double baseline = 0;
+        for (DiffKernels kernels : backends) {
+            if (workload.run(kernels) != expected) {
+                throw new IllegalStateException(name + ": " + kernels.getName() + " returned different results");
+            }
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                timeRound(kernels, workload);
+            }
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                best = Math.min(best, timeRound(kernels, workload));
+            }
+            if (baseline == 0) baseline = best;
+            System.out.printf("%-38s %-24s %,14.0f %8.2fx%n", name, kernels.getName(), best, baseline / best);
+        }
+    }
+
+    /** Runs the workload for at least MIN_ROUND_NANOS and returns the average time per run. */
+    private static double timeRound(DiffKernels kernels, Workload workload) {
+        long sink = 0;
+        int runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink += workload.run(kernels);
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_ROUND_NANOS);
+        if (sink == 42) System.out.print("");
+        return (double) elapsed / runs;
+    }
+
+    /** Runs the longest common substring over every line pair and sums the results. */
+    private static long lcs(DiffKernels kernels, List<char[][]> pairs) {
+        long sum = 0;
+        for (char[][] pair : pairs) {
+            int[] result = kernels.longestCommonSubstring(pair[0], 0, pair[0].length, pair[1], 0, pair[1].length);
+            sum = sum * 31 + result[0] * 7919L + result[1] * 131L + result[2];
+        }
+        return sum;
+    }
+
+    /** Returns an HTML listing page with the given number of table rows. */
+    private static String htmlBody(Random random, int rows) {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n")
+                .append("  <meta charset=\"utf-8\">\n  <title>Orders</title>\n")
+                .append("  <link rel=\"stylesheet\" href=\"/static/css/app.css?v=").append(token(random, 8)).append("\">\n")
+                .append("</head>\n<body>\n  <form method=\"post\" action=\"/orders/search\">\n")
+                .append("    <input type=\"hidden\" name=\"csrf_token\" value=\"").append(token(random, 32)).append("\">\n")
+                .append("  </form>\n  <table class=\"orders\">\n");
+        for (int i = 0; i < rows; i++) {
+            html.append("    <tr id=\"order-").append(10000 + i).append("\" class=\"row ").append(i % 2 == 0 ? "even" : "odd")
+                    .append("\"><td><a href=\"/orders/").append(10000 + i).append("?session=").append(token(random, 16))
+                    .append("\">Order #").append(10000 + i).append("</a></td><td>").append(random.nextInt(500))
+                    .append(".").append(random.nextInt(90) + 10).append(" EUR</td><td data-ts=\"")
+                    .append(1_700_000_000L + random.nextInt(10_000_000)).append("\">shipped</td></tr>\n");
+        }
+        return html.append("  </table>\n</body>\n</html>\n").toString();
+    }
+
+    /** Returns a minified JSON array with the given number of objects. */
+    private static String jsonBody(Random random, int objects) {
+        StringBuilder json = new StringBuilder("{\"status\":\"ok\",\"requestId\":\"").append(token(random, 24))
+                .append("\",\"items\":[");
+        for (int i = 0; i < objects; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(5000 + i).append(",\"name\":\"item-").append(token(random, 6))
+                    .append("\",\"price\":").append(random.nextInt(10000) / 100.0)
+                    .append(",\"tags\":[\"a\",\"b\",\"").append(token(random, 4)).append("\"],\"updatedAt\":\"2026-10-")
+                    .append(10 + random.nextInt(18)).append("T12:").append(10 + random.nextInt(50)).append(":00Z\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Splits the text into lines, or into pieces of the given length if it is positive, and returns
+     * pairs of each piece with a copy whose alphanumeric tokens were partly replaced.
+     */
+    private static List<char[][]> changedLines(String text, Random random, int pieceLength) {
+        List<String> pieces = new ArrayList<>();
+        if (pieceLength > 0) {
+            for (int i = 0; i < text.length(); i += pieceLength) {
+                pieces.add(text.substring(i, Math.min(text.length(), i + pieceLength)));
+            }
+        } else {
+            for (String line : text.split("\n")) {
+                if (line.length() > 20) pieces.add(line);
+            }
+        }
+        List<char[][]> pairs = new ArrayList<>();
+        for (String piece : pieces) {
+            char[] changed = piece.toCharArray();
+            for (int i = 0; i < changed.length; i++) {
+                if (Character.isLetterOrDigit(changed[i]) && random.nextInt(6) == 0) {
+                    changed[i] = (char) ('a' + random.nextInt(26));
+                }
+            }
+            pairs.add(new char[][]{piece.toCharArray(), changed});
+        }
+        return pairs;
+    }
+
+    /** Returns a copy with one character changed shortly before the end. */
+    private static char[] changeNearEnd(char[] text) {
+        char[] copy = text.clone();
+        copy[copy.length - 20] ^= 1;
+        return copy;
+    }
+
+    /** Returns a copy with one byte changed in the middle. */
+    private static byte[] changeInMiddle(byte[] text) {
+        byte[] copy = text.clone();
+        copy[copy.length / 2] ^= 1;
+        return copy;
+    }
+
+    /** Returns a random lowercase alphanumeric token. */
+    private static String token(Random random, int length) {
+        StringBuilder token = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int c = random.nextInt(36);
+            token.append((char) (c < 10 ? '0' + c : 'a' + c - 10));
+        }
+        return token.toString();
+    }
+}